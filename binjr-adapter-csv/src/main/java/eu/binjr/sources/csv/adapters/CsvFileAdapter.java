@@ -22,6 +22,8 @@ import eu.binjr.core.data.adapters.DataAdapter;
 import eu.binjr.core.data.adapters.TimeSeriesBinding;
 import eu.binjr.core.data.codec.CsvDecoder;
 import eu.binjr.core.data.codec.DataSample;
+import eu.binjr.core.data.codec.DoubleParser;
+import eu.binjr.core.data.codec.FastTimeStampParser;
 import eu.binjr.core.data.exceptions.DataAdapterException;
 import eu.binjr.core.data.exceptions.FetchingDataFromAdapterException;
 import eu.binjr.core.data.exceptions.InvalidAdapterParameterException;
@@ -30,20 +32,18 @@ import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
 import eu.binjr.core.data.workspace.ChartType;
 import eu.binjr.core.data.workspace.TimeSeriesInfo;
 import eu.binjr.core.data.workspace.UnitPrefixes;
-import javafx.scene.chart.XYChart;
 import javafx.scene.control.TreeItem;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -64,7 +64,11 @@ public class CsvFileAdapter extends BaseDataAdapter {
     private Character delimiter;
     private String encoding;
     private CsvDecoder csvDecoder;
+    private CsvDecoder.NumberParser numberParser;
+    private CsvDecoder.TimeStampParser timeStampParser;
     private SortedMap<Long, DataSample> sortedDataStore;
+    private CsvFileIndex fileIndex;
+    private boolean indexUnavailable;
     private List<String> headers;
 
     /**
@@ -104,18 +108,23 @@ public class CsvFileAdapter extends BaseDataAdapter {
         this.encoding = encoding;
         this.dateTimePattern = dateTimePattern;
         this.delimiter = delimiter;
-        this.csvDecoder = new CsvDecoder(encoding, delimiter,
-                DoubleTimeSeriesProcessor::new,
-                s -> {
-                    try {
-                        Double val = Double.parseDouble(s);
-                        return val.isNaN() ? 0 : val;
-                    } catch (NumberFormatException e) {
-                        logger.debug(() -> "Cannot format value as a number", e);
-                        return 0.0;
-                    }
-                },
-                s -> ZonedDateTime.parse(s, DateTimeFormatter.ofPattern(dateTimePattern).withZone(zoneId)));
+        this.csvDecoder = buildDecoder();
+    }
+
+    private CsvDecoder buildDecoder() {
+        this.numberParser = (chars, offset, length) -> {
+            try {
+                double val = DoubleParser.parse(chars, offset, length);
+                return Double.isNaN(val) ? 0 : val;
+            } catch (NumberFormatException e) {
+                logger.debug(() -> "Cannot format value as a number", e);
+                return 0.0;
+            }
+        };
+        this.timeStampParser = FastTimeStampParser.of(dateTimePattern, zoneId);
+        this.fileIndex = null;
+        this.indexUnavailable = false;
+        return new CsvDecoder(encoding, delimiter, zoneId, DoubleTimeSeriesProcessor::new, numberParser, timeStampParser);
     }
 
     @Override
@@ -156,6 +165,14 @@ public class CsvFileAdapter extends BaseDataAdapter {
         if (this.isClosed()) {
             throw new IllegalStateException("An attempt was made to fetch data from a closed adapter");
         }
+        CsvFileIndex index = getFileIndex();
+        if (index != null) {
+            try {
+                return index.read(begin, end, seriesInfo, DoubleTimeSeriesProcessor::new, numberParser, timeStampParser);
+            } catch (IOException e) {
+                throw new FetchingDataFromAdapterException("Error reading data from " + csvPath, e);
+            }
+        }
         Map<TimeSeriesInfo, TimeSeriesProcessor> series = new HashMap<>();
         Map<String, TimeSeriesInfo> rDict = new HashMap<>();
         for (TimeSeriesInfo info : seriesInfo) {
@@ -167,7 +184,7 @@ public class CsvFileAdapter extends BaseDataAdapter {
             for (String n : sample.getCells().keySet()) {
                 TimeSeriesInfo i = rDict.get(n);
                 if (i != null) {
-                    series.get(i).addSample(new XYChart.Data<>(sample.getTimeStamp(), sample.getCells().get(n)));
+                    series.get(i).addSample(sample.getTimeStamp(), sample.getCells().get(n));
                 }
             }
         }
@@ -236,6 +253,7 @@ public class CsvFileAdapter extends BaseDataAdapter {
         encoding = validateParameterNullity(params, "encoding");
         dateTimePattern = validateParameterNullity(params, "dateTimePattern");
         this.csvPath = Paths.get(path);
+        this.csvDecoder = buildDecoder();
     }
 
     @Override
@@ -243,9 +261,35 @@ public class CsvFileAdapter extends BaseDataAdapter {
         if (sortedDataStore != null) {
             sortedDataStore.clear();
         }
+        fileIndex = null;
         super.close();
     }
 
+    /**
+     * Returns the sparse index used to decode records straight from the csv file, building it on first access,
+     * or null if the file cannot be indexed, in which case its whole content is loaded in a sorted data store instead.
+     *
+     * @return the index used to decode records straight from the csv file, or null if the file cannot be indexed.
+     * @throws DataAdapterException if an error occurred while indexing the file.
+     */
+    protected synchronized CsvFileIndex getFileIndex() throws DataAdapterException {
+        if (fileIndex == null && !indexUnavailable) {
+            Charset charset = Charset.forName(encoding);
+            if (CsvFileIndex.isSupported(charset)) {
+                try {
+                    fileIndex = CsvFileIndex.build(csvPath, charset, delimiter, zoneId, timeStampParser).orElse(null);
+                } catch (IOException e) {
+                    throw new DataAdapterException("Error indexing " + csvPath, e);
+                }
+            }
+            if (fileIndex == null) {
+                logger.info("File " + csvPath + " cannot be indexed: its whole content will be loaded in memory");
+                indexUnavailable = true;
+            }
+        }
+        return fileIndex;
+    }
+
     protected SortedMap<Long, DataSample> getDataStore() throws DataAdapterException {
         if (sortedDataStore == null) {
             try (InputStream in = Files.newInputStream(csvPath)) {
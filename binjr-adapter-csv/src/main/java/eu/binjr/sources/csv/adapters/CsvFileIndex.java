@@ -0,0 +1,402 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.sources.csv.adapters;
+
+import eu.binjr.common.logging.Profiler;
+import eu.binjr.core.data.codec.CsvDecoder;
+import eu.binjr.core.data.codec.CsvFieldReader;
+import eu.binjr.core.data.exceptions.DecodingDataFromAdapterException;
+import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesProcessorFactory;
+import eu.binjr.core.data.workspace.TimeSeriesInfo;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * A sparse index of the records of a CSV file sorted by time stamps, which allows decoding only the records
+ * within a given time interval, straight from a memory mapping of the file.
+ * <p>The index holds the time stamp and byte offset of the first record found after every {@value #INDEX_SPACING}
+ * bytes, so its size is proportional to the size of the file divided by that spacing, and a time interval is decoded
+ * starting at most {@value #INDEX_SPACING} bytes ahead of its first record.</p>
+ * <p>Records are located by looking for line feeds outside of quoted fields, which requires an encoding in which
+ * ASCII characters are encoded as single bytes; see {@link #isSupported(Charset)}.</p>
+ *
+ * @author Frederic Thevenet
+ */
+final class CsvFileIndex {
+    private static final Logger logger = LogManager.getLogger(CsvFileIndex.class);
+    private static final int INDEX_SPACING = 64 * 1024;
+    private static final long MAX_MAPPING_SIZE = 1L << 30;
+    private final Path csvPath;
+    private final Charset charset;
+    private final char delimiter;
+    private final ZoneId zoneId;
+    private final Map<String, Integer> columns;
+    private final long[] timeStamps;
+    private final long[] offsets;
+    private final int size;
+    private final long endOfData;
+
+    private CsvFileIndex(Path csvPath,
+                         Charset charset,
+                         char delimiter,
+                         ZoneId zoneId,
+                         Map<String, Integer> columns,
+                         long[] timeStamps,
+                         long[] offsets,
+                         int size,
+                         long endOfData) {
+        this.csvPath = csvPath;
+        this.charset = charset;
+        this.delimiter = delimiter;
+        this.zoneId = zoneId;
+        this.columns = columns;
+        this.timeStamps = timeStamps;
+        this.offsets = offsets;
+        this.size = size;
+        this.endOfData = endOfData;
+    }
+
+    /**
+     * Returns true if records in a file with the specified encoding can be located by an index.
+     *
+     * @param charset the encoding of the file.
+     * @return true if records in a file with the specified encoding can be located by an index, false otherwise.
+     */
+    static boolean isSupported(Charset charset) {
+        byte[] ascii = new byte[128];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (byte) i;
+        }
+        String decoded = new String(ascii, charset);
+        if (decoded.length() != ascii.length) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length; i++) {
+            if (decoded.charAt(i) != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds an index for the specified CSV file.
+     *
+     * @param csvPath         the path to the CSV file.
+     * @param charset         the encoding of the file; it must be supported according to {@link #isSupported(Charset)}.
+     * @param delimiter       the character used to separate cells in records.
+     * @param zoneId          the time zone of the time series.
+     * @param timeStampParser the function used to parse time stamps.
+     * @return an index for the file, or an empty optional if its records are not sorted by time stamps.
+     * @throws IOException                      in the event of an I/O error.
+     * @throws DecodingDataFromAdapterException if an error occurred while decoding the file.
+     */
+    static Optional<CsvFileIndex> build(Path csvPath,
+                                        Charset charset,
+                                        char delimiter,
+                                        ZoneId zoneId,
+                                        CsvDecoder.TimeStampParser timeStampParser) throws IOException, DecodingDataFromAdapterException {
+        try (Profiler ignored = Profiler.start("Indexing csv file " + csvPath, logger::trace);
+             FileChannel channel = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long[] timeStamps = new long[(int) Math.min(Integer.MAX_VALUE - 8, fileSize / INDEX_SPACING + 16)];
+            long[] offsets = new long[timeStamps.length];
+            int size = 0;
+            char[] field = new char[64];
+            long nextIndexedOffset = 0;
+            long recordStart = 0;
+            long dataStart = -1;
+            boolean quoted = false;
+            boolean blankLine = true;
+            for (long mappingStart = 0; mappingStart < fileSize; mappingStart += MAX_MAPPING_SIZE) {
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, mappingStart,
+                        Math.min(MAX_MAPPING_SIZE, fileSize - mappingStart));
+                int limit = mapping.limit();
+                boolean lastMapping = mappingStart + limit >= fileSize;
+                for (int i = 0; i < limit || (lastMapping && i == limit); i++) {
+                    // The end of the file terminates the last record, even if it doesn't end with a line feed
+                    byte b = i < limit ? mapping.get(i) : (byte) '\n';
+                    if (i == limit) {
+                        quoted = false;
+                    }
+                    if (b == '"') {
+                        quoted = !quoted;
+                    }
+                    if (b != '\n' || quoted) {
+                        if (b != '\r') {
+                            blankLine = false;
+                        }
+                        continue;
+                    }
+                    long recordEnd = mappingStart + i;
+                    if (!blankLine) {
+                        if (dataStart < 0) {
+                            // Skip the header
+                            dataStart = recordEnd + 1;
+                            nextIndexedOffset = dataStart;
+                        } else if (recordStart >= nextIndexedOffset) {
+                            int length = readFirstField(channel, mapping, mappingStart, recordStart, recordEnd, delimiter, field);
+                            if (length > field.length) {
+                                field = new char[length];
+                                length = readFirstField(channel, mapping, mappingStart, recordStart, recordEnd, delimiter, field);
+                            }
+                            long timeStamp = timeStampParser.parse(field, 0, length);
+                            if (size > 0 && timeStamp < timeStamps[size - 1]) {
+                                logger.debug(() -> "Records in " + csvPath + " are not sorted by time stamp: it cannot be indexed");
+                                return Optional.empty();
+                            }
+                            timeStamps[size] = timeStamp;
+                            offsets[size] = recordStart;
+                            size++;
+                            nextIndexedOffset = recordStart + INDEX_SPACING;
+                        }
+                    }
+                    recordStart = recordEnd + 1;
+                    blankLine = true;
+                }
+            }
+            if (dataStart < 0) {
+                throw new DecodingDataFromAdapterException("CSV stream does not contains column header");
+            }
+            Map<String, Integer> columns = readHeader(channel, charset, delimiter, dataStart);
+            final int nbEntries = size;
+            logger.trace(() -> String.format("Indexed %s with %d entries", csvPath, nbEntries));
+            return Optional.of(new CsvFileIndex(csvPath, charset, delimiter, zoneId, columns,
+                    Arrays.copyOf(timeStamps, size), Arrays.copyOf(offsets, size), size, fileSize));
+        }
+    }
+
+    /**
+     * Decodes the requested series for the records whose time stamp is within the specified interval.
+     *
+     * @param begin             the start of the time interval (inclusive).
+     * @param end               the end of the time interval (exclusive).
+     * @param seriesInfo        the series to decode.
+     * @param timeSeriesFactory the factory used to create new {@link TimeSeriesProcessor} instances.
+     * @param numberParser      the function used to parse numbers.
+     * @param timeStampParser   the function used to parse time stamps.
+     * @return a map of the decoded series.
+     * @throws IOException                      in the event of an I/O error.
+     * @throws DecodingDataFromAdapterException if an error occurred while decoding the file.
+     */
+    Map<TimeSeriesInfo, TimeSeriesProcessor> read(Instant begin,
+                                                  Instant end,
+                                                  List<TimeSeriesInfo> seriesInfo,
+                                                  TimeSeriesProcessorFactory timeSeriesFactory,
+                                                  CsvDecoder.NumberParser numberParser,
+                                                  CsvDecoder.TimeStampParser timeStampParser) throws IOException, DecodingDataFromAdapterException {
+        long beginMillis = begin.toEpochMilli();
+        long endMillis = end.toEpochMilli();
+        int[] cols = new int[seriesInfo.size()];
+        for (int i = 0; i < cols.length; i++) {
+            Integer col = columns.get(seriesInfo.get(i).getBinding().getLabel());
+            if (col == null) {
+                throw new DecodingDataFromAdapterException("Could not find a column named \"" + seriesInfo.get(i).getBinding().getLabel() + "\" in " + csvPath);
+            }
+            cols[i] = col;
+        }
+        Map<TimeSeriesInfo, TimeSeriesProcessor> series = new HashMap<>();
+        for (TimeSeriesInfo info : seriesInfo) {
+            TimeSeriesProcessor processor = timeSeriesFactory.create();
+            processor.setZoneId(zoneId);
+            series.put(info, processor);
+        }
+        if (size == 0 || beginMillis >= endMillis) {
+            return series;
+        }
+        // Start from the last indexed record strictly before the interval, and stop at the first one past it
+        int first = Math.max(0, lowerBound(beginMillis) - 1);
+        int last = lowerBound(endMillis);
+        long startOffset = offsets[first];
+        long endOffset = last < size ? offsets[last] : endOfData;
+        try (Profiler ignored = Profiler.start("Decoding " + (endOffset - startOffset) + " bytes from " + csvPath, logger::trace);
+             FileChannel channel = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            long[] timeStampColumn = new long[1024];
+            double[][] valueColumns = new double[cols.length][1024];
+            int length = 0;
+            int entry = first;
+            long mappingStart = startOffset;
+            boolean done = false;
+            while (!done && mappingStart < endOffset) {
+                // Mappings are cut at indexed records, so that they always contain whole records
+                long mappingEnd = endOffset;
+                if (endOffset - mappingStart > MAX_MAPPING_SIZE) {
+                    int next = entry;
+                    while (next + 1 < last && offsets[next + 1] - mappingStart <= MAX_MAPPING_SIZE) {
+                        next++;
+                    }
+                    if (next == entry) {
+                        throw new DecodingDataFromAdapterException("Record at offset " + mappingStart + " in " + csvPath + " is too large to be decoded");
+                    }
+                    mappingEnd = offsets[next];
+                    entry = next;
+                }
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, mappingStart, mappingEnd - mappingStart);
+                try (CsvFieldReader reader = new CsvFieldReader(new InputStreamReader(new ByteBufferInputStream(mapping), charset), delimiter)) {
+                    while (reader.nextRecord()) {
+                        char[] buffer = reader.getBuffer();
+                        long timeStamp = timeStampParser.parse(buffer, reader.getFieldOffset(0), reader.getFieldLength(0));
+                        if (timeStamp < beginMillis) {
+                            continue;
+                        }
+                        if (timeStamp >= endMillis) {
+                            done = true;
+                            break;
+                        }
+                        if (length == timeStampColumn.length) {
+                            int newCapacity = length + (length >> 1);
+                            timeStampColumn = Arrays.copyOf(timeStampColumn, newCapacity);
+                            for (int s = 0; s < cols.length; s++) {
+                                valueColumns[s] = Arrays.copyOf(valueColumns[s], newCapacity);
+                            }
+                        }
+                        timeStampColumn[length] = timeStamp;
+                        for (int s = 0; s < cols.length; s++) {
+                            valueColumns[s][length] = cols[s] < reader.getFieldCount() ?
+                                    numberParser.parse(buffer, reader.getFieldOffset(cols[s]), reader.getFieldLength(cols[s])) :
+                                    Double.NaN;
+                        }
+                        length++;
+                    }
+                }
+                mappingStart = mappingEnd;
+            }
+            if (length > 0) {
+                // Time stamps are shared by all series: trimming them guarantees that the processors will copy
+                // them before appending any new sample.
+                long[] sharedTimeStamps = Arrays.copyOf(timeStampColumn, length);
+                for (int s = 0; s < cols.length; s++) {
+                    series.get(seriesInfo.get(s)).setData(sharedTimeStamps, Arrays.copyOf(valueColumns[s], length), length);
+                }
+            }
+        }
+        return series;
+    }
+
+    /**
+     * Returns the index of the first entry whose time stamp is greater or equal to the provided one.
+     */
+    private int lowerBound(long timeStamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeStamps[mid] < timeStamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int readFirstField(FileChannel channel,
+                                      MappedByteBuffer mapping,
+                                      long mappingStart,
+                                      long recordStart,
+                                      long recordEnd,
+                                      char delimiter,
+                                      char[] field) throws IOException {
+        // Records might straddle two mappings: read those from the channel instead
+        ByteBuffer bytes;
+        int pos;
+        if (recordStart >= mappingStart) {
+            bytes = mapping;
+            pos = (int) (recordStart - mappingStart);
+        } else {
+            bytes = ByteBuffer.allocate((int) Math.min(recordEnd - recordStart, INDEX_SPACING));
+            channel.read(bytes, recordStart);
+            bytes.flip();
+            pos = 0;
+        }
+        int end = (int) Math.min(bytes.limit(), pos + (recordEnd - recordStart));
+        boolean quoted = pos < end && bytes.get(pos) == '"';
+        if (quoted) {
+            pos++;
+        }
+        int length = 0;
+        for (int i = pos; i < end; i++) {
+            byte b = bytes.get(i);
+            if (quoted ? b == '"' : (b == delimiter || b == '\r')) {
+                break;
+            }
+            if (length < field.length) {
+                field[length] = (char) (b & 0xFF);
+            }
+            length++;
+        }
+        return length;
+    }
+
+    private static Map<String, Integer> readHeader(FileChannel channel, Charset charset, char delimiter, long dataStart) throws IOException, DecodingDataFromAdapterException {
+        ByteBuffer bytes = ByteBuffer.allocate((int) Math.min(dataStart, Integer.MAX_VALUE - 8));
+        channel.read(bytes, 0);
+        bytes.flip();
+        try (CsvFieldReader reader = new CsvFieldReader(new InputStreamReader(new ByteBufferInputStream(bytes), charset), delimiter)) {
+            if (!reader.nextRecord()) {
+                throw new DecodingDataFromAdapterException("CSV stream does not contains column header");
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < reader.getFieldCount(); i++) {
+                columns.putIfAbsent(reader.getField(i), i);
+            }
+            return columns;
+        }
+    }
+
+    /**
+     * An {@link InputStream} over the remaining bytes of a {@link ByteBuffer}.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -22,6 +22,8 @@ import eu.binjr.core.data.adapters.HttpDataAdapter;
 import eu.binjr.core.data.adapters.SerializedDataAdapter;
 import eu.binjr.core.data.adapters.TimeSeriesBinding;
 import eu.binjr.core.data.codec.CsvDecoder;
+import eu.binjr.core.data.codec.DoubleParser;
+import eu.binjr.core.data.codec.FastTimeStampParser;
 import eu.binjr.core.data.exceptions.*;
 import eu.binjr.core.data.timeseries.DoubleTimeSeriesProcessor;
 import eu.binjr.core.dialogs.Dialogs;
@@ -54,7 +56,6 @@ import java.net.URL;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -217,14 +218,13 @@ public class JrdsDataAdapter extends HttpDataAdapter {
 
     @Override
     public CsvDecoder getDecoder() {
-        final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(getTimeZoneId());
-        return new CsvDecoder(getEncoding(), DELIMITER,
+        return new CsvDecoder(getEncoding(), DELIMITER, getTimeZoneId(),
                 DoubleTimeSeriesProcessor::new,
-                s -> {
-                    Double val = Double.parseDouble(s);
-                    return val.isNaN() ? 0 : val;
+                (chars, offset, length) -> {
+                    double val = DoubleParser.parse(chars, offset, length);
+                    return Double.isNaN(val) ? 0 : val;
                 },
-                s -> ZonedDateTime.parse(s, formatter));
+                FastTimeStampParser.of("yyyy-MM-dd HH:mm:ss", getTimeZoneId()));
     }
 
     @Override
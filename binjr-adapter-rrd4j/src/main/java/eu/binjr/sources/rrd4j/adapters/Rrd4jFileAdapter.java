@@ -25,7 +25,6 @@ import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
 import eu.binjr.core.data.workspace.ChartType;
 import eu.binjr.core.data.workspace.TimeSeriesInfo;
 import eu.binjr.core.data.workspace.UnitPrefixes;
-import javafx.scene.chart.XYChart;
 import javafx.scene.control.TreeItem;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -38,7 +37,6 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -147,14 +145,22 @@ public class Rrd4jFileAdapter extends BaseDataAdapter {
             request.setFilter(seriesInfo.stream().map(s -> s.getBinding().getLabel()).toArray(String[]::new));
             FetchData data = request.fetchData();
             Map<TimeSeriesInfo, TimeSeriesProcessor> series = new HashMap<>();
-            for (int i = 0; i < data.getRowCount(); i++) {
-                ZonedDateTime timeStamp = Instant.ofEpochSecond(data.getTimestamps()[i]).atZone(getTimeZoneId());
-                for (TimeSeriesInfo info : seriesInfo) {
-                    Double val = data.getValues(info.getBinding().getLabel())[i];
-                    XYChart.Data<ZonedDateTime, Double> point = new XYChart.Data<>(timeStamp, val.isNaN() ? 0 : val);
-                    TimeSeriesProcessor seriesProcessor = series.computeIfAbsent(info, k -> new DoubleTimeSeriesProcessor());
-                    seriesProcessor.addSample(point);
+            int rowCount = data.getRowCount();
+            long[] timeStamps = new long[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                timeStamps[i] = data.getTimestamps()[i] * 1000L;
+            }
+            for (TimeSeriesInfo info : seriesInfo) {
+                double[] rrdValues = data.getValues(info.getBinding().getLabel());
+                double[] values = new double[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    values[i] = Double.isNaN(rrdValues[i]) ? 0 : rrdValues[i];
                 }
+                TimeSeriesProcessor seriesProcessor = new DoubleTimeSeriesProcessor();
+                seriesProcessor.setZoneId(getTimeZoneId());
+                // The time stamp column is full, so it gets copied before any append and can be shared by all series
+                seriesProcessor.setData(timeStamps, values, rowCount);
+                series.put(info, seriesProcessor);
             }
             logger.trace(() -> String.format("Built %d series with %d samples each (%d total samples)", seriesInfo.size(), data.getRowCount(), seriesInfo.size() * data.getRowCount()));
             return series;
@@ -0,0 +1,153 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.common.javafx.charts;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.chart.XYChart;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Compares a layout pass of a {@link javafx.scene.chart.StackedAreaChart}, which accumulates the values of all series
+ * on each pass, with that of a stacked {@link CanvasXYChart}, which projects the cumulative values precomputed by
+ * {@link StackedSamples} onto the pixel columns of the plot area.
+ * <p>Both charts are laid out in a scene of the size of a full HD screen, with 30 series. The cost of computing the
+ * stack, which is done once per refresh on a background thread, is measured separately.</p>
+ * <p>This benchmark starts the JavaFX toolkit, and therefore requires a display.</p>
+ *
+ * @author Frederic Thevenet
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StackedSamplesBenchmark {
+    private static final int SERIES_COUNT = 30;
+    private static final int PLOT_WIDTH = 1920;
+    private static final int PLOT_HEIGHT = 1080;
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    @Param({"true", "false"})
+    private boolean aligned;
+
+    private List<CanvasXYChart.SampleSeries> series;
+    private ProfiledStackedAreaChart<ZonedDateTime, Double> stackedAreaChart;
+    private CanvasXYChart canvasChart;
+
+    @Setup
+    public void setup() throws Exception {
+        startToolkit();
+        Random random = new Random(42);
+        long start = Instant.now().toEpochMilli();
+        ZoneId zoneId = ZoneId.systemDefault();
+        series = new ArrayList<>(SERIES_COUNT);
+        List<XYChart.Series<ZonedDateTime, Double>> nodeSeries = new ArrayList<>(SERIES_COUNT);
+        for (int k = 0; k < SERIES_COUNT; k++) {
+            // Unaligned series are sampled at the same rate but with a different phase
+            long offset = aligned ? 0 : k * 31L;
+            long[] timeStamps = new long[size];
+            double[] values = new double[size];
+            List<XYChart.Data<ZonedDateTime, Double>> data = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                timeStamps[i] = start + offset + i * 1000L;
+                values[i] = Math.abs(Math.sin((i + k * 100) / 1000.0) * 100.0 + random.nextGaussian() * 10.0);
+                data.add(new XYChart.Data<>(ZonedDateTime.ofInstant(Instant.ofEpochMilli(timeStamps[i]), zoneId), values[i]));
+            }
+            series.add(new CanvasXYChart.SampleSeries(timeStamps, values, size));
+            XYChart.Series<ZonedDateTime, Double> s = new XYChart.Series<>();
+            s.getData().setAll(data);
+            nodeSeries.add(s);
+        }
+        StackedSamples stack = StackedSamples.of(series);
+        // Build the charts as the worksheet does
+        onFxThread(() -> {
+            stackedAreaChart = new ProfiledStackedAreaChart<>(makeTimeAxis(zoneId), makeValueAxis());
+            stackedAreaChart.setCreateSymbols(false);
+            stackedAreaChart.setAnimated(false);
+            stackedAreaChart.getData().setAll(nodeSeries);
+            layout(stackedAreaChart);
+            canvasChart = new CanvasXYChart(makeTimeAxis(zoneId), makeValueAxis());
+            canvasChart.setRenderMode(CanvasXYChart.RenderModes.STACKED);
+            canvasChart.setAnimated(false);
+            canvasChart.setStackedSamples(stack);
+            layout(canvasChart);
+        });
+    }
+
+    // The charts belong to scenes that are never shown, so they can be laid out from the benchmark's thread.
+
+    @Benchmark
+    public ProfiledStackedAreaChart<ZonedDateTime, Double> stackedAreaChartLayout() {
+        stackedAreaChart.layoutPlotChildren();
+        return stackedAreaChart;
+    }
+
+    @Benchmark
+    public CanvasXYChart canvasChartLayout() {
+        canvasChart.layoutPlotChildren();
+        return canvasChart;
+    }
+
+    @Benchmark
+    public StackedSamples stacking() {
+        return StackedSamples.of(series);
+    }
+
+    private static ZonedDateTimeAxis makeTimeAxis(ZoneId zoneId) {
+        ZonedDateTimeAxis axis = new ZonedDateTimeAxis(zoneId);
+        axis.setAnimated(false);
+        return axis;
+    }
+
+    private static StableTicksAxis makeValueAxis() {
+        StableTicksAxis axis = new MetricStableTicksAxis();
+        axis.setAnimated(false);
+        axis.setTickSpacing(30);
+        return axis;
+    }
+
+    private static void layout(XYChart<ZonedDateTime, Double> chart) {
+        new Scene(chart, PLOT_WIDTH, PLOT_HEIGHT);
+        chart.applyCss();
+        chart.layout();
+    }
+
+    private static void startToolkit() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Platform.startup(started::countDown);
+        } catch (IllegalStateException e) {
+            // Already started by a previous trial in the same JVM
+            started.countDown();
+        }
+        started.await();
+    }
+
+    private static void onFxThread(Runnable action) throws InterruptedException, ExecutionException {
+        FutureTask<Void> task = new FutureTask<>(action, null);
+        Platform.runLater(task);
+        task.get();
+    }
+}
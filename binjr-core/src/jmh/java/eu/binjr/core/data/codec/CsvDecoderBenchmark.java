@@ -0,0 +1,112 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package eu.binjr.core.data.codec;
+
+import eu.binjr.core.data.adapters.TimeSeriesBinding;
+import eu.binjr.core.data.timeseries.DoubleTimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
+import eu.binjr.core.data.workspace.ChartType;
+import eu.binjr.core.data.workspace.TimeSeriesInfo;
+import eu.binjr.core.data.workspace.UnitPrefixes;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the decoding of a JRDS-like CSV export by the former {@link CSVRecord} based implementation, with
+ * {@link CsvDecoder} reading fields from a {@link CsvFieldReader} into primitive columns.
+ *
+ * @author Frederic Thevenet
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvDecoderBenchmark {
+    private static final ZoneId ZONE_ID = ZoneId.of("Europe/Paris");
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZONE_ID);
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    @Param({"10"})
+    private int columns;
+
+    private byte[] csv;
+    private List<TimeSeriesInfo> seriesInfo;
+    private CsvDecoder decoder;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder("Date");
+        seriesInfo = new ArrayList<>();
+        for (int c = 0; c < columns; c++) {
+            String label = "series" + c;
+            sb.append(',').append(label);
+            seriesInfo.add(TimeSeriesInfo.fromBinding(new TimeSeriesBinding(
+                    label, "/" + label, null, label, UnitPrefixes.METRIC, ChartType.LINE, "-", "/" + label, null)));
+        }
+        sb.append('\n');
+        ZonedDateTime start = ZonedDateTime.of(2019, 1, 1, 0, 0, 0, 0, ZONE_ID);
+        for (int r = 0; r < rows; r++) {
+            sb.append(FORMATTER.format(start.plusSeconds(r * 60L)));
+            for (int c = 0; c < columns; c++) {
+                sb.append(',').append(String.format(Locale.ROOT, "%.4f", random.nextDouble() * 1000.0));
+            }
+            sb.append('\n');
+        }
+        csv = sb.toString().getBytes(StandardCharsets.UTF_8);
+        decoder = new CsvDecoder("utf-8", ',', ZONE_ID,
+                DoubleTimeSeriesProcessor::new,
+                DoubleParser::parse,
+                (chars, offset, length) -> ZonedDateTime.parse(CharBuffer.wrap(chars, offset, length), FORMATTER).toInstant().toEpochMilli());
+    }
+
+    @Benchmark
+    public Map<TimeSeriesInfo, TimeSeriesProcessor> legacyDecode() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))) {
+            CSVFormat csvFormat = CSVFormat.DEFAULT
+                    .withAllowMissingColumnNames(false)
+                    .withFirstRecordAsHeader()
+                    .withSkipHeaderRecord()
+                    .withDelimiter(',');
+            Map<TimeSeriesInfo, TimeSeriesProcessor> series = new HashMap<>();
+            for (CSVRecord csvRecord : csvFormat.parse(reader)) {
+                ZonedDateTime timeStamp = ZonedDateTime.parse(csvRecord.get(0), FORMATTER);
+                for (TimeSeriesInfo info : seriesInfo) {
+                    Double val = Double.parseDouble(csvRecord.get(info.getBinding().getLabel()));
+                    series.computeIfAbsent(info, k -> new DoubleTimeSeriesProcessor()).addSample(timeStamp, val);
+                }
+            }
+            return series;
+        }
+    }
+
+    @Benchmark
+    public Map<TimeSeriesInfo, TimeSeriesProcessor> streamingDecode() throws Exception {
+        return decoder.decode(new ByteArrayInputStream(csv), seriesInfo);
+    }
+}
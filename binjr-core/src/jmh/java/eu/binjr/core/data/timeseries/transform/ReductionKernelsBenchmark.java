@@ -0,0 +1,170 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package eu.binjr.core.data.timeseries.transform;
+
+import eu.binjr.common.concurrent.ReadWriteLockHelper;
+import eu.binjr.core.data.timeseries.DoubleTimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesSnapshot;
+import javafx.scene.chart.XYChart;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the sample-by-sample reduction algorithms, as they were implemented before samples were stored in primitive
+ * columns, with the index-based kernels from {@link ReductionKernels} operating on a snapshot of the processor's columns.
+ * <p>The former implementations run against {@link LegacyProcessor}, a copy of the list-based processor they used to
+ * access through {@link LegacyProcessor#getSample(int)}, so that the measured baseline is the code that was replaced.</p>
+ *
+ * @author Frederic Thevenet
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReductionKernelsBenchmark {
+    private static final int THRESHOLD = 3000;
+
+    @Param({"10000", "1000000", "10000000"})
+    private int size;
+
+    private TimeSeriesProcessor processor;
+    private LegacyProcessor legacyProcessor;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        processor = new DoubleTimeSeriesProcessor();
+        legacyProcessor = new LegacyProcessor();
+        long start = ZonedDateTime.now().toInstant().toEpochMilli();
+        ZoneId zoneId = ZoneId.systemDefault();
+        for (int i = 0; i < size; i++) {
+            long timeStamp = start + i * 1000L;
+            double value = Math.sin(i / 1000.0) * 100.0 + random.nextGaussian() * 10.0;
+            processor.addSample(timeStamp, value);
+            legacyProcessor.addSample(new XYChart.Data<>(ZonedDateTime.ofInstant(Instant.ofEpochMilli(timeStamp), zoneId), value));
+        }
+    }
+
+    @Benchmark
+    public List<XYChart.Data<ZonedDateTime, Double>> decimationLegacy() {
+        return legacyDecimate(legacyProcessor, THRESHOLD);
+    }
+
+    @Benchmark
+    public TimeSeriesSnapshot decimationKernel() {
+        TimeSeriesSnapshot snapshot = processor.snapshot();
+        return snapshot.select(ReductionKernels.decimate(snapshot.size(), THRESHOLD));
+    }
+
+    @Benchmark
+    public List<XYChart.Data<ZonedDateTime, Double>> lttbLegacy() {
+        return legacyLttb(legacyProcessor, THRESHOLD);
+    }
+
+    @Benchmark
+    public TimeSeriesSnapshot lttbKernel() {
+        TimeSeriesSnapshot snapshot = processor.snapshot();
+        return snapshot.select(ReductionKernels.largestTriangleThreeBuckets(
+                snapshot.getTimeStamps(),
+                snapshot.getValues(),
+                snapshot.size(),
+                THRESHOLD));
+    }
+
+    private static List<XYChart.Data<ZonedDateTime, Double>> legacyDecimate(LegacyProcessor data, int threshold) {
+        int dataLength = data.size();
+        List<XYChart.Data<ZonedDateTime, Double>> sampled = new ArrayList<>(threshold);
+        double every = (double) (dataLength - 2) / (threshold - 2);
+        sampled.add(data.getSample(0));
+        for (int i = 1; i < threshold - 1; i++) {
+            sampled.add(data.getSample(Math.min(dataLength - 1, (int) Math.round(i * every))));
+        }
+        sampled.add(data.getSample(dataLength - 1));
+        return sampled;
+    }
+
+    private static List<XYChart.Data<ZonedDateTime, Double>> legacyLttb(LegacyProcessor data, int threshold) {
+        int dataLength = data.size();
+        List<XYChart.Data<ZonedDateTime, Double>> sampled = new ArrayList<>(threshold);
+        double every = (double) (dataLength - 2) / (threshold - 2);
+        int a = 0;
+        int nextA = 0;
+        XYChart.Data<ZonedDateTime, Double> maxAreaPoint = data.getSample(a);
+        sampled.add(data.getSample(a));
+        for (int i = 0; i < threshold - 2; i++) {
+            double avgX = 0;
+            double avgY = 0;
+            int avgRangeStart = (int) (Math.floor((i + 1) * every) + 1);
+            int avgRangeEnd = (int) (Math.floor((i + 2) * every) + 1);
+            avgRangeEnd = avgRangeEnd < dataLength ? avgRangeEnd : dataLength;
+            int avgRangeLength = avgRangeEnd - avgRangeStart;
+            for (; avgRangeStart < avgRangeEnd; avgRangeStart++) {
+                avgX += data.getSample(avgRangeStart).getXValue().toEpochSecond();
+                avgY += data.getSample(avgRangeStart).getYValue();
+            }
+            avgX /= avgRangeLength;
+            avgY /= avgRangeLength;
+            int rangeOffs = (int) (Math.floor((i) * every) + 1);
+            int rangeTo = (int) (Math.floor((i + 1) * every) + 1);
+            double pointAx = data.getSample(a).getXValue().toEpochSecond();
+            double pointAy = data.getSample(a).getYValue();
+            double maxArea = -1;
+            for (; rangeOffs < rangeTo; rangeOffs++) {
+                double area = Math.abs((pointAx - avgX) * (data.getSample(rangeOffs).getYValue() - pointAy) -
+                        (pointAx - data.getSample(rangeOffs).getXValue().toEpochSecond()) * (avgY - pointAy)
+                ) * 0.5;
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxAreaPoint = data.getSample(rangeOffs);
+                    nextA = rangeOffs;
+                }
+            }
+            sampled.add(maxAreaPoint);
+            a = nextA;
+        }
+        sampled.add(data.getSample(dataLength - 1));
+        return sampled;
+    }
+
+    /**
+     * A copy of the storage and accessors of {@link TimeSeriesProcessor} prior to the introduction of primitive columns:
+     * samples are held as a list of {@link XYChart.Data} instances, and each access takes the read lock.
+     */
+    private static class LegacyProcessor {
+        private final ReadWriteLockHelper monitor = new ReadWriteLockHelper();
+        private List<XYChart.Data<ZonedDateTime, Double>> data = new ArrayList<>();
+
+        public XYChart.Data<ZonedDateTime, Double> getSample(int index) {
+            return monitor.read().lock(() -> this.data.get(index));
+        }
+
+        public int size() {
+            return monitor.read().lock(() -> this.data.size());
+        }
+
+        public void addSample(XYChart.Data<ZonedDateTime, Double> sample) {
+            monitor.write().lock(() -> this.data.add(sample));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.common.cache;
+
+/**
+ * An immutable snapshot of the statistics of a {@link WeightedCache}.
+ *
+ * @author Frederic Thevenet
+ */
+public final class CacheStatistics {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long evictedWeight;
+    private final long entryCount;
+    private final long weight;
+    private final long maxWeight;
+
+    CacheStatistics(long hitCount, long missCount, long evictionCount, long evictedWeight, long entryCount, long weight, long maxWeight) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.evictedWeight = evictedWeight;
+        this.entryCount = entryCount;
+        this.weight = weight;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the number of lookups that found an entry.
+     *
+     * @return the number of lookups that found an entry.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that found no entry.
+     *
+     * @return the number of lookups that found no entry.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the ratio of lookups that found an entry, or 0 if no lookup was made.
+     *
+     * @return the ratio of lookups that found an entry.
+     */
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0 : (double) hitCount / requests;
+    }
+
+    /**
+     * Returns the number of entries evicted to honor the cache's maximum weight.
+     *
+     * @return the number of entries evicted.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the combined weight of all evicted entries.
+     *
+     * @return the combined weight of all evicted entries.
+     */
+    public long getEvictedWeight() {
+        return evictedWeight;
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return the number of entries in the cache.
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Returns the combined weight of the entries in the cache.
+     *
+     * @return the combined weight of the entries in the cache.
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Returns the maximum combined weight of the entries in the cache.
+     *
+     * @return the maximum combined weight of the entries in the cache.
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Entries=%d, Size=%.1fMB/%.1fMB, Hits=%d, Misses=%d (hit rate=%.2f%%), Evictions=%d (%.1fMB)",
+                entryCount,
+                weight / 1024.0 / 1024.0,
+                maxWeight / 1024.0 / 1024.0,
+                hitCount,
+                missCount,
+                getHitRate() * 100,
+                evictionCount,
+                evictedWeight / 1024.0 / 1024.0);
+    }
+}
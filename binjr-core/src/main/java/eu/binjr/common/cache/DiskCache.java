@@ -0,0 +1,392 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.common.cache;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A persistent cache of binary payloads, stored in a directory on disk and bounded by its size on disk.
+ * <p>Payloads are appended to a data file and located through a fixed-size slot per entry in an index file, which is
+ * memory-mapped so that recording an access to an entry is a simple memory write. When the data file grows over the
+ * maximum size, the cache is compacted by rewriting the most recently used entries into a new generation of files,
+ * up to three quarters of the maximum size, so that the least recently used entries are evicted.</p>
+ * <p>The directory is locked while the cache is open, so that a single process uses it at any given time.</p>
+ * <p>All methods are thread-safe.</p>
+ *
+ * @author Frederic Thevenet
+ */
+public class DiskCache implements Closeable {
+    private static final Logger logger = LogManager.getLogger(DiskCache.class);
+    private static final int MAGIC = 0x424A4443;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 32;
+    private static final int INITIAL_SLOTS = 1024;
+    private static final String INDEX_PREFIX = "index.";
+    private static final String DATA_PREFIX = "data.";
+    private final Path location;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final Map<Long, Integer> slotsByHash = new HashMap<>();
+    private long maxSize;
+    private long generation;
+    private FileChannel dataChannel;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int slotCount;
+    private long dataSize;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long evictedSize;
+
+    /**
+     * Opens the cache stored in the specified directory, creating it if needed.
+     *
+     * @param location the directory where the cache is stored.
+     * @param maxSize  the maximum size of the cache on disk, in bytes.
+     * @throws IOException if the cache could not be opened, or if it is already in use by another process.
+     */
+    public DiskCache(Path location, long maxSize) throws IOException {
+        this.location = location;
+        this.maxSize = maxSize;
+        Files.createDirectories(location);
+        this.lockChannel = FileChannel.open(location.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock fileLock;
+        try {
+            fileLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            fileLock = null;
+        }
+        this.lock = fileLock;
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Disk cache at " + location + " is already in use by another process");
+        }
+        try {
+            open(findLatestGeneration());
+        } catch (IOException e) {
+            logger.warn("Disk cache at " + location + " is corrupted and will be reset: " + e.getMessage());
+            logger.debug(() -> "Error opening disk cache", e);
+            closeFiles();
+            open(generation + 1);
+        }
+        deleteStaleGenerations();
+    }
+
+    /**
+     * Returns the payload associated to the specified key, or null if there is none.
+     *
+     * @param key the key whose associated payload is to be returned.
+     * @return the payload associated to the specified key, or null if there is none.
+     * @throws IOException in the event of an I/O error.
+     */
+    public synchronized byte[] get(String key) throws IOException {
+        ensureOpen();
+        Integer slot = slotsByHash.get(hash(key));
+        if (slot != null) {
+            int position = slotPosition(slot);
+            long offset = index.getLong(position + 8);
+            int length = index.getInt(position + 16);
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            if (readInt(dataChannel, offset) == keyBytes.length) {
+                ByteBuffer record = ByteBuffer.allocate(keyBytes.length + length);
+                readFully(dataChannel, record, offset + Integer.BYTES);
+                // Keys are compared in full, in case of a collision of their hashes
+                if (Arrays.equals(Arrays.copyOf(record.array(), keyBytes.length), keyBytes)) {
+                    index.putLong(position + 24, System.currentTimeMillis());
+                    hitCount++;
+                    return Arrays.copyOfRange(record.array(), keyBytes.length, record.capacity());
+                }
+            }
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * Associates the specified payload to the specified key, replacing any payload previously associated to it.
+     *
+     * @param key     the key with which the payload is to be associated.
+     * @param payload the payload to associate to the key.
+     * @throws IOException in the event of an I/O error.
+     */
+    public synchronized void put(String key, byte[] payload) throws IOException {
+        ensureOpen();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long recordSize = Integer.BYTES + keyBytes.length + (long) payload.length;
+        if (recordSize > maxSize / 4) {
+            logger.debug(() -> "Payload for " + key + " is too large to be stored in the disk cache");
+            return;
+        }
+        if (dataSize + recordSize > maxSize) {
+            compact();
+        }
+        append(hash(key), keyBytes, payload, System.currentTimeMillis());
+    }
+
+    /**
+     * Removes all entries.
+     *
+     * @throws IOException in the event of an I/O error.
+     */
+    public synchronized void clear() throws IOException {
+        ensureOpen();
+        long previous = generation;
+        closeFiles();
+        open(previous + 1);
+        deleteStaleGenerations();
+    }
+
+    /**
+     * Sets the maximum size of the cache on disk, evicting entries if needed.
+     *
+     * @param maxSize the maximum size of the cache on disk, in bytes.
+     * @throws IOException in the event of an I/O error.
+     */
+    public synchronized void setMaxSize(long maxSize) throws IOException {
+        ensureOpen();
+        this.maxSize = maxSize;
+        if (dataSize > maxSize) {
+            compact();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the cache's statistics.
+     *
+     * @return a snapshot of the cache's statistics.
+     */
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(hitCount, missCount, evictionCount, evictedSize, slotsByHash.size(), dataSize, maxSize);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            closeFiles();
+        } finally {
+            if (lock.isValid()) {
+                lock.release();
+            }
+            lockChannel.close();
+        }
+    }
+
+    private void open(long generation) throws IOException {
+        this.generation = generation;
+        this.dataChannel = FileChannel.open(location.resolve(DATA_PREFIX + generation),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.indexChannel = FileChannel.open(location.resolve(INDEX_PREFIX + generation),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.dataSize = dataChannel.size();
+        this.slotsByHash.clear();
+        boolean created = indexChannel.size() < HEADER_SIZE;
+        int capacity = created ? INITIAL_SLOTS : (int) Math.max(INITIAL_SLOTS, (indexChannel.size() - HEADER_SIZE) / SLOT_SIZE);
+        mapIndex(capacity);
+        if (created) {
+            index.putInt(0, MAGIC);
+            index.putInt(4, VERSION);
+            index.putInt(8, 0);
+            slotCount = 0;
+            return;
+        }
+        if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+            throw new IOException("Invalid disk cache index header");
+        }
+        slotCount = Math.min(index.getInt(8), capacity);
+        for (int slot = 0; slot < slotCount; slot++) {
+            int position = slotPosition(slot);
+            long offset = index.getLong(position + 8);
+            int length = index.getInt(position + 16);
+            if (offset < 0 || length < 0 || offset + Integer.BYTES + length > dataSize) {
+                // Entries are indexed after their payload is written: an invalid one marks the end of valid data
+                slotCount = slot;
+                index.putInt(8, slotCount);
+                break;
+            }
+            if (index.getInt(position + 20) != 0) {
+                slotsByHash.put(index.getLong(position), slot);
+            }
+        }
+        logger.debug(() -> String.format("Opened disk cache at %s with %d entries (%d bytes)", location, slotsByHash.size(), dataSize));
+    }
+
+    private void append(long hash, byte[] keyBytes, byte[] payload, long lastAccess) throws IOException {
+        if (slotCount == (index.capacity() - HEADER_SIZE) / SLOT_SIZE) {
+            mapIndex(slotCount * 2);
+        }
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + keyBytes.length + payload.length);
+        record.putInt(keyBytes.length).put(keyBytes).put(payload).flip();
+        long offset = dataSize;
+        while (record.hasRemaining()) {
+            dataChannel.write(record, offset + record.position());
+        }
+        dataSize += record.limit();
+        Integer previous = slotsByHash.put(hash, slotCount);
+        if (previous != null) {
+            index.putInt(slotPosition(previous) + 20, 0);
+        }
+        int position = slotPosition(slotCount);
+        index.putLong(position, hash);
+        index.putLong(position + 8, offset);
+        index.putInt(position + 16, payload.length);
+        index.putInt(position + 20, 1);
+        index.putLong(position + 24, lastAccess);
+        index.putInt(8, ++slotCount);
+    }
+
+    private void compact() throws IOException {
+        List<Integer> slots = new ArrayList<>(slotsByHash.values());
+        slots.sort(Comparator.comparingLong((Integer slot) -> index.getLong(slotPosition(slot) + 24)).reversed());
+        FileChannel oldData = dataChannel;
+        FileChannel oldIndexChannel = indexChannel;
+        MappedByteBuffer oldIndex = index;
+        long oldDataSize = dataSize;
+        long budget = maxSize * 3 / 4;
+        long kept = 0;
+        int retained = 0;
+        open(generation + 1);
+        try {
+            for (int slot : slots) {
+                int position = slotPosition(slot);
+                long offset = oldIndex.getLong(position + 8);
+                int length = oldIndex.getInt(position + 16);
+                int keyLength = readInt(oldData, offset);
+                if (kept + Integer.BYTES + keyLength + length > budget) {
+                    break;
+                }
+                ByteBuffer content = ByteBuffer.allocate(keyLength + length);
+                readFully(oldData, content, offset + Integer.BYTES);
+                byte[] keyBytes = Arrays.copyOfRange(content.array(), 0, keyLength);
+                byte[] payload = Arrays.copyOfRange(content.array(), keyLength, keyLength + length);
+                append(oldIndex.getLong(position), keyBytes, payload, oldIndex.getLong(position + 24));
+                kept += Integer.BYTES + keyLength + length;
+                retained++;
+            }
+        } finally {
+            oldData.close();
+            oldIndexChannel.close();
+        }
+        evictionCount += slots.size() - retained;
+        evictedSize += oldDataSize - kept;
+        final int evicted = slots.size() - retained;
+        logger.debug(() -> String.format("Compacted disk cache at %s: evicted %d entries", location, evicted));
+        deleteStaleGenerations();
+    }
+
+    private void mapIndex(int capacity) throws IOException {
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+    }
+
+    private long findLatestGeneration() throws IOException {
+        long latest = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(location, INDEX_PREFIX + "*")) {
+            for (Path path : stream) {
+                try {
+                    long gen = Long.parseLong(path.getFileName().toString().substring(INDEX_PREFIX.length()));
+                    if (gen > latest && Files.exists(location.resolve(DATA_PREFIX + gen))) {
+                        latest = gen;
+                    }
+                } catch (NumberFormatException e) {
+                    logger.debug(() -> "Ignoring unexpected file in disk cache: " + path);
+                }
+            }
+        }
+        return latest;
+    }
+
+    private void deleteStaleGenerations() {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(location)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if ((name.startsWith(INDEX_PREFIX) || name.startsWith(DATA_PREFIX)) &&
+                        !name.equals(INDEX_PREFIX + generation) && !name.equals(DATA_PREFIX + generation)) {
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException e) {
+                        // Mapped files cannot be deleted on some platforms until unmapped: try again on next start
+                        logger.debug(() -> "Could not delete stale disk cache file " + path + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.debug(() -> "Error cleaning up disk cache at " + location, e);
+        }
+    }
+
+    private void closeFiles() throws IOException {
+        index = null;
+        try {
+            if (dataChannel != null) {
+                dataChannel.close();
+            }
+        } finally {
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (index == null) {
+            throw new IOException("Disk cache at " + location + " is closed");
+        }
+    }
+
+    private static int slotPosition(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static int readInt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+        readFully(channel, buffer, position);
+        return buffer.getInt(0);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of disk cache data file");
+            }
+        }
+    }
+
+    private static long hash(String key) {
+        // 64 bit FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
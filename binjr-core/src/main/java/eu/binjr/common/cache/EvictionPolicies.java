@@ -0,0 +1,72 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.common.cache;
+
+import java.util.Objects;
+
+/**
+ * An enumeration of the available cache eviction policies.
+ *
+ * @author Frederic Thevenet
+ */
+public enum EvictionPolicies {
+    LRU("Least Recently Used"),
+    W_TINY_LFU("Window TinyLFU");
+
+    private final String label;
+
+    EvictionPolicies(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Creates a new instance of the policy, for a cache with the specified maximum weight.
+     *
+     * @param maxWeight the maximum weight of the cache the policy applies to.
+     * @param <K>       type of keys
+     * @return a new instance of the policy.
+     */
+    public <K> EvictionPolicy<K> create(long maxWeight) {
+        switch (this) {
+            case W_TINY_LFU:
+                return new WTinyLfuEvictionPolicy<>(maxWeight);
+            case LRU:
+            default:
+                return new LruEvictionPolicy<>();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    /**
+     * Returns the enum entry corresponding to the provided string is it exists, otherwise returns the specified default.
+     *
+     * @param name         the string to try and get a corresponding an enum for.
+     * @param defaultValue the default to return is no entry matches the provided name.
+     * @return the enum entry corresponding to the provided string is it exists, otherwise returns the specified default.
+     */
+    public static EvictionPolicies valueOf(String name, EvictionPolicies defaultValue) {
+        Objects.requireNonNull(defaultValue, "Default value cannot be null.");
+        try {
+            return EvictionPolicies.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+}
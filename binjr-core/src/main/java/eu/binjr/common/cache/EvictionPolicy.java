@@ -0,0 +1,62 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.common.cache;
+
+/**
+ * Defines the strategy used by a {@link WeightedCache} to select which entry to evict when its capacity is exceeded.
+ * <p>Implementations are not required to be thread-safe: a {@link WeightedCache} only calls them while holding
+ * its own lock.</p>
+ *
+ * @param <K> type of keys
+ * @author Frederic Thevenet
+ */
+public interface EvictionPolicy<K> {
+
+    /**
+     * Records that a new entry was added to the cache.
+     *
+     * @param key    the key of the entry.
+     * @param weight the weight of the entry.
+     */
+    void recordInsertion(K key, long weight);
+
+    /**
+     * Records that an entry present in the cache was read, or that its value was replaced.
+     *
+     * @param key    the key of the entry.
+     * @param weight the current weight of the entry.
+     */
+    void recordAccess(K key, long weight);
+
+    /**
+     * Records that an entry was removed from the cache by other means than eviction.
+     *
+     * @param key the key of the entry.
+     */
+    void recordRemoval(K key);
+
+    /**
+     * Selects the next entry to evict and stops tracking it.
+     *
+     * @return the key of the entry to evict, or null if no entry is tracked.
+     */
+    K nextVictim();
+
+    /**
+     * Stops tracking all entries.
+     */
+    void clear();
+}
@@ -28,7 +28,9 @@ import java.util.Map;
  * @param <K> type of keys
  * @param <V> type of values
  * @author Frederic Thevenet
+ * @deprecated use {@link WeightedCache}, which keeps track of the combined size of its entries in constant time.
  */
+@Deprecated
 public class LRUMapSizeBound<K, V extends Cacheable> extends LinkedHashMap<K, V> {
     private long maxSize;
 
@@ -0,0 +1,59 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.common.cache;
+
+import java.util.LinkedHashMap;
+
+/**
+ * An {@link EvictionPolicy} that evicts the least recently used entry first.
+ *
+ * @param <K> type of keys
+ * @author Frederic Thevenet
+ */
+public class LruEvictionPolicy<K> implements EvictionPolicy<K> {
+    private final LinkedHashMap<K, Boolean> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Override
+    public void recordInsertion(K key, long weight) {
+        entries.put(key, Boolean.TRUE);
+    }
+
+    @Override
+    public void recordAccess(K key, long weight) {
+        entries.get(key);
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public K nextVictim() {
+        var iterator = entries.keySet().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        K victim = iterator.next();
+        iterator.remove();
+        return victim;
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+}
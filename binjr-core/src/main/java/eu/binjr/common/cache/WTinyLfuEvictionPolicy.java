@@ -0,0 +1,219 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.common.cache;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An {@link EvictionPolicy} implementing the Window TinyLFU scheme.
+ * <p>New entries are admitted into a small LRU window, which absorbs bursts of one-off accesses. Entries evicted
+ * from the window then compete for a place in the main area with its least recently used entry, based on an
+ * approximation of their respective access frequencies: the least frequently used of the two is evicted.
+ * The main area is itself split in a probation and a protected segment, so that entries need to be accessed again
+ * after their admission to be protected from eviction.</p>
+ * <p>Access frequencies are recorded by a count-min sketch of 4-bit counters, which are periodically halved so that
+ * the frequencies of entries that are no longer accessed decay over time.</p>
+ *
+ * @param <K> type of keys
+ * @author Frederic Thevenet
+ */
+public class WTinyLfuEvictionPolicy<K> implements EvictionPolicy<K> {
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+    private final LinkedHashMap<K, Long> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Long> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Long> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final ArrayDeque<K> candidates = new ArrayDeque<>();
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final long maxWeight;
+    private long windowWeight;
+    private long protectedWeight;
+
+    /**
+     * Initializes a new instance of the {@link WTinyLfuEvictionPolicy} class.
+     *
+     * @param maxWeight the maximum weight of the cache the policy applies to.
+     */
+    public WTinyLfuEvictionPolicy(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    public void recordInsertion(K key, long weight) {
+        sketch.increment(key.hashCode(), size());
+        window.put(key, weight);
+        windowWeight += weight;
+    }
+
+    @Override
+    public void recordAccess(K key, long weight) {
+        sketch.increment(key.hashCode(), size());
+        Long previous;
+        if ((previous = window.get(key)) != null) {
+            window.put(key, weight);
+            windowWeight += weight - previous;
+        } else if ((previous = protectedSegment.get(key)) != null) {
+            protectedSegment.put(key, weight);
+            protectedWeight += weight - previous;
+        } else if (probation.remove(key) != null) {
+            // A second access promotes an entry from probation to the protected segment
+            protectedSegment.put(key, weight);
+            protectedWeight += weight;
+            long maxProtectedWeight = (long) ((maxWeight - maxWindowWeight()) * PROTECTED_RATIO);
+            while (protectedWeight > maxProtectedWeight && protectedSegment.size() > 1) {
+                Iterator<Map.Entry<K, Long>> iterator = protectedSegment.entrySet().iterator();
+                Map.Entry<K, Long> demoted = iterator.next();
+                iterator.remove();
+                protectedWeight -= demoted.getValue();
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        Long weight;
+        if ((weight = window.remove(key)) != null) {
+            windowWeight -= weight;
+        } else if ((weight = protectedSegment.remove(key)) != null) {
+            protectedWeight -= weight;
+        } else {
+            probation.remove(key);
+        }
+    }
+
+    @Override
+    public K nextVictim() {
+        // Entries overflowing the window are admitted on probation, where they compete with its eldest entry
+        while (windowWeight > maxWindowWeight() && !window.isEmpty()) {
+            K key = eldest(window);
+            long weight = window.remove(key);
+            windowWeight -= weight;
+            probation.put(key, weight);
+            candidates.addLast(key);
+        }
+        K candidate = null;
+        while (candidate == null && !candidates.isEmpty()) {
+            K key = candidates.pollFirst();
+            if (probation.containsKey(key)) {
+                candidate = key;
+            }
+        }
+        K victim = eldest(probation);
+        if (candidate != null && victim != null && !candidate.equals(victim)) {
+            K evicted = sketch.frequency(candidate.hashCode()) > sketch.frequency(victim.hashCode()) ? victim : candidate;
+            probation.remove(evicted);
+            return evicted;
+        }
+        if (victim == null) {
+            victim = !protectedSegment.isEmpty() ? eldest(protectedSegment) : eldest(window);
+        }
+        if (victim != null) {
+            recordRemoval(victim);
+        }
+        return victim;
+    }
+
+    @Override
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        candidates.clear();
+        windowWeight = 0;
+        protectedWeight = 0;
+        sketch.clear();
+    }
+
+    private long maxWindowWeight() {
+        return Math.max(1, (long) (maxWeight * WINDOW_RATIO));
+    }
+
+    private int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    private static <K> K eldest(LinkedHashMap<K, Long> segment) {
+        Iterator<K> iterator = segment.keySet().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters, with 4 hash functions.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {0x97cb3127L, 0xab4de3b1L, 0xc3a5c85cL, 0x9ae16a3bL};
+        private static final int MIN_TABLE_SIZE = 64;
+        private long[] table = new long[MIN_TABLE_SIZE];
+        private int additions;
+
+        private void increment(int hashCode, int nbEntries) {
+            ensureCapacity(nbEntries);
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hashCode, i);
+                int shift = counterShift(hashCode, i);
+                if (((table[index] >>> shift) & 0xfL) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            // Halve all counters once enough additions were recorded, so that frequencies decay over time
+            if (added && ++additions >= table.length * 10) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+                }
+                additions = 0;
+            }
+        }
+
+        private int frequency(int hashCode) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                frequency = Math.min(frequency, (int) ((table[indexOf(hashCode, i)] >>> counterShift(hashCode, i)) & 0xfL));
+            }
+            return frequency;
+        }
+
+        private void clear() {
+            table = new long[MIN_TABLE_SIZE];
+            additions = 0;
+        }
+
+        private void ensureCapacity(int nbEntries) {
+            if (nbEntries > table.length && table.length < (1 << 30)) {
+                // Resizing loses the recorded frequencies, which are soon rebuilt by new accesses
+                table = new long[Integer.highestOneBit(nbEntries - 1) << 1];
+                additions = 0;
+            }
+        }
+
+        private int indexOf(int hashCode, int i) {
+            long hash = (hashCode + SEEDS[i]) * SEEDS[i];
+            hash += hash >>> 32;
+            return (int) hash & (table.length - 1);
+        }
+
+        private int counterShift(int hashCode, int i) {
+            // Each long holds 16 counters: pick one from the hash's spread bits, distinct for each function
+            int spread = hashCode * 0x9E3779B9;
+            return ((((spread >>> (i << 3)) & 3) << 2) + i) << 2;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.common.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread-safe cache bounded by the combined weight of its entries, as measured by a user supplied function,
+ * which evicts entries according to a pluggable {@link EvictionPolicy}.
+ * <p>The weight of an entry is computed once, when it is inserted or explicitly refreshed with
+ * {@link #updateWeight(Object)}, so that keeping track of the cache's combined weight is a constant time
+ * operation.</p>
+ * <p>The cache also keeps track of hits, misses and evictions, which can be retrieved with
+ * {@link #getStatistics()}.</p>
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ * @author Frederic Thevenet
+ */
+public class WeightedCache<K, V> {
+    private final Map<K, WeightedValue<V>> entries = new HashMap<>();
+    private final ToLongFunction<? super V> weigher;
+    private EvictionPolicies evictionPolicy;
+    private EvictionPolicy<K> policy;
+    private long maxWeight;
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long evictedWeight;
+
+    /**
+     * Initializes a new instance of the {@link WeightedCache} class.
+     *
+     * @param maxWeight      the maximum combined weight of the entries in the cache.
+     * @param evictionPolicy the policy used to select entries to evict.
+     * @param weigher        the function used to compute the weight of an entry.
+     */
+    public WeightedCache(long maxWeight, EvictionPolicies evictionPolicy, ToLongFunction<? super V> weigher) {
+        this.maxWeight = maxWeight;
+        this.evictionPolicy = Objects.requireNonNull(evictionPolicy);
+        this.policy = evictionPolicy.create(maxWeight);
+        this.weigher = Objects.requireNonNull(weigher);
+    }
+
+    /**
+     * Returns the value associated to the specified key, or null if there is none.
+     *
+     * @param key the key whose associated value is to be returned.
+     * @return the value associated to the specified key, or null if there is none.
+     */
+    public synchronized V get(K key) {
+        WeightedValue<V> entry = entries.get(key);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        policy.recordAccess(key, entry.weight);
+        return entry.value;
+    }
+
+    /**
+     * Returns the value associated to the specified key, computing and inserting it in the cache if there is none.
+     *
+     * @param key             the key whose associated value is to be returned.
+     * @param mappingFunction the function used to compute a value if none is associated to the key.
+     * @return the value associated to the specified key.
+     */
+    public synchronized V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value == null) {
+            value = mappingFunction.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Associates the specified value to the specified key, evicting other entries if needed.
+     *
+     * @param key   the key with which the value is to be associated.
+     * @param value the value to associate to the key.
+     */
+    public synchronized void put(K key, V value) {
+        long valueWeight = weigher.applyAsLong(value);
+        WeightedValue<V> previous = entries.put(key, new WeightedValue<>(value, valueWeight));
+        if (previous != null) {
+            weight -= previous.weight;
+            policy.recordAccess(key, valueWeight);
+        } else {
+            policy.recordInsertion(key, valueWeight);
+        }
+        weight += valueWeight;
+        evict();
+    }
+
+    /**
+     * Computes the weight of the value associated to the specified key anew, to account for changes in its content.
+     *
+     * @param key the key whose associated value's weight is to be updated.
+     */
+    public synchronized void updateWeight(K key) {
+        WeightedValue<V> entry = entries.get(key);
+        if (entry != null) {
+            long valueWeight = weigher.applyAsLong(entry.value);
+            weight += valueWeight - entry.weight;
+            entry.weight = valueWeight;
+            policy.recordAccess(key, valueWeight);
+            evict();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the values in the cache, without recording any access to them.
+     *
+     * @return a snapshot of the values in the cache.
+     */
+    public synchronized List<V> values() {
+        List<V> values = new ArrayList<>(entries.size());
+        for (WeightedValue<V> entry : entries.values()) {
+            values.add(entry.value);
+        }
+        return values;
+    }
+
+    /**
+     * Removes the entry for the specified key, if any.
+     *
+     * @param key the key of the entry to remove.
+     * @return the value that was associated to the key, or null if there was none.
+     */
+    public synchronized V remove(K key) {
+        WeightedValue<V> entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        weight -= entry.weight;
+        policy.recordRemoval(key);
+        return entry.value;
+    }
+
+    /**
+     * Removes all entries whose key matches the provided predicate.
+     *
+     * @param filter the predicate to test keys against.
+     */
+    public synchronized void removeIf(Predicate<? super K> filter) {
+        for (Iterator<Map.Entry<K, WeightedValue<V>>> iterator = entries.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<K, WeightedValue<V>> entry = iterator.next();
+            if (filter.test(entry.getKey())) {
+                iterator.remove();
+                weight -= entry.getValue().weight;
+                policy.recordRemoval(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        policy.clear();
+        weight = 0;
+    }
+
+    /**
+     * Returns the maximum combined weight of the entries in the cache.
+     *
+     * @return the maximum combined weight of the entries in the cache.
+     */
+    public synchronized long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Sets the maximum combined weight of the entries in the cache, evicting entries if needed.
+     *
+     * @param maxWeight the maximum combined weight of the entries in the cache.
+     */
+    public synchronized void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+        resetPolicy();
+    }
+
+    /**
+     * Returns the policy used to select entries to evict.
+     *
+     * @return the policy used to select entries to evict.
+     */
+    public synchronized EvictionPolicies getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    /**
+     * Sets the policy used to select entries to evict.
+     * <p><b>Remark:</b> the history of accesses recorded by the previous policy is lost.</p>
+     *
+     * @param evictionPolicy the policy used to select entries to evict.
+     */
+    public synchronized void setEvictionPolicy(EvictionPolicies evictionPolicy) {
+        this.evictionPolicy = Objects.requireNonNull(evictionPolicy);
+        resetPolicy();
+    }
+
+    /**
+     * Returns a snapshot of the cache's statistics.
+     *
+     * @return a snapshot of the cache's statistics.
+     */
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(hitCount, missCount, evictionCount, evictedWeight, entries.size(), weight, maxWeight);
+    }
+
+    private void resetPolicy() {
+        policy = evictionPolicy.create(maxWeight);
+        for (Map.Entry<K, WeightedValue<V>> entry : entries.entrySet()) {
+            policy.recordInsertion(entry.getKey(), entry.getValue().weight);
+        }
+        evict();
+    }
+
+    private void evict() {
+        while (weight > maxWeight) {
+            K victim = policy.nextVictim();
+            if (victim == null) {
+                break;
+            }
+            WeightedValue<V> entry = entries.remove(victim);
+            if (entry != null) {
+                weight -= entry.weight;
+                evictionCount++;
+                evictedWeight += entry.weight;
+            }
+        }
+    }
+
+    private static final class WeightedValue<V> {
+        private final V value;
+        private long weight;
+
+        private WeightedValue(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
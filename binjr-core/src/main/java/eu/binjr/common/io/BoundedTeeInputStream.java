@@ -0,0 +1,107 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.common.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} that keeps a copy of the bytes read from the underlying stream, as long as their number
+ * does not exceed a given limit.
+ * <p>Once the limit is exceeded, the copy is discarded and bytes are simply passed through.</p>
+ * <p>The copy is only deemed complete once the end of the underlying stream has been reached.</p>
+ *
+ * @author Frederic Thevenet
+ */
+public class BoundedTeeInputStream extends FilterInputStream {
+    private final long limit;
+    private ByteArrayOutputStream copy;
+    private boolean endOfStream = false;
+
+    /**
+     * Initializes a new instance of the {@link BoundedTeeInputStream} class.
+     *
+     * @param in    the underlying input stream.
+     * @param limit the maximum number of bytes to copy.
+     */
+    public BoundedTeeInputStream(InputStream in, long limit) {
+        super(in);
+        this.limit = limit;
+        this.copy = new ByteArrayOutputStream();
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b < 0) {
+            endOfStream = true;
+        } else if (copy != null) {
+            copy.write(b);
+            checkLimit();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n < 0) {
+            endOfStream = true;
+        } else if (n > 0 && copy != null) {
+            copy.write(b, off, n);
+            checkLimit();
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes cannot be copied
+        copy = null;
+        return super.skip(n);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Returns true if the whole content of the underlying stream was copied, false otherwise.
+     *
+     * @return true if the whole content of the underlying stream was copied, false otherwise.
+     */
+    public boolean isCopyComplete() {
+        return endOfStream && copy != null;
+    }
+
+    /**
+     * Returns the copy of the whole content of the underlying stream, or null if it is not complete.
+     *
+     * @return the copy of the whole content of the underlying stream, or null if it is not complete.
+     */
+    public byte[] getCopy() {
+        return isCopyComplete() ? copy.toByteArray() : null;
+    }
+
+    private void checkLimit() {
+        if (copy.size() > limit) {
+            copy = null;
+        }
+    }
+}
@@ -0,0 +1,729 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.common.javafx.charts;
+
+import eu.binjr.common.logging.Profiler;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.chart.Axis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.paint.Color;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An {@link XYChart} that rasterizes its series directly onto a {@link Canvas} from primitive arrays of samples,
+ * instead of materializing an {@link javafx.scene.chart.XYChart.Data} instance and scene graph nodes for each point.
+ * <p>
+ * The amount of work required to draw a series is bounded by the width of the plot area rather than by its number
+ * of samples: line and area series keep the first, minimum, maximum and last samples falling in each pixel column,
+ * stacked series are averaged per column and scatter series draw a single mark per pixel.
+ * </p>
+ * <p>The chart still relies on the regular {@link ZonedDateTimeAxis} and value axis and leaves the
+ * {@link #getData()} list empty; series must be provided via {@link #getSamples()}.</p>
+ * <p>Stacked series are never accumulated on the FX application thread: provide them precomputed via
+ * {@link #setStackedSamples(StackedSamples)}; otherwise they are stacked in the background and drawn once ready.</p>
+ *
+ * @author Frederic Thevenet
+ */
+public class CanvasXYChart extends XYChart<ZonedDateTime, Double> {
+    private static final Logger logger = LogManager.getLogger(CanvasXYChart.class);
+    private final Canvas canvas = new Canvas();
+    private final ObservableList<SampleSeries> samples = FXCollections.observableArrayList();
+    private final ObjectProperty<RenderModes> renderMode = new SimpleObjectProperty<>(RenderModes.LINE);
+    private final DoubleProperty strokeWidth = new SimpleDoubleProperty(1.0);
+    private final DoubleProperty graphOpacity = new SimpleDoubleProperty(0.8);
+    private final BooleanProperty showAreaOutline = new SimpleBooleanProperty(true);
+    private final InvalidationListener redrawListener = observable -> draw();
+    private StackedSamples stack;
+
+    /**
+     * Defines how the series of a {@link CanvasXYChart} are rendered.
+     */
+    public enum RenderModes {
+        LINE,
+        AREA,
+        STACKED,
+        SCATTER
+    }
+
+    /**
+     * A series of samples to be rendered onto a {@link CanvasXYChart}, backed by primitive arrays.
+     */
+    public static class SampleSeries {
+        private final long[] timeStamps;
+        private final double[] values;
+        private final int size;
+        private final ObjectProperty<Color> color = new SimpleObjectProperty<>(Color.BLACK);
+
+        /**
+         * Initializes a new instance of the {@link SampleSeries} class.
+         *
+         * @param timeStamps the time stamps of the samples, in milliseconds since the epoch, sorted in ascending order.
+         * @param values     the values of the samples.
+         * @param size       the number of samples held in the arrays.
+         */
+        public SampleSeries(long[] timeStamps, double[] values, int size) {
+            if (size > timeStamps.length || size > values.length) {
+                throw new IllegalArgumentException("Size " + size + " exceeds the length of the provided arrays");
+            }
+            this.timeStamps = timeStamps;
+            this.values = values;
+            this.size = size;
+        }
+
+        /**
+         * Returns the time stamps of the samples, in milliseconds since the epoch.
+         * <p><b>Remark:</b> the returned array is not a copy and may be longer than {@link #size()}.</p>
+         *
+         * @return the time stamps of the samples.
+         */
+        public long[] getTimeStamps() {
+            return timeStamps;
+        }
+
+        /**
+         * Returns the values of the samples.
+         * <p><b>Remark:</b> the returned array is not a copy and may be longer than {@link #size()}.</p>
+         *
+         * @return the values of the samples.
+         */
+        public double[] getValues() {
+            return values;
+        }
+
+        /**
+         * Returns the number of samples in the series.
+         *
+         * @return the number of samples in the series.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns the color used to render the series.
+         *
+         * @return the color used to render the series.
+         */
+        public Color getColor() {
+            return color.getValue();
+        }
+
+        /**
+         * The color used to render the series.
+         *
+         * @return the color used to render the series.
+         */
+        public ObjectProperty<Color> colorProperty() {
+            return color;
+        }
+
+        /**
+         * Sets the color used to render the series.
+         *
+         * @param color the color used to render the series.
+         */
+        public void setColor(Color color) {
+            this.color.setValue(color);
+        }
+    }
+
+    /**
+     * Initializes a new instance of the {@link CanvasXYChart} class
+     *
+     * @param xAxis the x axis of the chart
+     * @param yAxis the y axis of the chart
+     */
+    public CanvasXYChart(ZonedDateTimeAxis xAxis, Axis<Double> yAxis) {
+        super(xAxis, yAxis);
+        setData(FXCollections.observableArrayList());
+        canvas.setManaged(false);
+        canvas.setMouseTransparent(true);
+        getPlotChildren().add(canvas);
+        samples.addListener((ListChangeListener<SampleSeries>) c -> {
+            while (c.next()) {
+                c.getRemoved().forEach(s -> s.colorProperty().removeListener(redrawListener));
+                c.getAddedSubList().forEach(s -> s.colorProperty().addListener(redrawListener));
+            }
+            if (stack != null && !stack.isStackOf(samples)) {
+                stack = null;
+            }
+            restackIfNeeded();
+            updateAxisRange();
+            requestChartLayout();
+            draw();
+        });
+        renderMode.addListener(observable -> {
+            restackIfNeeded();
+            updateAxisRange();
+            requestChartLayout();
+            draw();
+        });
+        strokeWidth.addListener(redrawListener);
+        graphOpacity.addListener(redrawListener);
+        showAreaOutline.addListener(redrawListener);
+    }
+
+    /**
+     * Returns the list of series rendered by the chart.
+     *
+     * @return the list of series rendered by the chart.
+     */
+    public ObservableList<SampleSeries> getSamples() {
+        return samples;
+    }
+
+    /**
+     * Replaces the series rendered by the chart with those of the provided stack, reusing its cumulative values
+     * instead of computing them on the FX application thread.
+     *
+     * @param stackedSamples the precomputed stack of series to render.
+     */
+    public void setStackedSamples(StackedSamples stackedSamples) {
+        this.stack = stackedSamples;
+        samples.setAll(stackedSamples.getSeries());
+    }
+
+    /**
+     * Returns the mode used to render the series.
+     *
+     * @return the mode used to render the series.
+     */
+    public RenderModes getRenderMode() {
+        return renderMode.getValue();
+    }
+
+    /**
+     * The mode used to render the series.
+     *
+     * @return the mode used to render the series.
+     */
+    public ObjectProperty<RenderModes> renderModeProperty() {
+        return renderMode;
+    }
+
+    /**
+     * Sets the mode used to render the series.
+     *
+     * @param renderMode the mode used to render the series.
+     */
+    public void setRenderMode(RenderModes renderMode) {
+        this.renderMode.setValue(renderMode);
+    }
+
+    /**
+     * Returns the width of the strokes, or the radius of the marks in scatter mode.
+     *
+     * @return the width of the strokes, or the radius of the marks in scatter mode.
+     */
+    public double getStrokeWidth() {
+        return strokeWidth.get();
+    }
+
+    /**
+     * The width of the strokes, or the radius of the marks in scatter mode.
+     *
+     * @return the width of the strokes, or the radius of the marks in scatter mode.
+     */
+    public DoubleProperty strokeWidthProperty() {
+        return strokeWidth;
+    }
+
+    /**
+     * Sets the width of the strokes, or the radius of the marks in scatter mode.
+     *
+     * @param strokeWidth the width of the strokes, or the radius of the marks in scatter mode.
+     */
+    public void setStrokeWidth(double strokeWidth) {
+        this.strokeWidth.set(strokeWidth);
+    }
+
+    /**
+     * Returns the opacity of the filled areas.
+     *
+     * @return the opacity of the filled areas.
+     */
+    public double getGraphOpacity() {
+        return graphOpacity.get();
+    }
+
+    /**
+     * The opacity of the filled areas.
+     *
+     * @return the opacity of the filled areas.
+     */
+    public DoubleProperty graphOpacityProperty() {
+        return graphOpacity;
+    }
+
+    /**
+     * Sets the opacity of the filled areas.
+     *
+     * @param graphOpacity the opacity of the filled areas.
+     */
+    public void setGraphOpacity(double graphOpacity) {
+        this.graphOpacity.set(graphOpacity);
+    }
+
+    /**
+     * Returns true if the outline of filled areas is drawn, false otherwise.
+     *
+     * @return true if the outline of filled areas is drawn, false otherwise.
+     */
+    public boolean isShowAreaOutline() {
+        return showAreaOutline.get();
+    }
+
+    /**
+     * The property that determines if the outline of filled areas is drawn.
+     *
+     * @return the property that determines if the outline of filled areas is drawn.
+     */
+    public BooleanProperty showAreaOutlineProperty() {
+        return showAreaOutline;
+    }
+
+    /**
+     * Sets to true if the outline of filled areas should be drawn, false otherwise.
+     *
+     * @param showAreaOutline true if the outline of filled areas should be drawn, false otherwise.
+     */
+    public void setShowAreaOutline(boolean showAreaOutline) {
+        this.showAreaOutline.set(showAreaOutline);
+    }
+
+    @Override
+    protected void dataItemAdded(Series<ZonedDateTime, Double> series, int itemIndex, Data<ZonedDateTime, Double> item) {
+        // Samples are rendered from primitive arrays; the data list is not used
+    }
+
+    @Override
+    protected void dataItemRemoved(Data<ZonedDateTime, Double> item, Series<ZonedDateTime, Double> series) {
+        // Samples are rendered from primitive arrays; the data list is not used
+    }
+
+    @Override
+    protected void dataItemChanged(Data<ZonedDateTime, Double> item) {
+        // Samples are rendered from primitive arrays; the data list is not used
+    }
+
+    @Override
+    protected void seriesAdded(Series<ZonedDateTime, Double> series, int seriesIndex) {
+        // Samples are rendered from primitive arrays; the data list is not used
+    }
+
+    @Override
+    protected void seriesRemoved(Series<ZonedDateTime, Double> series) {
+        // Samples are rendered from primitive arrays; the data list is not used
+    }
+
+    @Override
+    protected void updateAxisRange() {
+        final Axis<ZonedDateTime> xa = getXAxis();
+        final Axis<Double> ya = getYAxis();
+        long minX = Long.MAX_VALUE;
+        long maxX = Long.MIN_VALUE;
+        for (SampleSeries s : samples) {
+            if (s.size > 0) {
+                minX = Math.min(minX, s.timeStamps[0]);
+                maxX = Math.max(maxX, s.timeStamps[s.size - 1]);
+            }
+        }
+        if (minX > maxX) {
+            // Nothing to plot: leave the axes alone.
+            return;
+        }
+        if (xa.isAutoRanging()) {
+            List<ZonedDateTime> xData = new ArrayList<>(2);
+            xData.add(ZonedDateTime.ofInstant(Instant.ofEpochMilli(minX), getTimeAxis().getZoneId()));
+            xData.add(ZonedDateTime.ofInstant(Instant.ofEpochMilli(maxX), getTimeAxis().getZoneId()));
+            xa.invalidateRange(xData);
+        }
+        if (ya.isAutoRanging()) {
+            double minY = Double.POSITIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            if (getRenderMode() == RenderModes.STACKED) {
+                if (stack != null) {
+                    minY = stack.getMinValue();
+                    maxY = stack.getMaxValue();
+                }
+            } else {
+                for (SampleSeries s : samples) {
+                    for (int i = 0; i < s.size; i++) {
+                        double v = s.values[i];
+                        if (!Double.isNaN(v)) {
+                            minY = Math.min(minY, v);
+                            maxY = Math.max(maxY, v);
+                        }
+                    }
+                }
+            }
+            if (minY <= maxY) {
+                List<Double> yData = new ArrayList<>(2);
+                yData.add(minY);
+                yData.add(maxY);
+                ya.invalidateRange(yData);
+            }
+        }
+    }
+
+    @Override
+    protected void layoutPlotChildren() {
+        double width = getXAxis().getWidth();
+        double height = getYAxis().getHeight();
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+        }
+        draw();
+    }
+
+    private ZonedDateTimeAxis getTimeAxis() {
+        return (ZonedDateTimeAxis) getXAxis();
+    }
+
+    private void draw() {
+        final double width = canvas.getWidth();
+        final double height = canvas.getHeight();
+        final GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, width, height);
+        ZonedDateTime lower = getTimeAxis().getLowerBound();
+        ZonedDateTime upper = getTimeAxis().getUpperBound();
+        if (width < 1 || height < 1 || lower == null || upper == null || samples.isEmpty()) {
+            return;
+        }
+        try (Profiler ignored = Profiler.start("Rendering canvas chart " + this.getTitle(), logger::trace)) {
+            final Mapping m = new Mapping(
+                    lower.toInstant().toEpochMilli(),
+                    upper.toInstant().toEpochMilli(),
+                    width,
+                    getYAxis().getDisplayPosition(0.0),
+                    getYAxis().getDisplayPosition(1.0));
+            if (m.msToPx <= 0 || Double.isInfinite(m.msToPx)) {
+                return;
+            }
+            gc.setLineWidth(getStrokeWidth());
+            switch (getRenderMode()) {
+                case STACKED:
+                    drawStacked(gc, m, width, height);
+                    break;
+                case SCATTER:
+                    for (SampleSeries s : samples) {
+                        drawScatter(gc, s, m, width, height);
+                    }
+                    break;
+                case AREA:
+                    for (SampleSeries s : samples) {
+                        drawLine(gc, s, m, width, height, true);
+                    }
+                    break;
+                case LINE:
+                default:
+                    for (SampleSeries s : samples) {
+                        drawLine(gc, s, m, width, height, false);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void drawLine(GraphicsContext gc, SampleSeries s, Mapping m, double width, double height, boolean fill) {
+        int from = Math.max(0, lowerIndex(s.timeStamps, s.size, m.fromMs) - 1);
+        int to = Math.min(s.size - 1, upperIndex(s.timeStamps, s.size, m.toMs));
+        if (from > to) {
+            return;
+        }
+        // Reduce the visible samples to at most four points per pixel column: first, min, max and last.
+        ColumnReducer reducer = new ColumnReducer(Math.min(to - from + 1, (int) width * 4 + 8));
+        for (int i = from; i <= to; i++) {
+            double v = s.values[i];
+            if (!Double.isNaN(v)) {
+                reducer.add(m.x(s.timeStamps[i]), m.y(v));
+            }
+        }
+        reducer.flush();
+        if (reducer.count == 0) {
+            return;
+        }
+        double[] xs = reducer.xs;
+        double[] ys = reducer.ys;
+        int n = reducer.count;
+        if (fill) {
+            double baseline = Math.max(0, Math.min(height, m.y(0)));
+            gc.setFill(s.getColor().deriveColor(0.0, 1.0, 1.0, getGraphOpacity()));
+            gc.beginPath();
+            gc.moveTo(xs[0], baseline);
+            for (int i = 0; i < n; i++) {
+                gc.lineTo(xs[i], ys[i]);
+            }
+            gc.lineTo(xs[n - 1], baseline);
+            gc.closePath();
+            gc.fill();
+            if (!isShowAreaOutline()) {
+                return;
+            }
+        }
+        gc.setStroke(s.getColor());
+        gc.strokePolyline(xs, ys, n);
+    }
+
+    private void drawStacked(GraphicsContext gc, Mapping m, double width, double height) {
+        StackedSamples stacked = stack;
+        if (stacked == null) {
+            // Still being computed in the background
+            return;
+        }
+        int columns = (int) Math.ceil(width);
+        double[] xs = new double[columns * 2];
+        double[] ys = new double[columns * 2];
+        for (int c = 0; c < columns; c++) {
+            xs[c] = c + 0.5;
+            xs[columns * 2 - 1 - c] = c + 0.5;
+        }
+        double[] base = new double[columns];
+        for (int k = 0; k < stacked.getSeries().size(); k++) {
+            SampleSeries s = stacked.getSeries().get(k);
+            double[] top = stacked.project(k, m.fromMs, m.toMs, columns);
+            for (int c = 0; c < columns; c++) {
+                ys[c] = m.y(top[c]);
+                ys[columns * 2 - 1 - c] = m.y(base[c]);
+            }
+            gc.setFill(s.getColor().deriveColor(0.0, 1.0, 1.0, getGraphOpacity()));
+            gc.fillPolygon(xs, ys, columns * 2);
+            if (isShowAreaOutline()) {
+                gc.setStroke(s.getColor());
+                gc.strokePolyline(xs, ys, columns);
+            }
+            base = top;
+        }
+    }
+
+    private void restackIfNeeded() {
+        if (getRenderMode() != RenderModes.STACKED || stack != null || samples.isEmpty()) {
+            return;
+        }
+        List<SampleSeries> toStack = List.copyOf(samples);
+        String title = getTitle();
+        CompletableFuture.supplyAsync(() -> {
+            try (Profiler ignored = Profiler.start("Stacking series for chart " + title, logger::trace)) {
+                return StackedSamples.of(toStack);
+            }
+        }).thenAcceptAsync(stacked -> {
+            // Discard the result if the series have changed in the meantime
+            if (stack == null && stacked.isStackOf(samples)) {
+                stack = stacked;
+                updateAxisRange();
+                requestChartLayout();
+                draw();
+            }
+        }, Platform::runLater).exceptionally(t -> {
+            logger.error("Error stacking series for chart " + title, t);
+            return null;
+        });
+    }
+
+    private void drawScatter(GraphicsContext gc, SampleSeries s, Mapping m, double width, double height) {
+        int from = lowerIndex(s.timeStamps, s.size, m.fromMs);
+        int to = Math.min(s.size - 1, upperIndex(s.timeStamps, s.size, m.toMs));
+        if (from > to) {
+            return;
+        }
+        int columns = (int) Math.ceil(width) + 1;
+        int rows = (int) Math.ceil(height) + 1;
+        double r = getStrokeWidth();
+        BitSet drawn = new BitSet(columns * rows);
+        gc.setFill(s.getColor());
+        for (int i = from; i <= to; i++) {
+            double v = s.values[i];
+            if (Double.isNaN(v)) {
+                continue;
+            }
+            double x = m.x(s.timeStamps[i]);
+            double y = m.y(v);
+            int px = (int) x;
+            int py = (int) y;
+            if (px < 0 || px >= columns || py < 0 || py >= rows) {
+                continue;
+            }
+            int pixel = py * columns + px;
+            if (!drawn.get(pixel)) {
+                drawn.set(pixel);
+                gc.fillOval(x - r, y - r, r * 2, r * 2);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the first sample whose time stamp is greater than or equal to the provided one.
+     */
+    static int lowerIndex(long[] timeStamps, int size, long timeStamp) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timeStamps[mid] < timeStamp) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the index of the first sample whose time stamp is strictly greater than the provided one.
+     */
+    static int upperIndex(long[] timeStamps, int size, long timeStamp) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timeStamps[mid] <= timeStamp) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Maps time stamps and values to positions on the canvas, assuming linear axes.
+     */
+    private static final class Mapping {
+        private final long fromMs;
+        private final long toMs;
+        private final double msToPx;
+        private final double yZero;
+        private final double yScale;
+
+        private Mapping(long fromMs, long toMs, double width, double yZero, double yOne) {
+            this.fromMs = fromMs;
+            this.toMs = toMs;
+            this.msToPx = width / (toMs - fromMs);
+            this.yZero = yZero;
+            this.yScale = yOne - yZero;
+        }
+
+        private double x(long timeStamp) {
+            return (timeStamp - fromMs) * msToPx;
+        }
+
+        private double y(double value) {
+            return yZero + value * yScale;
+        }
+    }
+
+    /**
+     * Reduces a sequence of points sorted along the x axis to the first, minimum, maximum and last points
+     * of each pixel column, in order of occurrence.
+     */
+    private static final class ColumnReducer {
+        private double[] xs;
+        private double[] ys;
+        private int count = 0;
+        private boolean open = false;
+        private long column;
+        private double firstX, firstY, minX, minY, maxX, maxY, lastX, lastY;
+        private int points;
+
+        private ColumnReducer(int capacity) {
+            this.xs = new double[Math.max(4, capacity)];
+            this.ys = new double[Math.max(4, capacity)];
+        }
+
+        private void add(double x, double y) {
+            long c = (long) Math.floor(x);
+            if (!open || c != column) {
+                flush();
+                open = true;
+                column = c;
+                firstX = minX = maxX = lastX = x;
+                firstY = minY = maxY = lastY = y;
+                points = 1;
+                return;
+            }
+            if (y < minY) {
+                minX = x;
+                minY = y;
+            }
+            if (y > maxY) {
+                maxX = x;
+                maxY = y;
+            }
+            lastX = x;
+            lastY = y;
+            points++;
+        }
+
+        private void flush() {
+            if (!open) {
+                return;
+            }
+            open = false;
+            append(firstX, firstY);
+            if (points == 1) {
+                return;
+            }
+            if (minX <= maxX) {
+                appendInner(minX, minY);
+                appendInner(maxX, maxY);
+            } else {
+                appendInner(maxX, maxY);
+                appendInner(minX, minY);
+            }
+            append(lastX, lastY);
+        }
+
+        private void appendInner(double x, double y) {
+            // Skip extrema that coincide with the first or last point of the column
+            if ((x == firstX && y == firstY) || (x == lastX && y == lastY)) {
+                return;
+            }
+            append(x, y);
+        }
+
+        private void append(double x, double y) {
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                ys = Arrays.copyOf(ys, count * 2);
+            }
+            xs[count] = x;
+            ys[count] = y;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.common.javafx.charts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds the cumulative values of a set of stacked series, computed once whenever the series change so that
+ * rendering them only requires projecting precomputed arrays onto pixel columns.
+ * <p>
+ * All series are linearly interpolated over the union of their time stamps; a series contributes nothing to the stack
+ * outside of the time span it covers. Computing an instance takes O(series &times; time stamps) operations and
+ * can safely be done away from the FX application thread.
+ * </p>
+ * <p>
+ * Cumulative values are also kept as prefix sums, so that the mean of the values falling in any given pixel column
+ * can be obtained in constant time once the column's bounds are located, and projecting a series onto the plot area
+ * takes O(columns &times; log(time stamps)) operations, regardless of the number of samples. Individual values are
+ * read from their own array rather than derived from the prefix sums, which would lose precision for large sums.
+ * </p>
+ *
+ * @author Frederic Thevenet
+ */
+public final class StackedSamples {
+    private final List<CanvasXYChart.SampleSeries> series;
+    private final long[] timeStamps;
+    private final double[][] cumulativeValues;
+    private final double[][] prefixSums;
+    private final double minValue;
+    private final double maxValue;
+
+    private StackedSamples(List<CanvasXYChart.SampleSeries> series,
+                           long[] timeStamps,
+                           double[][] cumulativeValues,
+                           double[][] prefixSums,
+                           double minValue,
+                           double maxValue) {
+        this.series = series;
+        this.timeStamps = timeStamps;
+        this.cumulativeValues = cumulativeValues;
+        this.prefixSums = prefixSums;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+    }
+
+    /**
+     * Computes the cumulative values for the provided series, stacked in the order of the list.
+     *
+     * @param series the series to stack.
+     * @return the cumulative values for the provided series.
+     */
+    public static StackedSamples of(List<CanvasXYChart.SampleSeries> series) {
+        List<CanvasXYChart.SampleSeries> stacked = Collections.unmodifiableList(new ArrayList<>(series));
+        long[] grid = mergeTimeStamps(stacked);
+        double[][] cumulativeValues = new double[stacked.size()][];
+        double[][] prefixSums = new double[stacked.size()][];
+        double min = 0;
+        double max = 0;
+        double[] previous = new double[grid.length];
+        for (int k = 0; k < stacked.size(); k++) {
+            double[] current = new double[grid.length];
+            interpolate(stacked.get(k), grid, current);
+            double[] prefix = new double[grid.length + 1];
+            for (int g = 0; g < grid.length; g++) {
+                current[g] += previous[g];
+                min = Math.min(min, current[g]);
+                max = Math.max(max, current[g]);
+                prefix[g + 1] = prefix[g] + current[g];
+            }
+            cumulativeValues[k] = current;
+            prefixSums[k] = prefix;
+            previous = current;
+        }
+        return new StackedSamples(stacked, grid, cumulativeValues, prefixSums, min, max);
+    }
+
+    /**
+     * Returns the stacked series, in stacking order.
+     *
+     * @return the stacked series, in stacking order.
+     */
+    public List<CanvasXYChart.SampleSeries> getSeries() {
+        return series;
+    }
+
+    /**
+     * Returns the number of time stamps over which series are stacked.
+     *
+     * @return the number of time stamps over which series are stacked.
+     */
+    public int size() {
+        return timeStamps.length;
+    }
+
+    /**
+     * Returns the union of the time stamps of all series, in milliseconds since the epoch.
+     * <p><b>Remark:</b> the returned array is not a copy and must not be modified.</p>
+     *
+     * @return the union of the time stamps of all series.
+     */
+    public long[] getTimeStamps() {
+        return timeStamps;
+    }
+
+    /**
+     * Returns the top of the stack at the level of the series at the specified index, for the specified time stamp.
+     *
+     * @param seriesIndex the index of the series in the stack.
+     * @param index       the index of the time stamp.
+     * @return the top of the stack at the level of the specified series.
+     */
+    public double getCumulativeValue(int seriesIndex, int index) {
+        return cumulativeValues[seriesIndex][index];
+    }
+
+    /**
+     * Returns the lowest value across the stack, or zero if all values are positive.
+     *
+     * @return the lowest value across the stack.
+     */
+    public double getMinValue() {
+        return minValue;
+    }
+
+    /**
+     * Returns the highest value across the stack, or zero if all values are negative.
+     *
+     * @return the highest value across the stack.
+     */
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Projects the top of the stack at the level of the specified series onto pixel columns, by averaging the
+     * cumulative values falling into each of {@code columns} equal intervals between {@code fromMs} and {@code toMs}
+     * and linearly interpolating columns that contain no value between two that do.
+     *
+     * @param seriesIndex the index of the series in the stack.
+     * @param fromMs      the time stamp at the left edge of the first column.
+     * @param toMs        the time stamp at the right edge of the last column.
+     * @param columns     the number of columns.
+     * @return the top of the stack for each column.
+     */
+    public double[] project(int seriesIndex, long fromMs, long toMs, int columns) {
+        final double[] prefix = prefixSums[seriesIndex];
+        final int size = timeStamps.length;
+        final double span = Math.max(1, toMs - fromMs);
+        double[] means = new double[columns];
+        int lo = CanvasXYChart.lowerIndex(timeStamps, size, fromMs);
+        // The values just outside of the range only serve as interpolation anchors for the edge columns
+        double prevX = lo > 0 ? (timeStamps[lo - 1] - fromMs) / span * columns : Double.NaN;
+        double prevV = lo > 0 ? getCumulativeValue(seriesIndex, lo - 1) : 0;
+        int gapStart = 0;
+        for (int c = 0; c <= columns; c++) {
+            double x;
+            double v;
+            if (c < columns) {
+                int hi = CanvasXYChart.lowerIndex(timeStamps, size, (long) Math.ceil(fromMs + (c + 1) * span / columns));
+                if (hi == lo) {
+                    continue;
+                }
+                v = (prefix[hi] - prefix[lo]) / (hi - lo);
+                x = c;
+                means[c] = v;
+                lo = hi;
+            } else if (lo < size) {
+                x = (timeStamps[lo] - fromMs) / span * columns;
+                v = getCumulativeValue(seriesIndex, lo);
+            } else {
+                x = Double.NaN;
+                v = 0;
+            }
+            for (int g = gapStart; g < c; g++) {
+                means[g] = Double.isNaN(prevX) || Double.isNaN(x) ? 0 : prevV + (v - prevV) * (g - prevX) / (x - prevX);
+            }
+            prevX = x;
+            prevV = v;
+            gapStart = c + 1;
+        }
+        return means;
+    }
+
+    /**
+     * Returns true if this instance was computed from the same series as those in the provided list.
+     *
+     * @param other a list of series.
+     * @return true if this instance was computed from the same series as those in the provided list.
+     */
+    boolean isStackOf(List<CanvasXYChart.SampleSeries> other) {
+        if (other.size() != series.size()) {
+            return false;
+        }
+        for (int i = 0; i < series.size(); i++) {
+            if (other.get(i) != series.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] mergeTimeStamps(List<CanvasXYChart.SampleSeries> series) {
+        int total = 0;
+        for (CanvasXYChart.SampleSeries s : series) {
+            total += s.size();
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (CanvasXYChart.SampleSeries s : series) {
+            System.arraycopy(s.getTimeStamps(), 0, all, pos, s.size());
+            pos += s.size();
+        }
+        Arrays.sort(all);
+        int distinct = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (distinct == 0 || all[i] != all[distinct - 1]) {
+                all[distinct++] = all[i];
+            }
+        }
+        return distinct == all.length ? all : Arrays.copyOf(all, distinct);
+    }
+
+    private static void interpolate(CanvasXYChart.SampleSeries s, long[] grid, double[] result) {
+        long[] ts = s.getTimeStamps();
+        double[] values = s.getValues();
+        int size = s.size();
+        if (size == 0) {
+            return;
+        }
+        int j = 0;
+        for (int g = 0; g < grid.length; g++) {
+            long t = grid[g];
+            if (t < ts[0] || t > ts[size - 1]) {
+                continue;
+            }
+            while (j < size - 1 && ts[j + 1] <= t) {
+                j++;
+            }
+            double v = valueAt(values, j);
+            if (ts[j] == t || j == size - 1) {
+                result[g] = v;
+            } else {
+                double next = valueAt(values, j + 1);
+                result[g] = v + (next - v) * (t - ts[j]) / (double) (ts[j + 1] - ts[j]);
+            }
+        }
+    }
+
+    private static double valueAt(double[] values, int index) {
+        double v = values[index];
+        return Double.isNaN(v) ? 0 : v;
+    }
+}
@@ -17,6 +17,7 @@
 package eu.binjr.common.javafx.charts;
 
 import eu.binjr.common.javafx.bindings.BindingManager;
+import javafx.animation.AnimationTimer;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.Property;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -47,6 +48,8 @@ import static org.gillius.jfxutils.JFXUtil.getYShift;
 
 /**
  * Draws a crosshair on top of an {@link XYChart} and handles selection of a portion of the chart view.
+ * <p>Mouse events only record the latest position of the pointer; markers, labels and selection are updated at
+ * most once per pulse, so that the cost of an update does not depend on the rate at which mouse events arrive.</p>
  *
  * @author Frederic Thevenet
  */
@@ -75,6 +78,19 @@ public class XYChartCrosshair<X, Y> {
     private final BooleanProperty isMouseOverChart = new SimpleBooleanProperty(false);
     private final BindingManager bindingManager = new BindingManager();
     private final BooleanProperty displayFullHeightMarker = new SimpleBooleanProperty(false);
+    private boolean updatePending = false;
+    private boolean primaryButtonDown = false;
+    private final AnimationTimer pulseTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (!updatePending) {
+                // Nothing happened since the last pulse: stop until the next mouse event.
+                stop();
+                return;
+            }
+            applyPendingUpdate();
+        }
+    };
 
 
     /**
@@ -99,6 +115,8 @@ public class XYChartCrosshair<X, Y> {
         masterChart.addEventHandler(MouseEvent.MOUSE_MOVED, bindingManager.registerHandler(this::handleMouseMoved));
         masterChart.addEventHandler(MouseEvent.MOUSE_DRAGGED, bindingManager.registerHandler(this::handleMouseMoved));
         masterChart.setOnMouseReleased(bindingManager.registerHandler(e -> {
+            // Make sure the selection reflects the latest position of the pointer
+            applyPendingUpdate();
             if (isSelecting.get()) {
                 fireSelectionDoneEvent();
                 drawVerticalMarker();
@@ -242,6 +260,7 @@ public class XYChartCrosshair<X, Y> {
     public void dispose() {
         logger.debug(() -> "Disposing XYChartCrossHair " + toString());
         selectionDoneEvent = null;
+        pulseTimer.stop();
         bindingManager.close();
     }
 
@@ -318,17 +337,26 @@ public class XYChartCrosshair<X, Y> {
         double xPos = event.getX() + getXShift(masterChart, parent);
         double yPos = event.getY() + getYShift(masterChart, parent);
         mousePosition = new Point2D(Math.max(area.getMinX(), Math.min(area.getMaxX(), xPos)), Math.max(area.getMinY(), Math.min(area.getMaxY(), yPos)));
+        primaryButtonDown = event.isPrimaryButtonDown();
+        updatePending = true;
+        pulseTimer.start();
+    }
+
+    private void applyPendingUpdate() {
+        if (!updatePending) {
+            return;
+        }
+        updatePending = false;
         if (horizontalMarkerVisible.get()) {
             drawHorizontalMarker();
         }
         if (verticalMarkerVisible.get()) {
             drawVerticalMarker();
         }
-        if (event.isPrimaryButtonDown() && (verticalMarkerVisible.get() || horizontalMarkerVisible.get())) {
+        if (primaryButtonDown && (verticalMarkerVisible.get() || horizontalMarkerVisible.get())) {
             isSelecting.set(true);
             drawSelection();
         }
-
     }
 
     private void drawSelection() {
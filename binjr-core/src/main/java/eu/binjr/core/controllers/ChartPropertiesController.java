@@ -19,6 +19,7 @@ package eu.binjr.core.controllers;
 import eu.binjr.common.javafx.bindings.BindingManager;
 import eu.binjr.core.data.workspace.Chart;
 import eu.binjr.core.data.workspace.ChartType;
+import eu.binjr.core.data.workspace.DownSamplingMethod;
 import eu.binjr.core.data.workspace.Worksheet;
 import javafx.beans.binding.Bindings;
 import javafx.beans.value.ChangeListener;
@@ -71,6 +72,8 @@ public class ChartPropertiesController implements Initializable, Closeable {
     @FXML
     private ChoiceBox<ChartType> chartTypeChoice;
     @FXML
+    private ChoiceBox<DownSamplingMethod> downSamplingMethodChoice;
+    @FXML
     private TextField yMinRange;
     @FXML
     private TextField yMaxRange;
@@ -136,6 +139,9 @@ public class ChartPropertiesController implements Initializable, Closeable {
         chartTypeChoice.getItems().setAll(ChartType.values());
         chartTypeChoice.getSelectionModel().select(chart.getChartType());
         bindingManager.bind(chart.chartTypeProperty(), chartTypeChoice.getSelectionModel().selectedItemProperty());
+        downSamplingMethodChoice.getItems().setAll(DownSamplingMethod.values());
+        downSamplingMethodChoice.getSelectionModel().select(chart.getDownSamplingMethod());
+        bindingManager.bind(chart.downSamplingMethodProperty(), downSamplingMethodChoice.getSelectionModel().selectedItemProperty());
         var strokeWithEditable = Bindings.createBooleanBinding(() ->
                         (chart.chartTypeProperty().getValue() == ChartType.LINE ||
                                 chart.chartTypeProperty().getValue() == ChartType.SCATTER ||
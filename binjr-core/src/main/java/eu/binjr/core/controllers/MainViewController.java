@@ -24,6 +24,7 @@ import eu.binjr.core.data.adapters.DataAdapterFactory;
 import eu.binjr.core.data.adapters.DataAdapterInfo;
 import eu.binjr.core.data.adapters.TimeSeriesBinding;
 import eu.binjr.core.data.async.AsyncTaskManager;
+import eu.binjr.core.data.async.TaskPriorities;
 import eu.binjr.core.data.exceptions.CannotInitializeDataAdapterException;
 import eu.binjr.core.data.exceptions.DataAdapterException;
 import eu.binjr.core.data.exceptions.NoAdapterFoundException;
@@ -762,6 +763,8 @@ public class MainViewController implements Initializable {
             TitledPane newSourcePane = newSourcePane(newSource);
             sourceMaskerPane.setVisible(true);
             AsyncTaskManager.getInstance().submit(() -> buildTreeViewForTarget(da),
+                    TaskPriorities.NORMAL,
+                    da.getId(),
                     event -> {
                         sourceMaskerPane.setVisible(false);
                         Optional<TreeView<TimeSeriesBinding>> treeView =
@@ -862,6 +865,13 @@ public class MainViewController implements Initializable {
                 current.getBindingManager().bindBidirectional(current.selectedRangeProperty(), linkedTimeRange);
             }
             current.getBindingManager().bindBidirectional(newTab.nameProperty(), worksheet.nameProperty());
+            // Catch up on refreshes that were dropped while the worksheet was in the background
+            current.getBindingManager().attachListener(newTab.selectedProperty(),
+                    (ChangeListener<Boolean>) (observable, oldValue, newValue) -> {
+                        if (newValue) {
+                            current.refreshExpiredCharts();
+                        }
+                    });
             if (setToEditMode) {
                 logger.trace("Toggle edit mode for worksheet");
                 current.setShowPropertiesPane(true);
@@ -20,6 +20,10 @@ import eu.binjr.common.diagnostic.DiagnosticCommand;
 import eu.binjr.common.diagnostic.DiagnosticException;
 import eu.binjr.common.function.CheckedLambdas;
 import eu.binjr.core.Binjr;
+import eu.binjr.core.data.adapters.HttpDataAdapter;
+import eu.binjr.core.data.adapters.SimpleCachingDataAdapter;
+import eu.binjr.core.data.async.AsyncTaskManager;
+import eu.binjr.core.data.async.ExecutorStatistics;
 import eu.binjr.core.dialogs.Dialogs;
 import eu.binjr.core.preferences.AppEnvironment;
 import eu.binjr.core.preferences.GlobalPreferences;
@@ -168,6 +172,23 @@ public class OutputConsoleController implements Initializable {
         Binjr.runtimeDebuggingFeatures.debug(this::getJvmHeapStats);
     }
 
+    public void handleDebugDumpAdapterCacheStats(ActionEvent actionEvent) {
+        Binjr.runtimeDebuggingFeatures.debug(() -> String.format("Adapter cache: %s, Compression ratio=%.2f\nDisk cache: %s",
+                SimpleCachingDataAdapter.getCacheStatistics(),
+                SimpleCachingDataAdapter.getCacheCompressionRatio(),
+                HttpDataAdapter.getDiskCacheStatistics()
+                        .map(Object::toString)
+                        .orElse(GlobalPreferences.getInstance().isDiskCacheEnabled() ? "not opened yet" : "disabled")));
+    }
+
+    public void handleDebugDumpAsyncExecutorStats(ActionEvent actionEvent) {
+        Binjr.runtimeDebuggingFeatures.debug(() -> String.format("Async executors (%s mode):\n%s",
+                GlobalPreferences.getInstance().getAsyncExecutorMode(),
+                AsyncTaskManager.getInstance().getStatistics().stream()
+                        .map(ExecutorStatistics::toString)
+                        .collect(Collectors.joining("\n"))));
+    }
+
     public void handleDebugDumpThreadsStacks(ActionEvent actionEvent) {
         try {
             Binjr.runtimeDebuggingFeatures.debug(DiagnosticCommand.dumpThreadStacks());
@@ -24,7 +24,12 @@ import eu.binjr.common.logging.Profiler;
 import eu.binjr.core.data.adapters.DataAdapter;
 import eu.binjr.core.data.adapters.TimeSeriesBinding;
 import eu.binjr.core.data.async.AsyncTaskManager;
+import eu.binjr.core.data.async.CoalescingResolver;
+import eu.binjr.core.data.async.RefreshScheduler;
+import eu.binjr.core.data.async.TaskPriorities;
 import eu.binjr.core.data.exceptions.NoAdapterFoundException;
+import eu.binjr.core.data.timeseries.TimeSeriesSnapshot;
+import eu.binjr.core.data.timeseries.TimeSeriesStatistics;
 import eu.binjr.core.data.workspace.Chart;
 import eu.binjr.core.data.workspace.*;
 import eu.binjr.core.dialogs.Dialogs;
@@ -74,6 +79,7 @@ import javax.imageio.ImageIO;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -81,6 +87,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 
 import static javafx.scene.layout.Region.USE_COMPUTED_SIZE;
@@ -106,6 +113,8 @@ public class WorksheetController implements Initializable, AutoCloseable {
     private Worksheet worksheet;
     private volatile boolean preventReload = false;
     private AtomicBoolean closed = new AtomicBoolean(false);
+    private final RefreshScheduler<ChartViewPort> refreshScheduler = new RefreshScheduler<>();
+    private final Set<ChartViewPort> expiredRefreshes = new HashSet<>();
     @FXML
     private AnchorPane chartParent;
     @FXML
@@ -254,6 +263,28 @@ public class WorksheetController implements Initializable, AutoCloseable {
         return axis;
     }
 
+    private CanvasXYChart buildCanvasChart(Chart currentChart, ZonedDateTimeAxis xAxis, StableTicksAxis yAxis) {
+        CanvasXYChart canvasChart = new CanvasXYChart(xAxis, yAxis);
+        switch (currentChart.getChartType()) {
+            case AREA:
+                canvasChart.setRenderMode(CanvasXYChart.RenderModes.AREA);
+                break;
+            case STACKED:
+                canvasChart.setRenderMode(CanvasXYChart.RenderModes.STACKED);
+                break;
+            case SCATTER:
+                canvasChart.setRenderMode(CanvasXYChart.RenderModes.SCATTER);
+                break;
+            case LINE:
+            default:
+                canvasChart.setRenderMode(CanvasXYChart.RenderModes.LINE);
+        }
+        bindingManager.bind(canvasChart.strokeWidthProperty(), currentChart.strokeWidthProperty());
+        bindingManager.bind(canvasChart.graphOpacityProperty(), currentChart.graphOpacityProperty());
+        bindingManager.bind(canvasChart.showAreaOutlineProperty(), currentChart.showAreaOutlineProperty());
+        return canvasChart;
+    }
+
     private void initChartViewPorts() throws IOException {
         ZonedDateTimeAxis defaultXAxis = buildTimeAxis();
         for (Chart currentChart : getWorksheet().getCharts()) {
@@ -283,22 +314,26 @@ public class WorksheetController implements Initializable, AutoCloseable {
                             currentChart.nameProperty(),
                             currentChart.unitProperty()));
             XYChart<ZonedDateTime, Double> viewPort;
-            switch (currentChart.getChartType()) {
-                case AREA:
-                    viewPort = new AreaChart<>(xAxis, yAxis);
-                    ((AreaChart) viewPort).setCreateSymbols(false);
-                    break;
-                case STACKED:
-                    viewPort = new StackedAreaChart<>(xAxis, yAxis);
-                    ((StackedAreaChart) viewPort).setCreateSymbols(false);
-                    break;
-                case SCATTER:
-                    viewPort = new ScatterChart<>(xAxis, yAxis);
-                    break;
-                case LINE:
-                default:
-                    viewPort = new LineChart<>(xAxis, yAxis);
-                    ((LineChart) viewPort).setCreateSymbols(false);
+            if (globalPrefs.isCanvasChartRenderingEnabled()) {
+                viewPort = buildCanvasChart(currentChart, xAxis, yAxis);
+            } else {
+                switch (currentChart.getChartType()) {
+                    case AREA:
+                        viewPort = new AreaChart<>(xAxis, yAxis);
+                        ((AreaChart) viewPort).setCreateSymbols(false);
+                        break;
+                    case STACKED:
+                        viewPort = new StackedAreaChart<>(xAxis, yAxis);
+                        ((StackedAreaChart) viewPort).setCreateSymbols(false);
+                        break;
+                    case SCATTER:
+                        viewPort = new ScatterChart<>(xAxis, yAxis);
+                        break;
+                    case LINE:
+                    default:
+                        viewPort = new LineChart<>(xAxis, yAxis);
+                        ((LineChart) viewPort).setCreateSymbols(false);
+                }
             }
             viewPort.setCache(true);
             viewPort.setCacheHint(CacheHint.SPEED);
@@ -307,7 +342,10 @@ public class WorksheetController implements Initializable, AutoCloseable {
             viewPort.setLegendVisible(false);
             viewPort.setAnimated(false);
 
-            viewPorts.add(new ChartViewPort(currentChart, viewPort, buildChartPropertiesController(currentChart)));
+            ChartViewPort newViewPort = new ChartViewPort(currentChart, viewPort, buildChartPropertiesController(currentChart));
+            viewPorts.add(newViewPort);
+            bindingManager.attachListener(currentChart.downSamplingMethodProperty(),
+                    (ChangeListener<DownSamplingMethod>) (observable, oldValue, newValue) -> invalidate(newViewPort, false, false));
 
 
             viewPort.getYAxis().addEventFilter(MouseEvent.MOUSE_CLICKED, bindingManager.registerHandler(event -> {
@@ -620,6 +658,21 @@ public class WorksheetController implements Initializable, AutoCloseable {
             avgColumn.setPrefWidth(75);
             avgColumn.setCellFactory(alignRightCellFactory);
 
+            TableColumn<TimeSeriesInfo, String> stdDevColumn = new TableColumn<>("Std. dev.");
+            stdDevColumn.setSortable(false);
+            stdDevColumn.setPrefWidth(75);
+            stdDevColumn.setCellFactory(alignRightCellFactory);
+
+            TableColumn<TimeSeriesInfo, String> medianColumn = new TableColumn<>("Median");
+            medianColumn.setSortable(false);
+            medianColumn.setPrefWidth(75);
+            medianColumn.setCellFactory(alignRightCellFactory);
+
+            TableColumn<TimeSeriesInfo, String> p95Column = new TableColumn<>("95th pct.");
+            p95Column.setSortable(false);
+            p95Column.setPrefWidth(75);
+            p95Column.setCellFactory(alignRightCellFactory);
+
             TableColumn<TimeSeriesInfo, String> currentColumn = new TableColumn<>("Current");
             currentColumn.setSortable(false);
             currentColumn.setPrefWidth(75);
@@ -638,28 +691,28 @@ public class WorksheetController implements Initializable, AutoCloseable {
             pathColumn.setCellValueFactory(p -> new SimpleStringProperty(p.getValue().getBinding().getTreeHierarchy()));
             colorColumn.setCellFactory(param -> new ColorTableCell<>(colorColumn));
             colorColumn.setCellValueFactory(p -> p.getValue().displayColorProperty());
-            avgColumn.setCellValueFactory(p -> Bindings.createStringBinding(
-                    () -> p.getValue().getProcessor() == null ? "NaN" : currentViewPort.getPrefixFormatter().format(p.getValue().getProcessor().getAverageValue()),
-                    p.getValue().processorProperty()));
-
-            minColumn.setCellValueFactory(p -> Bindings.createStringBinding(
-                    () -> p.getValue().getProcessor() == null ? "NaN" : currentViewPort.getPrefixFormatter().format(p.getValue().getProcessor().getMinValue()),
-                    p.getValue().processorProperty()));
-
-            maxColumn.setCellValueFactory(p -> Bindings.createStringBinding(
-                    () -> p.getValue().getProcessor() == null ? "NaN" : currentViewPort.getPrefixFormatter().format(p.getValue().getProcessor().getMaxValue()),
-                    p.getValue().processorProperty()));
-
+            avgColumn.setCellValueFactory(p -> bindStatistic(currentViewPort, p.getValue(), TimeSeriesStatistics::getAverage));
+            minColumn.setCellValueFactory(p -> bindStatistic(currentViewPort, p.getValue(), TimeSeriesStatistics::getMin));
+            maxColumn.setCellValueFactory(p -> bindStatistic(currentViewPort, p.getValue(), TimeSeriesStatistics::getMax));
+            stdDevColumn.setCellValueFactory(p -> bindStatistic(currentViewPort, p.getValue(), TimeSeriesStatistics::getStandardDeviation));
+            medianColumn.setCellValueFactory(p -> bindStatistic(currentViewPort, p.getValue(), TimeSeriesStatistics::getMedian));
+            p95Column.setCellValueFactory(p -> bindStatistic(currentViewPort, p.getValue(), TimeSeriesStatistics::getPercentile95));
+
+            // Resolve values for all series at once, away from the FX thread, whenever the crosshair moves,
+            // and publish them together so that all rows are updated in the same pulse.
+            CoalescingResolver<ZonedDateTime, Map<TimeSeriesInfo, Double>> nearestValues = new CoalescingResolver<>(
+                    currentViewPort.getDataStore()::tryGetNearestValues,
+                    AsyncTaskManager.getInstance().getComputeExecutor(TaskPriorities.VISIBLE, null),
+                    Map.of());
+            bindingManager.attachListener(getSelectedViewPort().getCrosshair().currentXValueProperty(),
+                    (ChangeListener<ZonedDateTime>) (observable, oldValue, newValue) -> nearestValues.request(newValue));
             currentColumn.setCellValueFactory(p -> Bindings.createStringBinding(
                     () -> {
                         if (p.getValue().getProcessor() == null) {
                             return "NaN";
                         }
-                        return currentViewPort.getPrefixFormatter().format(p.getValue()
-                                .getProcessor()
-                                .tryGetNearestValue(getSelectedViewPort().getCrosshair().getCurrentXValue())
-                                .orElse(Double.NaN));
-                    }, getSelectedViewPort().getCrosshair().currentXValueProperty()));
+                        return currentViewPort.getPrefixFormatter().format(nearestValues.getResult().getOrDefault(p.getValue(), Double.NaN));
+                    }, nearestValues.resultProperty()));
 
             currentViewPort.getSeriesTable().setRowFactory(this::seriesTableRowFactory);
             currentViewPort.getSeriesTable().setOnKeyReleased(bindingManager.registerHandler(event -> {
@@ -669,7 +722,7 @@ public class WorksheetController implements Initializable, AutoCloseable {
             }));
 
             currentViewPort.getSeriesTable().setItems(currentViewPort.getDataStore().getSeries());
-            currentViewPort.getSeriesTable().getColumns().addAll(visibleColumn, colorColumn, nameColumn, minColumn, maxColumn, avgColumn, currentColumn, pathColumn);
+            currentViewPort.getSeriesTable().getColumns().addAll(visibleColumn, colorColumn, nameColumn, minColumn, maxColumn, avgColumn, stdDevColumn, medianColumn, p95Column, currentColumn, pathColumn);
             TitledPane newPane = new TitledPane(currentViewPort.getDataStore().getName(), currentViewPort.getSeriesTable());
 
             newPane.setOnDragOver(bindingManager.registerHandler(this::handleDragOverWorksheetView));
@@ -882,6 +935,7 @@ public class WorksheetController implements Initializable, AutoCloseable {
     public void close() {
         if (closed.compareAndSet(false, true)) {
             logger.debug(() -> "Closing worksheetController " + this.toString());
+            refreshScheduler.close();
             bindingManager.close();
             currentState.close();
             hCrosshair.selectedProperty().unbindBidirectional(globalPrefs.horizontalMarkerOnProperty());
@@ -988,6 +1042,14 @@ public class WorksheetController implements Initializable, AutoCloseable {
         invalidateAll(false, false, true);
     }
 
+    /**
+     * Refreshes the charts whose last refresh was dropped because its deadline passed while the worksheet wasn't
+     * selected.
+     */
+    void refreshExpiredCharts() {
+        List.copyOf(expiredRefreshes).forEach(viewPort -> invalidate(viewPort, false, false));
+    }
+
     @FXML
     protected void handleHistoryBack(ActionEvent actionEvent) {
         restoreSelectionFromHistory(getWorksheet().getBackwardHistory(), getWorksheet().getForwardHistory());
@@ -1041,10 +1103,30 @@ public class WorksheetController implements Initializable, AutoCloseable {
 
     private void plotChart(ChartViewPort viewPort, XYChartSelection<ZonedDateTime, Double> currentSelection, boolean forceRefresh) {
         try (Profiler p = Profiler.start("Adding series to chart " + viewPort.getDataStore().getName(), logger::trace)) {
+            expiredRefreshes.remove(viewPort);
             worksheetMaskerPane.setVisible(true);
-            AsyncTaskManager.getInstance().submit(() -> {
-                        viewPort.getDataStore().fetchDataFromSources(currentSelection.getStartX(), currentSelection.getEndX(), forceRefresh);
-                        return viewPort.getDataStore().getSeries()
+            // Read the width of the plot area while still on the FX thread
+            int plotAreaWidth = (int) viewPort.getChart().getXAxis().getWidth();
+            // Charts on the selected worksheet are refreshed ahead of those on other tabs
+            TaskPriorities priority = parentController.getSelectedWorksheetController() == this ?
+                    TaskPriorities.VISIBLE : TaskPriorities.NORMAL;
+            // Don't let refreshes of worksheets that aren't shown linger in the queue: they are replayed once selected.
+            int deadlineSeconds = GlobalPreferences.getInstance().getBackgroundRefreshDeadlineSeconds();
+            Instant deadline = priority == TaskPriorities.VISIBLE || deadlineSeconds <= 0 ? null :
+                    Instant.now().plusSeconds(deadlineSeconds);
+            // Requests and CPU-bound work are shared fairly amongst worksheets
+            refreshScheduler.submit(viewPort, priority, getWorksheet(), deadline, () -> {
+                        viewPort.getDataStore().fetchDataFromSources(
+                                currentSelection.getStartX(),
+                                currentSelection.getEndX(),
+                                forceRefresh,
+                                plotAreaWidth,
+                                (completed, total) -> Platform.runLater(() -> {
+                                    if (!closed.get() && completed < total) {
+                                        worksheetMaskerPane.setProgress((double) completed / total);
+                                    }
+                                }));
+                        List<TimeSeriesInfo> seriesToPlot = viewPort.getDataStore().getSeries()
                                 .stream()
                                 .filter(series -> {
                                     if (series.getProcessor() == null) {
@@ -1057,13 +1139,37 @@ public class WorksheetController implements Initializable, AutoCloseable {
                                     }
                                     return true;
                                 })
-                                .map(ts -> makeXYChartSeries(viewPort.getDataStore(), ts))
+                                .collect(Collectors.toList());
+                        // Only the samples within the selection are handed over to the chart
+                        long from = currentSelection.getStartX().toInstant().toEpochMilli();
+                        long to = currentSelection.getEndX().toInstant().toEpochMilli();
+                        if (viewPort.getChart() instanceof CanvasXYChart) {
+                            List<CanvasXYChart.SampleSeries> samples = seriesToPlot.stream()
+                                    .map(ts -> makeSampleSeries(ts, from, to))
+                                    .collect(Collectors.toList());
+                            if (viewPort.getDataStore().getChartType() == ChartType.STACKED) {
+                                // Compute the cumulative values here rather than on every layout pass
+                                try (Profiler ignored = Profiler.start("Stacking series for chart " + viewPort.getDataStore().getName(), logger::trace)) {
+                                    return StackedSamples.of(samples);
+                                }
+                            }
+                            return samples;
+                        }
+                        return seriesToPlot.stream()
+                                .map(ts -> makeXYChartSeries(viewPort.getDataStore(), ts, from, to))
                                 .collect(Collectors.toList());
                     },
                     event -> {
                         if (!closed.get()) {
                             worksheetMaskerPane.setVisible(false);
-                            viewPort.getChart().getData().setAll((Collection<? extends XYChart.Series<ZonedDateTime, Double>>) event.getSource().getValue());
+                            worksheetMaskerPane.setProgress(-1);
+                            if (event.getSource().getValue() instanceof StackedSamples) {
+                                ((CanvasXYChart) viewPort.getChart()).setStackedSamples((StackedSamples) event.getSource().getValue());
+                            } else if (viewPort.getChart() instanceof CanvasXYChart) {
+                                ((CanvasXYChart) viewPort.getChart()).getSamples().setAll((Collection<CanvasXYChart.SampleSeries>) event.getSource().getValue());
+                            } else {
+                                viewPort.getChart().getData().setAll((Collection<? extends XYChart.Series<ZonedDateTime, Double>>) event.getSource().getValue());
+                            }
                             // Force a redraw of the charts and their Y Axis considering their proper width.
                             new DelayedAction(() -> viewPort.getChart().resize(0.0, 0.0), Duration.millis(50)).submit();
                         }
@@ -1071,16 +1177,38 @@ public class WorksheetController implements Initializable, AutoCloseable {
                     event -> {
                         if (!closed.get()) {
                             worksheetMaskerPane.setVisible(false);
+                            worksheetMaskerPane.setProgress(-1);
                             Dialogs.notifyException("Failed to retrieve data from source", event.getSource().getException(), root);
                         }
+                    },
+                    event -> {
+                        if (!closed.get()) {
+                            logger.debug(() -> "Refresh of chart " + viewPort.getDataStore().getName() + " expired before it started");
+                            worksheetMaskerPane.setVisible(false);
+                            worksheetMaskerPane.setProgress(-1);
+                            if (parentController.getSelectedWorksheetController() == this) {
+                                // The worksheet was selected while the refresh was queued
+                                invalidate(viewPort, false, false);
+                            } else {
+                                expiredRefreshes.add(viewPort);
+                            }
+                        }
                     });
         }
     }
 
-    private XYChart.Series<ZonedDateTime, Double> makeXYChartSeries(Chart currentChart, TimeSeriesInfo series) {
+    private CanvasXYChart.SampleSeries makeSampleSeries(TimeSeriesInfo series, long from, long to) {
+        TimeSeriesSnapshot snapshot = series.getProcessor().snapshot(from, to);
+        CanvasXYChart.SampleSeries samples = new CanvasXYChart.SampleSeries(snapshot.getTimeStamps(), snapshot.getValues(), snapshot.size());
+        bindingManager.bind(samples.colorProperty(), series.displayColorProperty());
+        return samples;
+    }
+
+    private XYChart.Series<ZonedDateTime, Double> makeXYChartSeries(Chart currentChart, TimeSeriesInfo series, long from, long to) {
         try (Profiler p = Profiler.start("Building  XYChart.Series data for" + series.getDisplayName(), logger::trace)) {
             XYChart.Series<ZonedDateTime, Double> newSeries = new XYChart.Series<>();
-            newSeries.getData().setAll(series.getProcessor().getData());
+            // Samples are only materialized as XYChart.Data instances here, when handed over to the chart.
+            newSeries.getData().setAll(series.getProcessor().getData(from, to));
             if (currentChart.getChartType() == ChartType.SCATTER) {
                 for (var data : newSeries.getData()) {
                     var c = new Circle();
@@ -1164,6 +1292,15 @@ public class WorksheetController implements Initializable, AutoCloseable {
         throw new IllegalStateException("Could not retreive selected viewport on current worksheet");
     }
 
+    private ObservableValue<String> bindStatistic(ChartViewPort viewPort,
+                                                  TimeSeriesInfo series,
+                                                  ToDoubleFunction<TimeSeriesStatistics> statistic) {
+        return Bindings.createStringBinding(
+                () -> series.getProcessor() == null ? "NaN" :
+                        viewPort.getPrefixFormatter().format(statistic.applyAsDouble(series.getProcessor().getStatistics())),
+                series.processorProperty());
+    }
+
     private TableRow<TimeSeriesInfo> seriesTableRowFactory(TableView<TimeSeriesInfo> tv) {
         TableRow<TimeSeriesInfo> row = new TableRow<>();
         row.setOnDragDetected(bindingManager.registerHandler(event -> {
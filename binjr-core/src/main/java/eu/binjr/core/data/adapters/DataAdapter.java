@@ -21,8 +21,10 @@ import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
 import eu.binjr.core.data.workspace.TimeSeriesInfo;
 import javafx.scene.control.TreeItem;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -54,6 +56,51 @@ public interface DataAdapter extends AutoCloseable {
      */
     Map<TimeSeriesInfo, TimeSeriesProcessor> fetchData(String path, Instant begin, Instant end, List<TimeSeriesInfo> seriesInfo, boolean bypassCache) throws DataAdapterException;
 
+    /**
+     * Gets decoded data from the source as a map of {@link TimeSeriesProcessor}, for the time interval specified and
+     * for the {@link TimeSeriesInfo} of several paths at once.
+     * <p>Implementations may combine several paths into fewer requests, or pipeline them, where the source allows it.
+     * The default implementation fetches each path in turn.</p>
+     *
+     * @param seriesByPath the series to get data from, grouped by their path in the source.
+     * @param begin        the start of the time interval.
+     * @param end          the end of the time interval.
+     * @param bypassCache  true if adapter cache should be bypassed, false otherwise. This parameter is ignored if adapter does not support caching
+     * @return the decoded data, for all the series of all the paths.
+     * @throws DataAdapterException if an error occurs while retrieving data from the source.
+     */
+    default Map<TimeSeriesInfo, TimeSeriesProcessor> fetchData(Map<String, List<TimeSeriesInfo>> seriesByPath, Instant begin, Instant end, boolean bypassCache) throws DataAdapterException {
+        Map<TimeSeriesInfo, TimeSeriesProcessor> data = new HashMap<>();
+        for (Map.Entry<String, List<TimeSeriesInfo>> entry : seriesByPath.entrySet()) {
+            data.putAll(fetchData(entry.getKey(), begin, end, entry.getValue(), bypassCache));
+        }
+        return data;
+    }
+
+    /**
+     * Returns the maximum number of paths that should be passed to a single call to
+     * {@link #fetchData(Map, Instant, Instant, boolean)}.
+     * <p>The default implementation returns 1, i.e. paths are not batched.</p>
+     *
+     * @return the maximum number of paths that should be passed to a single multi-path fetch.
+     */
+    default int getMaxFetchBatchSize() {
+        return 1;
+    }
+
+    /**
+     * Returns the amount of time after which samples produced by the source are final.
+     * <p>Sources may consolidate their latest samples after the fact, or receive them late: data retrieved for the
+     * most recent part of a time interval might later change. Caches must not consider data retrieved for a time
+     * more recent than the current time minus this delay as complete, so that it is fetched again.</p>
+     * <p>The default implementation returns five minutes, the default step of RRD databases.</p>
+     *
+     * @return the amount of time after which samples produced by the source are final.
+     */
+    default Duration getSettleDelay() {
+        return Duration.ofMinutes(5);
+    }
+
     /**
      * Gets the encoding used to decode textual data sent by the source.
      *
@@ -16,9 +16,16 @@
 
 package eu.binjr.core.data.adapters;
 
+import eu.binjr.common.cache.CacheStatistics;
+import eu.binjr.common.cache.DiskCache;
+import eu.binjr.common.io.BoundedTeeInputStream;
+import eu.binjr.core.data.async.InterruptibleThread;
 import eu.binjr.core.data.codec.Decoder;
 import eu.binjr.core.data.exceptions.*;
+import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
+import eu.binjr.core.data.workspace.TimeSeriesInfo;
 import eu.binjr.core.preferences.AppEnvironment;
+import eu.binjr.core.preferences.GlobalPreferences;
 import eu.binjr.common.logging.Profiler;
 import org.apache.http.HttpEntity;
 import org.apache.http.NameValuePair;
@@ -31,13 +38,19 @@ import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.config.AuthSchemes;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.config.Lookup;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.auth.SPNegoSchemeFactory;
 import org.apache.http.impl.client.AbstractResponseHandler;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.ssl.SSLContexts;
 import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.LogManager;
@@ -47,14 +60,18 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLHandshakeException;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.*;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.Principal;
 import java.security.Security;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class provides a base on which to implement {@link DataAdapter} instances that communicate with sources via the HTTP protocol.
@@ -65,6 +82,10 @@ import java.util.*;
 public abstract class HttpDataAdapter extends SimpleCachingDataAdapter {
     private static final Logger logger = LogManager.getLogger(HttpDataAdapter.class);
     protected static final String BASE_ADDRESS_PARAM_NAME = "baseUri";
+    private static final Duration DISK_CACHE_GRACE_PERIOD = Duration.ofMinutes(10);
+    private static final long MAX_TEED_PAYLOAD_SIZE = 32 * 1024 * 1024;
+    private static DiskCache diskCache;
+    private static boolean diskCacheUnavailable = false;
     private final CloseableHttpClient httpClient;
     private URL baseAddress;
 
@@ -92,12 +113,140 @@ public abstract class HttpDataAdapter extends SimpleCachingDataAdapter {
 
     @Override
     public byte[] onCacheMiss(String path, Instant begin, Instant end) throws DataAdapterException {
-        return doHttpGet(craftFetchUri(path, begin, end), new AbstractResponseHandler<byte[]>() {
+        URI requestUri = craftFetchUri(path, begin, end);
+        DiskCache diskCache = getDiskCache(end);
+        byte[] payload = readFromDiskCache(diskCache, requestUri);
+        if (payload != null) {
+            return payload;
+        }
+        payload = doHttpGet(requestUri, new AbstractResponseHandler<byte[]>() {
             @Override
             public byte[] handleEntity(HttpEntity entity) throws IOException {
                 return EntityUtils.toByteArray(entity);
             }
         });
+        writeToDiskCache(diskCache, requestUri, payload);
+        return payload;
+    }
+
+    @Override
+    protected Map<TimeSeriesInfo, TimeSeriesProcessor> fetchFromSource(String path, Instant begin, Instant end, List<TimeSeriesInfo> seriesInfo)
+            throws DataAdapterException {
+        URI requestUri = craftFetchUri(path, begin, end);
+        DiskCache diskCache = getDiskCache(end);
+        byte[] payload = readFromDiskCache(diskCache, requestUri);
+        if (payload != null) {
+            return decode(payload, seriesInfo);
+        }
+        // Decode samples as the response's content is received, instead of buffering it whole beforehand.
+        return doHttpGet(requestUri, new AbstractResponseHandler<Map<TimeSeriesInfo, TimeSeriesProcessor>>() {
+            @Override
+            public Map<TimeSeriesInfo, TimeSeriesProcessor> handleEntity(HttpEntity entity) throws IOException {
+                try {
+                    return decode(entity, seriesInfo, diskCache, requestUri);
+                } catch (DataAdapterException e) {
+                    throw new DecodingException(e);
+                }
+            }
+        });
+    }
+
+    private Map<TimeSeriesInfo, TimeSeriesProcessor> decode(HttpEntity entity,
+                                                            List<TimeSeriesInfo> seriesInfo,
+                                                            DiskCache diskCache,
+                                                            URI requestUri) throws IOException, DataAdapterException {
+        // Only keep a copy of the payload if it can go in the disk cache
+        boolean tee = diskCache != null && entity.getContentLength() <= MAX_TEED_PAYLOAD_SIZE;
+        InputStream content = entity.getContent();
+        BoundedTeeInputStream teeStream = tee ? new BoundedTeeInputStream(content, MAX_TEED_PAYLOAD_SIZE) : null;
+        try (InputStream in = teeStream != null ? teeStream : content) {
+            Map<TimeSeriesInfo, TimeSeriesProcessor> result = getDecoder().decode(in, seriesInfo);
+            // The copy is incomplete if the payload was too large or if the decoder stopped short of its end.
+            if (teeStream != null && teeStream.isCopyComplete()) {
+                writeToDiskCache(diskCache, requestUri, teeStream.getCopy());
+            }
+            return result;
+        }
+    }
+
+    private Map<TimeSeriesInfo, TimeSeriesProcessor> decode(byte[] payload, List<TimeSeriesInfo> seriesInfo) throws DataAdapterException {
+        try (InputStream in = new ByteArrayInputStream(payload)) {
+            return getDecoder().decode(in, seriesInfo);
+        } catch (IOException e) {
+            throw new DataAdapterException("Error recovering data from source", e);
+        }
+    }
+
+    private DiskCache getDiskCache(Instant end) {
+        // Responses for time intervals fully in the past are not expected to change, so they can be persisted on disk.
+        return end.isBefore(Instant.now().minus(DISK_CACHE_GRACE_PERIOD)) ? getDiskCache() : null;
+    }
+
+    private byte[] readFromDiskCache(DiskCache diskCache, URI requestUri) {
+        if (diskCache != null) {
+            try {
+                byte[] payload = diskCache.get(requestUri.toString());
+                if (payload != null) {
+                    logger.trace(() -> "Data successfully retrieved from disk cache for " + requestUri);
+                    return payload;
+                }
+            } catch (IOException e) {
+                logger.warn("Error reading from disk cache: " + e.getMessage());
+                logger.debug(() -> "Stack trace", e);
+            }
+        }
+        return null;
+    }
+
+    private void writeToDiskCache(DiskCache diskCache, URI requestUri, byte[] payload) {
+        if (diskCache != null) {
+            try {
+                diskCache.put(requestUri.toString(), payload);
+            } catch (IOException e) {
+                logger.warn("Error writing to disk cache: " + e.getMessage());
+                logger.debug(() -> "Stack trace", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the disk cache shared by all {@link HttpDataAdapter} instances, opening it on first access, or null if
+     * it is disabled or could not be opened.
+     *
+     * @return the disk cache shared by all {@link HttpDataAdapter} instances, or null if it is not available.
+     */
+    protected static synchronized DiskCache getDiskCache() {
+        GlobalPreferences prefs = GlobalPreferences.getInstance();
+        if (!prefs.isDiskCacheEnabled() || diskCacheUnavailable) {
+            return null;
+        }
+        if (diskCache == null) {
+            try {
+                diskCache = new DiskCache(prefs.getDiskCacheLocation(), prefs.getDiskCacheMaxSizeMB() * 1024L * 1024L);
+                prefs.diskCacheMaxSizeMBProperty().addListener((observable, oldValue, newValue) -> {
+                    try {
+                        diskCache.setMaxSize(newValue.intValue() * 1024L * 1024L);
+                    } catch (IOException e) {
+                        logger.warn("Error resizing disk cache: " + e.getMessage());
+                    }
+                });
+            } catch (IOException e) {
+                logger.warn("Disk cache is not available: " + e.getMessage());
+                logger.debug(() -> "Stack trace", e);
+                diskCacheUnavailable = true;
+            }
+        }
+        return diskCache;
+    }
+
+    /**
+     * Returns a snapshot of the statistics of the disk cache shared by all {@link HttpDataAdapter} instances, or an
+     * empty {@link Optional} if it hasn't been opened.
+     *
+     * @return a snapshot of the statistics of the disk cache, if it has been opened.
+     */
+    public static synchronized Optional<CacheStatistics> getDiskCacheStatistics() {
+        return diskCache != null ? Optional.of(diskCache.getStatistics()) : Optional.empty();
     }
 
     @Override
@@ -137,19 +286,36 @@ public abstract class HttpDataAdapter extends SimpleCachingDataAdapter {
     //endregion
 
     protected <R> R doHttpGet(URI requestUri, ResponseHandler<R> responseHandler) throws DataAdapterException {
+        HttpGet httpget = newHttpGet(requestUri);
         try (Profiler p = Profiler.start("Executing HTTP request: [" + requestUri.toString() + "]", logger::trace)) {
             logger.debug(() -> "requestUri = " + requestUri);
-            HttpGet httpget = new HttpGet(requestUri);
-            // Set user-agent pattern to workaround CAS server not proposing SPNEGO authentication unless it thinks agent can handle it.
-            httpget.setHeader("User-Agent", AppEnvironment.APP_NAME +"/" + AppEnvironment.getInstance().getVersion() + " (Authenticates like: Firefox/Safari/Internet Explorer)");
-            R result = httpClient.execute(httpget, responseHandler);
+            R result;
+            // Blocking socket I/O ignores interruptions, so abort the request explicitly if the thread is interrupted.
+            try (InterruptibleThread.Registration ignored = InterruptibleThread.onInterrupt(httpget::abort)) {
+                result = httpClient.execute(httpget, responseHandler);
+            }
             if (result == null) {
                 throw new FetchingDataFromAdapterException("Response entity to \"" + requestUri.toString() + "\" is null.");
             }
             return result;
-        } catch (HttpResponseException e) {
+        } catch (DecodingException e) {
+            throw e.getCause();
+        } catch (Exception e) {
+            throw translateException(requestUri, e, httpget.isAborted());
+        }
+    }
+
+    private HttpGet newHttpGet(URI requestUri) {
+        HttpGet httpget = new HttpGet(requestUri);
+        // Set user-agent pattern to workaround CAS server not proposing SPNEGO authentication unless it thinks agent can handle it.
+        httpget.setHeader("User-Agent", AppEnvironment.APP_NAME + "/" + AppEnvironment.getInstance().getVersion() + " (Authenticates like: Firefox/Safari/Internet Explorer)");
+        return httpget;
+    }
+
+    private DataAdapterException translateException(URI requestUri, Throwable e, boolean aborted) {
+        if (e instanceof HttpResponseException) {
             String msg;
-            switch (e.getStatusCode()) {
+            switch (((HttpResponseException) e).getStatusCode()) {
                 case 401:
                     msg = "Authentication failed while trying to access \"" + requestUri.toString() + "\"";
                     break;
@@ -166,18 +332,24 @@ public abstract class HttpDataAdapter extends SimpleCachingDataAdapter {
                     msg = "Error executing HTTP request \"" + requestUri.toString() + "\": " + e.getMessage();
                     break;
             }
-            throw new SourceCommunicationException(msg, e);
-        } catch (ConnectException e) {
-            throw new SourceCommunicationException(e.getMessage(), e);
-        } catch (UnknownHostException e) {
-            throw new SourceCommunicationException("Host \"" + baseAddress.getHost() + (baseAddress.getPort() > 0 ? ":" + baseAddress.getPort() : "") + "\" could not be found.", e);
-        } catch (SSLHandshakeException e) {
-            throw new SourceCommunicationException("An error occurred while negotiating connection security: " + e.getMessage(), e);
-        } catch (IOException e) {
-            throw new SourceCommunicationException("IO error while communicating with host \"" + baseAddress.getHost() + (baseAddress.getPort() > 0 ? ":" + baseAddress.getPort() : "") + "\": " + e.getMessage(), e);
-        } catch (Exception e) {
-            throw new SourceCommunicationException("Unexpected error in HTTP GET: " + e.getMessage(), e);
+            return new SourceCommunicationException(msg, e);
+        }
+        if (e instanceof ConnectException) {
+            return new SourceCommunicationException(e.getMessage(), e);
+        }
+        if (e instanceof UnknownHostException) {
+            return new SourceCommunicationException("Host \"" + baseAddress.getHost() + (baseAddress.getPort() > 0 ? ":" + baseAddress.getPort() : "") + "\" could not be found.", e);
+        }
+        if (e instanceof SSLHandshakeException) {
+            return new SourceCommunicationException("An error occurred while negotiating connection security: " + e.getMessage(), e);
+        }
+        if (e instanceof IOException) {
+            if (aborted) {
+                return new FetchingDataFromAdapterException("HTTP request \"" + requestUri.toString() + "\" was aborted", e);
+            }
+            return new SourceCommunicationException("IO error while communicating with host \"" + baseAddress.getHost() + (baseAddress.getPort() > 0 ? ":" + baseAddress.getPort() : "") + "\": " + e.getMessage(), e);
         }
+        return new SourceCommunicationException("Unexpected error in HTTP GET: " + e.getMessage(), e);
     }
 
     protected static SSLContext createSslCustomContext() {
@@ -216,33 +388,63 @@ public abstract class HttpDataAdapter extends SimpleCachingDataAdapter {
                     null,
                     null,
                     SSLConnectionSocketFactory.getDefaultHostnameVerifier());
-            RegistryBuilder<AuthSchemeProvider> schemeProviderBuilder = RegistryBuilder.create();
-            schemeProviderBuilder.register(AuthSchemes.SPNEGO, new SPNegoSchemeFactory());
-            CredentialsProvider credsProvider = new BasicCredentialsProvider();
-            credsProvider.setCredentials(
-                    new AuthScope(null, -1, null),
-                    new Credentials() {
-                        @Override
-                        public Principal getUserPrincipal() {
-                            return null;
-                        }
-
-                        @Override
-                        public String getPassword() {
-                            return null;
-                        }
-                    });
-
+            GlobalPreferences prefs = GlobalPreferences.getInstance();
+            // Pool connections so that concurrent requests to a single source don't queue behind the default two per route
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                    RegistryBuilder.<ConnectionSocketFactory>create()
+                            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                            .register("https", csf)
+                            .build());
+            connectionManager.setMaxTotal(prefs.getHttpMaxConnections());
+            // Each of the requests running concurrently for a single adapter must be able to get a connection
+            connectionManager.setDefaultMaxPerRoute(Math.max(prefs.getHttpMaxConnectionsPerRoute(), prefs.getMaxFetchParallelismPerAdapter()));
+            // Content compression is enabled by default: requests advertise "Accept-Encoding: gzip,deflate"
+            // and compressed entities are decompressed lazily, as their content is streamed.
             return HttpClients.custom()
-                    .setDefaultAuthSchemeRegistry(schemeProviderBuilder.build())
-                    .setDefaultCredentialsProvider(credsProvider)
-                    .setSSLSocketFactory(csf)
+                    .setDefaultAuthSchemeRegistry(makeAuthSchemeRegistry())
+                    .setDefaultCredentialsProvider(makeCredentialsProvider())
+                    .setConnectionManager(connectionManager)
+                    .setKeepAliveStrategy(makeKeepAliveStrategy())
+                    .evictExpiredConnections()
+                    .evictIdleConnections(prefs.getHttpIdleConnectionTimeout(), TimeUnit.SECONDS)
                     .build();
         } catch (Exception e) {
             throw new CannotInitializeDataAdapterException("Could not initialize adapter to source '" + this.getSourceName() + "': " + e.getMessage(), e);
         }
     }
 
+    private static Lookup<AuthSchemeProvider> makeAuthSchemeRegistry() {
+        RegistryBuilder<AuthSchemeProvider> schemeProviderBuilder = RegistryBuilder.create();
+        schemeProviderBuilder.register(AuthSchemes.SPNEGO, new SPNegoSchemeFactory());
+        return schemeProviderBuilder.build();
+    }
+
+    private static CredentialsProvider makeCredentialsProvider() {
+        CredentialsProvider credsProvider = new BasicCredentialsProvider();
+        credsProvider.setCredentials(
+                new AuthScope(null, -1, null),
+                new Credentials() {
+                    @Override
+                    public Principal getUserPrincipal() {
+                        return null;
+                    }
+
+                    @Override
+                    public String getPassword() {
+                        return null;
+                    }
+                });
+        return credsProvider;
+    }
+
+    private static ConnectionKeepAliveStrategy makeKeepAliveStrategy() {
+        long defaultKeepAlive = GlobalPreferences.getInstance().getHttpKeepAliveDuration() * 1000L;
+        return (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? keepAlive : defaultKeepAlive;
+        };
+    }
+
     protected URI craftRequestUri(String path, List<NameValuePair> params) throws SourceCommunicationException {
         Objects.requireNonNull(path);
         try {
@@ -303,4 +505,18 @@ public abstract class HttpDataAdapter extends SimpleCachingDataAdapter {
             return false;
         }
     }
+
+    /**
+     * Carries a {@link DataAdapterException} thrown while decoding a response out of a {@link ResponseHandler}.
+     */
+    private static class DecodingException extends IOException {
+        private DecodingException(DataAdapterException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized DataAdapterException getCause() {
+            return (DataAdapterException) super.getCause();
+        }
+    }
 }
@@ -16,68 +16,264 @@
 
 package eu.binjr.core.data.adapters;
 
-import eu.binjr.core.data.codec.Decoder;
+import eu.binjr.common.cache.CacheStatistics;
+import eu.binjr.common.cache.WeightedCache;
 import eu.binjr.core.data.exceptions.DataAdapterException;
-import eu.binjr.common.cache.LRUMapCapacityBound;
+import eu.binjr.core.data.timeseries.DoubleTimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesSnapshot;
+import eu.binjr.core.data.workspace.TimeSeriesInfo;
+import eu.binjr.core.preferences.GlobalPreferences;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.lang.ref.SoftReference;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * An abstract implementation of {@link SerializedDataAdapter} that manages a cache in between the adapter and the data source.
- * <p>This is an on-heap memory cache  with a finite capacity and an LRU eviction policy</p>
- * <p>Furthermore, values uses {@link java.lang.ref.SoftReference} to give the GC a chance to collect the cached elements
- * if the memory pressure becomes too high.</p>
+ * <p>This is an on-heap memory cache, shared by all instances, whose size is bounded by the amount of memory
+ * used by the cached samples and whose eviction policy is configurable; see
+ * {@link GlobalPreferences#getAdapterCacheMaxSizeMB()} and {@link GlobalPreferences#getAdapterCacheEvictionPolicy()}.</p>
+ * <p>Decoded samples are cached per path and per series as sorted, non-overlapping time segments, so that only the
+ * parts of a requested time interval that were never retrieved before are fetched from the source: panning or zooming
+ * out only costs the newly exposed slices.</p>
+ * <p>Data retrieved for times more recent than the adapter's {@link #getSettleDelay() settle delay} before the
+ * fetch is returned but not recorded as retrieved, so that it is fetched again on subsequent requests.</p>
  *
  * @author Frederic Thevenet
  */
 public abstract class SimpleCachingDataAdapter extends SerializedDataAdapter {
     public static final int DEFAULT_CACHE_SIZE = 128;
     private static final Logger logger = LogManager.getLogger(SimpleCachingDataAdapter.class);
-    private final Map<String, SoftReference<byte[]>> cache;
+    private static final WeightedCache<String, TimeSegmentCache> cache = makeCache();
+    private final String cacheKeyPrefix = UUID.randomUUID().toString() + "|";
 
     /**
      * Initializes a new instance of the {@link SimpleCachingDataAdapter} class
      */
     public SimpleCachingDataAdapter() {
-        this(DEFAULT_CACHE_SIZE);
+        super();
     }
 
     /**
      * Initializes a new instance of the {@link SimpleCachingDataAdapter} class with the specified maximum number of entries
      *
      * @param maxCacheEntries the  maximum number of entries in the cache
+     * @deprecated the cache is now shared by all adapters and bounded by the amount of memory it uses:
+     * the provided value is ignored.
      */
+    @Deprecated
     public SimpleCachingDataAdapter(int maxCacheEntries) {
-        cache = new LRUMapCapacityBound<>(maxCacheEntries);
+        this();
+    }
+
+    /**
+     * Returns a snapshot of the statistics of the cache shared by all {@link SimpleCachingDataAdapter} instances.
+     *
+     * @return a snapshot of the statistics of the cache.
+     */
+    public static CacheStatistics getCacheStatistics() {
+        return cache.getStatistics();
+    }
+
+    /**
+     * Returns the ratio of the size the samples held in the cache would have if they were not compressed, to their
+     * actual size, or 1 if the cache is empty.
+     *
+     * @return the effective compression ratio of the samples held in the cache.
+     */
+    public static double getCacheCompressionRatio() {
+        long size = 0;
+        long uncompressedSize = 0;
+        for (TimeSegmentCache segments : cache.values()) {
+            size += segments.getSizeInBytes();
+            uncompressedSize += segments.getUncompressedSizeInBytes();
+        }
+        return size == 0 ? 1 : (double) uncompressedSize / size;
+    }
+
+    private static WeightedCache<String, TimeSegmentCache> makeCache() {
+        GlobalPreferences prefs = GlobalPreferences.getInstance();
+        WeightedCache<String, TimeSegmentCache> weightedCache = new WeightedCache<>(
+                prefs.getAdapterCacheMaxSizeMB() * 1024L * 1024L,
+                prefs.getAdapterCacheEvictionPolicy(),
+                TimeSegmentCache::getSizeInBytes);
+        prefs.adapterCacheMaxSizeMBProperty().addListener((observable, oldValue, newValue) ->
+                weightedCache.setMaxWeight(newValue.intValue() * 1024L * 1024L));
+        prefs.adapterCacheEvictionPolicyProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue != null) {
+                weightedCache.setEvictionPolicy(newValue);
+            }
+        });
+        return weightedCache;
     }
 
     @Override
-    public InputStream fetchRawData(String path, Instant begin, Instant end, boolean bypassCache) throws DataAdapterException {
-        byte[] payload = null;
-        String cacheEntryKey = String.format("%s%d%d", path, begin.toEpochMilli(), end.toEpochMilli());
-        if (!bypassCache) {
-            SoftReference<byte[]> cacheHit = cache.get(cacheEntryKey);
-            payload = cacheHit != null ? cacheHit.get() : null;
+    public Map<TimeSeriesInfo, TimeSeriesProcessor> fetchData(String path, Instant begin, Instant end, List<TimeSeriesInfo> seriesInfo, boolean bypassCache)
+            throws DataAdapterException {
+        if (closed) {
+            throw new IllegalStateException("An attempt was made to fetch data from a closed adapter");
+        }
+        String cacheKey = cacheKeyPrefix + path;
+        TimeSegmentCache segments = getSegments(cacheKey);
+        List<long[]> gaps = findGaps(segments, path, begin, end, seriesInfo, bypassCache);
+        long settledEnd = getSettledEnd();
+        Map<TimeSeriesInfo, TimeSeriesProcessor> unsettled = null;
+        for (long[] gap : gaps) {
+            var fetched = fetchFromSource(path, Instant.ofEpochMilli(gap[0]), Instant.ofEpochMilli(gap[1]), seriesInfo);
+            if (storeGap(segments, gap, settledEnd, seriesInfo, fetched) < gap[1]) {
+                unsettled = fetched;
+            }
+        }
+        return readFromCache(cacheKey, segments, !gaps.isEmpty(), begin, end, seriesInfo, unsettled, settledEnd);
+    }
+
+    private TimeSegmentCache getSegments(String cacheKey) {
+        return cache.computeIfAbsent(cacheKey,
+                k -> new TimeSegmentCache(GlobalPreferences.getInstance().isAdapterCacheCompressionEnabled()));
+    }
+
+    private List<long[]> findGaps(TimeSegmentCache segments, String path, Instant begin, Instant end, List<TimeSeriesInfo> seriesInfo, boolean bypassCache) {
+        long beginMillis = begin.toEpochMilli();
+        long endMillis = end.toEpochMilli();
+        List<long[]> gaps = bypassCache ?
+                List.of(new long[]{beginMillis, endMillis}) :
+                segments.missingIntervals(
+                        seriesInfo.stream().map(info -> info.getBinding().getLabel()).collect(Collectors.toSet()),
+                        beginMillis,
+                        endMillis);
+        if (gaps.isEmpty()) {
+            logger.trace(() -> String.format("Data successfully retrieved from cache for %s %s %s", path, begin.toString(), end.toString()));
         }
-        if (payload == null) {
+        for (long[] gap : gaps) {
             logger.trace(() -> String.format(
                     "%s for entry %s %s %s",
                     bypassCache ? "Cache was explicitly bypassed" : "Cache miss",
                     path,
-                    begin.toString(),
-                    end.toString()));
-            payload = onCacheMiss(path, begin, end);
-            cache.put(cacheEntryKey, new SoftReference<>(payload));
-        } else {
-            logger.trace(() -> String.format("Data successfully retrieved from cache for %s %s %s", path, begin.toString(), end.toString()));
+                    Instant.ofEpochMilli(gap[0]).toString(),
+                    Instant.ofEpochMilli(gap[1]).toString()));
+        }
+        return gaps;
+    }
+
+    private long getSettledEnd() {
+        return System.currentTimeMillis() - getSettleDelay().toMillis();
+    }
+
+    /**
+     * Stores the data fetched for a gap, up to the time after which samples might still be added or changed by the
+     * source, and returns the end of the interval recorded as retrieved.
+     */
+    private long storeGap(TimeSegmentCache segments,
+                          long[] gap,
+                          long settledEnd,
+                          List<TimeSeriesInfo> seriesInfo,
+                          Map<TimeSeriesInfo, TimeSeriesProcessor> fetched) {
+        long coveredEnd = Math.min(gap[1], settledEnd);
+        if (coveredEnd <= gap[0]) {
+            // Nothing in the gap is final yet
+            return gap[0];
+        }
+        for (TimeSeriesInfo info : seriesInfo) {
+            TimeSeriesProcessor processor = fetched.get(info);
+            TimeSeriesSnapshot snapshot = processor != null ? processor.snapshot() : null;
+            if (snapshot != null) {
+                segments.put(info.getBinding().getLabel(), gap[0], coveredEnd, snapshot.getTimeStamps(), snapshot.getValues(), snapshot.size());
+            } else {
+                segments.put(info.getBinding().getLabel(), gap[0], coveredEnd, new long[0], new double[0], 0);
+            }
+        }
+        return coveredEnd;
+    }
+
+    private Map<TimeSeriesInfo, TimeSeriesProcessor> readFromCache(String cacheKey,
+                                                                   TimeSegmentCache segments,
+                                                                   boolean updated,
+                                                                   Instant begin,
+                                                                   Instant end,
+                                                                   List<TimeSeriesInfo> seriesInfo,
+                                                                   Map<TimeSeriesInfo, TimeSeriesProcessor> unsettled,
+                                                                   long settledEnd) {
+        if (updated) {
+            // Account for the samples just added, which might trigger evictions
+            cache.updateWeight(cacheKey);
+        }
+        Map<TimeSeriesInfo, TimeSeriesProcessor> series = new HashMap<>();
+        for (TimeSeriesInfo info : seriesInfo) {
+            TimeSeriesProcessor processor = new DoubleTimeSeriesProcessor();
+            processor.setZoneId(getTimeZoneId());
+            TimeSeriesProcessor tail = unsettled != null ? unsettled.get(info) : null;
+            if (tail == null) {
+                segments.get(info.getBinding().getLabel(), begin.toEpochMilli(), end.toEpochMilli(), processor::setData);
+            } else {
+                // Complete the cached samples with those just fetched that are not final yet.
+                segments.get(info.getBinding().getLabel(), begin.toEpochMilli(), end.toEpochMilli(), (timeStamps, values, length) ->
+                        appendUnsettled(processor, timeStamps, values, length, tail.snapshot(), settledEnd, begin.toEpochMilli(), end.toEpochMilli()));
+            }
+            series.put(info, processor);
+        }
+        return series;
+    }
+
+    private static void appendUnsettled(TimeSeriesProcessor processor,
+                                        long[] timeStamps,
+                                        double[] values,
+                                        int length,
+                                        TimeSeriesSnapshot tail,
+                                        long settledEnd,
+                                        long begin,
+                                        long end) {
+        // Only keep the samples within the requested interval that follow the cached ones
+        long lastCached = Math.max(Math.max(settledEnd, begin - 1), length > 0 ? timeStamps[length - 1] : Long.MIN_VALUE);
+        int from = 0;
+        while (from < tail.size() && tail.getTimeStamp(from) <= lastCached) {
+            from++;
+        }
+        int to = tail.size();
+        while (to > from && tail.getTimeStamp(to - 1) > end) {
+            to--;
+        }
+        long[] mergedTimeStamps = Arrays.copyOf(timeStamps, length + to - from);
+        double[] mergedValues = Arrays.copyOf(values, length + to - from);
+        System.arraycopy(tail.getTimeStamps(), from, mergedTimeStamps, length, to - from);
+        System.arraycopy(tail.getValues(), from, mergedValues, length, to - from);
+        processor.setData(mergedTimeStamps, mergedValues, mergedTimeStamps.length);
+    }
+
+    /**
+     * Retrieves and decodes data from the source for the time interval specified, bypassing the cache.
+     * <p>The default implementation decodes the payload returned by {@link #onCacheMiss(String, Instant, Instant)};
+     * implementations that can stream their payload should override it to decode samples as they are received.</p>
+     *
+     * @param path       the path of the data in the source
+     * @param begin      the start of the time interval.
+     * @param end        the end of the time interval.
+     * @param seriesInfo the series to decode.
+     * @return the decoded data, for each series.
+     * @throws DataAdapterException if an error occurs while retrieving or decoding data from the source.
+     */
+    protected Map<TimeSeriesInfo, TimeSeriesProcessor> fetchFromSource(String path, Instant begin, Instant end, List<TimeSeriesInfo> seriesInfo)
+            throws DataAdapterException {
+        try (InputStream in = new ByteArrayInputStream(onCacheMiss(path, begin, end))) {
+            return getDecoder().decode(in, seriesInfo);
+        } catch (IOException e) {
+            throw new DataAdapterException("Error recovering data from source", e);
         }
-        return new ByteArrayInputStream(payload);
+    }
+
+    @Override
+    public InputStream fetchRawData(String path, Instant begin, Instant end, boolean bypassCache) throws DataAdapterException {
+        // Caching happens on decoded samples, in fetchData
+        return new ByteArrayInputStream(onCacheMiss(path, begin, end));
     }
 
     /**
@@ -94,7 +290,7 @@ public abstract class SimpleCachingDataAdapter extends SerializedDataAdapter {
     @Override
     public void close() {
         try {
-            this.cache.clear();
+            cache.removeIf(key -> key.startsWith(cacheKeyPrefix));
         } catch (Exception e) {
             logger.error("Error closing SimpleCacheAdapter", e);
         }
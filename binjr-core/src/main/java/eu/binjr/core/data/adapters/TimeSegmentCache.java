@@ -0,0 +1,377 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package eu.binjr.core.data.adapters;
+
+import eu.binjr.core.data.codec.GorillaCodec;
+
+import java.util.*;
+
+/**
+ * Holds the samples of time series retrieved from a source as sorted, non-overlapping time segments, so that only
+ * the sub-intervals of a request that were never retrieved before need to be fetched from the source.
+ * <p>Segments are closed intervals: a segment spanning {@code [begin, end]} holds every sample the source returned
+ * for time stamps within that interval. Storing an interval never rewrites the samples already held: segments it
+ * overlaps are only narrowed down to the part of their interval left uncovered, and only segments small enough to be
+ * rewritten cheaply are coalesced with the new one. The cost of storing an interval is thus bounded by its own
+ * samples, whatever the size of the segments around it.</p>
+ * <p>Samples can optionally be stored compressed with {@link GorillaCodec}, in which case they are only decompressed
+ * when they are read.</p>
+ * <p>All methods are thread-safe.</p>
+ *
+ * @author Frederic Thevenet
+ */
+final class TimeSegmentCache {
+    private static final long SEGMENT_OVERHEAD = 128;
+    private static final long SAMPLE_SIZE = Long.BYTES + Double.BYTES;
+    static final int MAX_COALESCED_SAMPLES = 16 * 1024;
+    private final Map<String, NavigableMap<Long, Segment>> segmentsBySeries = new HashMap<>();
+    private final boolean compressed;
+    private long sizeInBytes;
+    private long uncompressedSizeInBytes;
+
+    /**
+     * Initializes a new instance of the {@link TimeSegmentCache} class.
+     *
+     * @param compressed true if samples should be stored compressed, false otherwise.
+     */
+    TimeSegmentCache(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Returns the sub-intervals of the specified interval that are not yet covered for all the specified series,
+     * sorted and merged.
+     *
+     * @param seriesKeys the keys identifying the series.
+     * @param begin      the start of the interval, in milliseconds since the epoch.
+     * @param end        the end of the interval, in milliseconds since the epoch.
+     * @return the sub-intervals that are not yet covered, as pairs of {@code [begin, end]} time stamps.
+     */
+    synchronized List<long[]> missingIntervals(Collection<String> seriesKeys, long begin, long end) {
+        List<long[]> gaps = new ArrayList<>();
+        for (String key : seriesKeys) {
+            NavigableMap<Long, Segment> segments = segmentsBySeries.get(key);
+            if (segments == null) {
+                gaps.add(new long[]{begin, end});
+                continue;
+            }
+            // The first time stamp not known to be covered
+            long cursor = begin;
+            Map.Entry<Long, Segment> floor = segments.floorEntry(begin);
+            for (Segment segment : segments.tailMap(floor != null ? floor.getKey() : begin, true).values()) {
+                if (segment.begin > end || cursor > end) {
+                    break;
+                }
+                if (segment.begin > cursor) {
+                    gaps.add(new long[]{cursor, segment.begin - 1});
+                }
+                cursor = Math.max(cursor, segment.end + 1);
+            }
+            if (cursor <= end) {
+                gaps.add(new long[]{cursor, end});
+            }
+        }
+        if (gaps.size() < 2) {
+            return gaps;
+        }
+        gaps.sort(Comparator.comparingLong(gap -> gap[0]));
+        List<long[]> merged = new ArrayList<>();
+        long[] current = gaps.get(0);
+        for (int i = 1; i < gaps.size(); i++) {
+            long[] gap = gaps.get(i);
+            if (gap[0] <= current[1] + 1) {
+                current[1] = Math.max(current[1], gap[1]);
+            } else {
+                merged.add(current);
+                current = gap;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    /**
+     * Stores the samples retrieved for a series over the specified interval, replacing any samples previously stored
+     * for that interval.
+     * <p>Segments overlapping the interval are narrowed down to the part of their interval it leaves uncovered, which
+     * doesn't require reading or copying their samples. The new segment is coalesced with adjacent ones only if the
+     * result holds no more than {@link #MAX_COALESCED_SAMPLES} samples.</p>
+     *
+     * @param seriesKey  the key identifying the series.
+     * @param begin      the start of the interval, in milliseconds since the epoch.
+     * @param end        the end of the interval, in milliseconds since the epoch.
+     * @param timeStamps the time stamps of the samples, in ascending order.
+     * @param values     the values of the samples.
+     * @param length     the number of samples.
+     */
+    synchronized void put(String seriesKey, long begin, long end, long[] timeStamps, double[] values, int length) {
+        NavigableMap<Long, Segment> segments = segmentsBySeries.computeIfAbsent(seriesKey, k -> new TreeMap<>());
+        List<Segment> overlapping = new ArrayList<>();
+        Map.Entry<Long, Segment> floor = segments.floorEntry(begin);
+        for (Segment segment : segments.tailMap(floor != null ? floor.getKey() : begin, true).values()) {
+            if (segment.begin > end) {
+                break;
+            }
+            if (segment.end >= begin) {
+                overlapping.add(segment);
+            }
+        }
+        for (Segment segment : overlapping) {
+            remove(segments, segment);
+            if (segment.begin < begin) {
+                add(segments, segment.narrow(segment.begin, begin - 1));
+            }
+            if (segment.end > end) {
+                add(segments, segment.narrow(end + 1, segment.end));
+            }
+        }
+        int from = lowerBound(timeStamps, length, begin);
+        int to = lowerBound(timeStamps, length, end + 1);
+        long[] newTimeStamps = Arrays.copyOfRange(timeStamps, from, to);
+        double[] newValues = Arrays.copyOfRange(values, from, to);
+        long newBegin = begin;
+        long newEnd = end;
+        Map.Entry<Long, Segment> before = segments.lowerEntry(begin);
+        if (before != null && before.getValue().end + 1 == begin &&
+                before.getValue().length + newTimeStamps.length <= MAX_COALESCED_SAMPLES) {
+            Segment segment = before.getValue();
+            remove(segments, segment);
+            Columns columns = segment.visibleColumns();
+            newTimeStamps = concat(columns.timeStamps, columns.length, newTimeStamps, newTimeStamps.length);
+            newValues = concat(columns.values, columns.length, newValues, newValues.length);
+            newBegin = segment.begin;
+        }
+        Map.Entry<Long, Segment> after = segments.higherEntry(end);
+        if (after != null && after.getValue().begin == end + 1 &&
+                after.getValue().length + newTimeStamps.length <= MAX_COALESCED_SAMPLES) {
+            Segment segment = after.getValue();
+            remove(segments, segment);
+            Columns columns = segment.visibleColumns();
+            newTimeStamps = concat(newTimeStamps, newTimeStamps.length, columns.timeStamps, columns.length);
+            newValues = concat(newValues, newValues.length, columns.values, columns.length);
+            newEnd = segment.end;
+        }
+        add(segments, compressed ?
+                new Segment(newBegin, newEnd, GorillaCodec.encode(newTimeStamps, newValues, newTimeStamps.length), newTimeStamps.length) :
+                new Segment(newBegin, newEnd, newTimeStamps, newValues, newTimeStamps.length));
+    }
+
+    /**
+     * Returns the number of segments held for a series.
+     *
+     * @param seriesKey the key identifying the series.
+     * @return the number of segments held for a series.
+     */
+    synchronized int getSegmentCount(String seriesKey) {
+        NavigableMap<Long, Segment> segments = segmentsBySeries.get(seriesKey);
+        return segments != null ? segments.size() : 0;
+    }
+
+    /**
+     * Copies the stored samples of a series whose time stamps are within the specified interval into new arrays.
+     *
+     * @param seriesKey the key identifying the series.
+     * @param begin     the start of the interval, in milliseconds since the epoch.
+     * @param end       the end of the interval, in milliseconds since the epoch.
+     * @param consumer  a consumer for the time stamps and values arrays, and the number of samples they contain.
+     */
+    synchronized void get(String seriesKey, long begin, long end, SamplesConsumer consumer) {
+        NavigableMap<Long, Segment> segments = segmentsBySeries.get(seriesKey);
+        if (segments == null) {
+            consumer.accept(new long[0], new double[0], 0);
+            return;
+        }
+        Map.Entry<Long, Segment> floor = segments.floorEntry(begin);
+        Collection<Segment> candidates = segments.subMap(floor != null ? floor.getKey() : begin, true, end, true).values();
+        int capacity = 0;
+        for (Segment segment : candidates) {
+            capacity += segment.length;
+        }
+        long[] timeStamps = new long[capacity];
+        double[] values = new double[capacity];
+        int length = 0;
+        for (Segment segment : candidates) {
+            if (segment.end < begin) {
+                continue;
+            }
+            // Only samples within the interval covered by the segment are valid
+            long validBegin = Math.max(begin, segment.begin);
+            long validEnd = Math.min(end, segment.end);
+            // Compressed segments are only decompressed up to the end of the interval
+            Columns columns = segment.columns(validEnd);
+            int from = lowerBound(columns.timeStamps, columns.length, validBegin);
+            int to = lowerBound(columns.timeStamps, columns.length, validEnd + 1);
+            if (to > from) {
+                System.arraycopy(columns.timeStamps, from, timeStamps, length, to - from);
+                System.arraycopy(columns.values, from, values, length, to - from);
+                length += to - from;
+            }
+        }
+        consumer.accept(timeStamps, values, length);
+    }
+
+    /**
+     * Removes all segments.
+     */
+    synchronized void clear() {
+        segmentsBySeries.clear();
+        sizeInBytes = 0;
+        uncompressedSizeInBytes = 0;
+    }
+
+    /**
+     * Returns an estimate of the amount of memory used by the stored samples, in bytes.
+     *
+     * @return an estimate of the amount of memory used by the stored samples, in bytes.
+     */
+    synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Returns an estimate of the amount of memory the stored samples would use if they were not compressed, in bytes.
+     *
+     * @return an estimate of the amount of memory the stored samples would use if they were not compressed, in bytes.
+     */
+    synchronized long getUncompressedSizeInBytes() {
+        return uncompressedSizeInBytes;
+    }
+
+    /**
+     * A consumer for samples held in primitive arrays.
+     */
+    @FunctionalInterface
+    interface SamplesConsumer {
+        void accept(long[] timeStamps, double[] values, int length);
+    }
+
+    private void add(NavigableMap<Long, Segment> segments, Segment segment) {
+        segments.put(segment.begin, segment);
+        sizeInBytes += segment.sizeInBytes();
+        uncompressedSizeInBytes += segment.uncompressedSizeInBytes();
+    }
+
+    private void remove(NavigableMap<Long, Segment> segments, Segment segment) {
+        segments.remove(segment.begin);
+        sizeInBytes -= segment.sizeInBytes();
+        uncompressedSizeInBytes -= segment.uncompressedSizeInBytes();
+    }
+
+    private static long[] concat(long[] first, int firstLength, long[] second, int secondLength) {
+        long[] result = Arrays.copyOf(first, firstLength + secondLength);
+        System.arraycopy(second, 0, result, firstLength, secondLength);
+        return result;
+    }
+
+    private static double[] concat(double[] first, int firstLength, double[] second, int secondLength) {
+        double[] result = Arrays.copyOf(first, firstLength + secondLength);
+        System.arraycopy(second, 0, result, firstLength, secondLength);
+        return result;
+    }
+
+    private static int lowerBound(long[] timeStamps, int length, long timeStamp) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeStamps[mid] < timeStamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class Columns {
+        private final long[] timeStamps;
+        private final double[] values;
+        private final int length;
+
+        private Columns(long[] timeStamps, double[] values, int length) {
+            this.timeStamps = timeStamps;
+            this.values = values;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A view over an immutable array of samples, of which only those within {@code [begin, end]} are valid.
+     * <p>Several segments may share the same samples when storing an interval splits a segment in two; the memory
+     * they use is then accounted for twice.</p>
+     */
+    private static final class Segment {
+        private final long begin;
+        private final long end;
+        private final long[] timeStamps;
+        private final double[] values;
+        private final long[] encoded;
+        private final int length;
+
+        private Segment(long begin, long end, long[] timeStamps, double[] values, int length) {
+            this.begin = begin;
+            this.end = end;
+            this.timeStamps = timeStamps;
+            this.values = values;
+            this.encoded = null;
+            this.length = length;
+        }
+
+        private Segment(long begin, long end, long[] encoded, int length) {
+            this.begin = begin;
+            this.end = end;
+            this.timeStamps = null;
+            this.values = null;
+            this.encoded = encoded;
+            this.length = length;
+        }
+
+        private Segment narrow(long newBegin, long newEnd) {
+            return encoded != null ?
+                    new Segment(newBegin, newEnd, encoded, length) :
+                    new Segment(newBegin, newEnd, timeStamps, values, length);
+        }
+
+        private Columns visibleColumns() {
+            Columns columns = columns(end);
+            int from = lowerBound(columns.timeStamps, columns.length, begin);
+            int to = lowerBound(columns.timeStamps, columns.length, end + 1);
+            if (from == 0 && to == columns.length) {
+                return columns;
+            }
+            return new Columns(Arrays.copyOfRange(columns.timeStamps, from, to), Arrays.copyOfRange(columns.values, from, to), to - from);
+        }
+
+        private Columns columns(long upTo) {
+            if (encoded == null) {
+                return new Columns(timeStamps, values, length);
+            }
+            long[] decodedTimeStamps = new long[length];
+            double[] decodedValues = new double[length];
+            int decoded = GorillaCodec.decode(encoded, length, upTo, decodedTimeStamps, decodedValues);
+            return new Columns(decodedTimeStamps, decodedValues, decoded);
+        }
+
+        private long sizeInBytes() {
+            return encoded != null ? SEGMENT_OVERHEAD + encoded.length * (long) Long.BYTES : uncompressedSizeInBytes();
+        }
+
+        private long uncompressedSizeInBytes() {
+            return SEGMENT_OVERHEAD + length * SAMPLE_SIZE;
+        }
+    }
+}
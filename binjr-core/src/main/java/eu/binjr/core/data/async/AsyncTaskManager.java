@@ -23,6 +23,11 @@ import javafx.event.EventHandler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -33,21 +38,44 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class AsyncTaskManager {
     private static final Logger logger = LogManager.getLogger(AsyncTaskManager.class);
-    private final ExecutorService threadPool;
+    private static final ThreadLocal<TaskPriorities> currentPriority = new ThreadLocal<>();
+    private static final ThreadLocal<Object> currentSource = new ThreadLocal<>();
+    private final PrioritizedExecutor threadPool;
+    private final ThreadPoolExecutor ioThreadPool;
+    private final ThreadPoolExecutor fetchThreadPool;
+    private final PrioritizedExecutor computeThreadPool;
+    private final Map<Object, PrioritizedExecutor> fetchSlots = Collections.synchronizedMap(new WeakHashMap<>());
+    private final AtomicInteger fetchSlotsCount = new AtomicInteger();
 
     private AsyncTaskManager() {
-        ThreadFactory threadFactory = new ThreadFactory() {
+        int maxParallelism = GlobalPreferences.getInstance().getMaxAsyncTasksParallelism();
+        threadPool = new PrioritizedExecutor(maxParallelism, makeThreadFactory("binjr-async-thread-"));
+        // Tasks mostly wait on I/O: in split mode, they run on an unbounded pool so that slow sources cannot hold
+        // unrelated tasks in the queue. Contention is arbitrated where it happens instead: on each adapter's fetch
+        // slots and on the compute pool.
+        ioThreadPool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), makeThreadFactory("binjr-io-thread-"));
+        // Fetch tasks are spawned from tasks running on the main pool and mostly wait on I/O: they get a pool of their own,
+        // so that they can never be starved by the tasks waiting on them. Their parallelism is bounded by their callers.
+        fetchThreadPool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), makeThreadFactory("binjr-fetch-thread-"));
+        // CPU-bound work gains nothing from running on more threads than there are processors.
+        int processors = Runtime.getRuntime().availableProcessors();
+        computeThreadPool = new PrioritizedExecutor(processors, makeThreadFactory("binjr-compute-thread-"));
+    }
+
+    private static ThreadFactory makeThreadFactory(String namePrefix) {
+        return new ThreadFactory() {
             final AtomicInteger threadNum = new AtomicInteger();
 
             @Override
             public Thread newThread(Runnable r) {
-                Thread thread = new Thread(r);
-                thread.setName("binjr-async-thread-" + threadNum.incrementAndGet());
+                Thread thread = new InterruptibleThread(r);
+                thread.setName(namePrefix + threadNum.incrementAndGet());
                 thread.setDaemon(true);
                 return thread;
             }
         };
-        threadPool = Executors.newFixedThreadPool(GlobalPreferences.getInstance().getMaxAsyncTasksParallelism(), threadFactory);
     }
 
     /**
@@ -59,6 +87,81 @@ public class AsyncTaskManager {
         return AsyncTaskManagerHolder.instance;
     }
 
+    /**
+     * Returns the priority of the task running on the current thread, or {@link TaskPriorities#NORMAL} if the current
+     * thread isn't running a task submitted to the {@link AsyncTaskManager}.
+     *
+     * @return the priority of the task running on the current thread.
+     */
+    public static TaskPriorities getCurrentPriority() {
+        TaskPriorities priority = currentPriority.get();
+        return priority != null ? priority : TaskPriorities.NORMAL;
+    }
+
+    static void setCurrentPriority(TaskPriorities priority) {
+        if (priority == null) {
+            currentPriority.remove();
+        } else {
+            currentPriority.set(priority);
+        }
+    }
+
+    /**
+     * Returns the source on behalf of which the task running on the current thread was submitted, or null if there is
+     * none or if the current thread isn't running a task submitted to the {@link AsyncTaskManager}.
+     *
+     * @return the source on behalf of which the task running on the current thread was submitted.
+     */
+    public static Object getCurrentSource() {
+        return currentSource.get();
+    }
+
+    static void setCurrentSource(Object source) {
+        if (source == null) {
+            currentSource.remove();
+        } else {
+            currentSource.set(source);
+        }
+    }
+
+    /**
+     * Runs the provided action on the current thread, with the specified priority as the current priority, so that
+     * work it hands over to the {@link AsyncTaskManager} inherits it.
+     *
+     * @param priority the priority to run the action with.
+     * @param action   the action to run.
+     * @param <V>      the type of the action's result.
+     * @return the result of the action.
+     * @throws Exception if the action throws an exception.
+     */
+    public static <V> V callWithPriority(TaskPriorities priority, Callable<V> action) throws Exception {
+        return callWithPriority(priority, getCurrentSource(), action);
+    }
+
+    /**
+     * Runs the provided action on the current thread, with the specified priority and source as the current ones, so
+     * that work it hands over to the {@link AsyncTaskManager} inherits them.
+     *
+     * @param priority the priority to run the action with.
+     * @param source   the source on behalf of which the action is run, or null.
+     * @param action   the action to run.
+     * @param <V>      the type of the action's result.
+     * @return the result of the action.
+     * @throws Exception if the action throws an exception.
+     */
+    public static <V> V callWithPriority(TaskPriorities priority, Object source, Callable<V> action) throws Exception {
+        TaskPriorities previousPriority = currentPriority.get();
+        Object previousSource = currentSource.get();
+        setCurrentPriority(priority);
+        setCurrentSource(source);
+        try {
+            return action.call();
+        } finally {
+            setCurrentPriority(previousPriority);
+            setCurrentSource(previousSource);
+        }
+    }
+
     /**
      * Submit a {@link Task} on the {@link AsyncTaskManager} thread pool
      *
@@ -67,8 +170,41 @@ public class AsyncTaskManager {
      * @return the result of the task
      */
     public <V> Future<?> submit(Task<V> task) {
-        logger.trace(() -> "Task " + task.toString() + " submitted");
-        return threadPool.submit(task);
+        return submit(task, TaskPriorities.NORMAL, null);
+    }
+
+    /**
+     * Submit a {@link Task} on the {@link AsyncTaskManager} thread pool, with the specified priority.
+     * <p>Queued tasks run by order of priority, and threads are shared fairly amongst the sources tasks of a same
+     * priority are submitted on behalf of. The priority and source are inherited by the fetch requests and CPU-bound
+     * work the task hands over to the {@link AsyncTaskManager}.</p>
+     *
+     * @param task     the {@link Task} instance to execute
+     * @param priority the priority of the task.
+     * @param source   the source on behalf of which the task is run (e.g. a worksheet), or null.
+     * @param <V>      the parameter type for the task
+     * @return the result of the task
+     */
+    public <V> Future<?> submit(Task<V> task, TaskPriorities priority, Object source) {
+        return submit(task, priority, source, null);
+    }
+
+    /**
+     * Submit a {@link Task} on the {@link AsyncTaskManager} thread pool, with the specified priority and a deadline.
+     * <p>If the deadline has passed by the time the task is due to start, the task is cancelled instead of being run.
+     * In {@link ExecutorModes#SPLIT} mode tasks are never queued, so the deadline is only checked as they start.</p>
+     *
+     * @param task     the {@link Task} instance to execute
+     * @param priority the priority of the task.
+     * @param source   the source on behalf of which the task is run (e.g. a worksheet), or null.
+     * @param deadline the instant after which the task should no longer be started, or null.
+     * @param <V>      the parameter type for the task
+     * @return the result of the task
+     */
+    public <V> Future<?> submit(Task<V> task, TaskPriorities priority, Object source, Instant deadline) {
+        logger.trace(() -> "Task " + task.toString() + " submitted with priority " + priority +
+                (deadline == null ? "" : " and deadline " + deadline));
+        return dispatch(task, priority, source, deadline);
     }
 
     /**
@@ -78,9 +214,29 @@ public class AsyncTaskManager {
      * @param onSucceeded a callback to handle success
      * @param onFailed    a callback to handle failure
      * @param <V>         the parameter type for the task
-     * @return the result of the task
+     * @return the submitted {@link Task}; cancelling it interrupts the action and prevents any callback from being invoked.
      */
     public <V> Future<?> submit(Callable<V> action, EventHandler<WorkerStateEvent> onSucceeded, EventHandler<WorkerStateEvent> onFailed) {
+        return submit(action, TaskPriorities.NORMAL, null, onSucceeded, onFailed);
+    }
+
+    /**
+     * Submit an action as a {@link Callable} instance to be run asynchronously with the specified priority, as well as
+     * callback to handle success and failure of the main action.
+     *
+     * @param action      an action as a {@link Callable} instance to be run asynchronously
+     * @param priority    the priority of the action.
+     * @param source      the source on behalf of which the action is run (e.g. a worksheet), or null.
+     * @param onSucceeded a callback to handle success
+     * @param onFailed    a callback to handle failure
+     * @param <V>         the parameter type for the task
+     * @return the submitted {@link Task}; cancelling it interrupts the action and prevents any callback from being invoked.
+     */
+    public <V> Future<?> submit(Callable<V> action,
+                                TaskPriorities priority,
+                                Object source,
+                                EventHandler<WorkerStateEvent> onSucceeded,
+                                EventHandler<WorkerStateEvent> onFailed) {
         Task<V> t = new Task<V>() {
             @Override
             protected V call() throws Exception {
@@ -89,11 +245,171 @@ public class AsyncTaskManager {
         };
         t.setOnSucceeded(onSucceeded);
         t.setOnFailed(onFailed);
-        logger.trace(() -> "Task " + t.toString() + " submitted");
+        submit(t, priority, source);
+        return t;
+    }
+
+    /**
+     * Returns the {@link ExecutorService} on which to run concurrent requests to data adapters, on behalf of a task already
+     * running on the {@link AsyncTaskManager} thread pool.
+     *
+     * @return the {@link ExecutorService} on which to run concurrent requests to data adapters.
+     */
+    public ExecutorService getFetchExecutor() {
+        return fetchThreadPool;
+    }
 
-        return threadPool.submit(t);
+    /**
+     * Submits a request to a data adapter, with the specified priority and on behalf of the specified source.
+     * <p>In {@link ExecutorModes#SPLIT} mode, requests to an adapter share a number of slots bounded by
+     * {@link GlobalPreferences#getMaxFetchParallelismPerAdapter()}: queued requests run by order of priority, and
+     * slots are shared fairly amongst the sources of a same priority. Otherwise, requests run on
+     * {@link #getFetchExecutor()} and their parallelism is bounded by their callers.</p>
+     *
+     * @param request  the request to run.
+     * @param priority the priority of the request.
+     * @param adapter  the adapter the request is made to.
+     * @param source   the source on behalf of which the request is made (e.g. a worksheet), or null.
+     * @param <V>      the type of the request's result.
+     * @return a {@link Future} representing the pending completion of the request.
+     */
+    public <V> Future<V> submitFetch(Callable<V> request, TaskPriorities priority, Object adapter, Object source) {
+        return submitFetch(request, priority, adapter, source, null);
     }
 
+    /**
+     * Submits a request to a data adapter, with the specified priority, on behalf of the specified source and with a
+     * deadline.
+     * <p>If the deadline has passed by the time the request is due to start, it is cancelled instead of being run.
+     * Requests only wait in a queue in {@link ExecutorModes#SPLIT} mode; otherwise the deadline is checked as they
+     * start.</p>
+     *
+     * @param request  the request to run.
+     * @param priority the priority of the request.
+     * @param adapter  the adapter the request is made to.
+     * @param source   the source on behalf of which the request is made (e.g. a worksheet), or null.
+     * @param deadline the instant after which the request should no longer be started, or null.
+     * @param <V>      the type of the request's result.
+     * @return a {@link Future} representing the pending completion of the request.
+     * @see #submitFetch(Callable, TaskPriorities, Object, Object)
+     */
+    public <V> Future<V> submitFetch(Callable<V> request, TaskPriorities priority, Object adapter, Object source, Instant deadline) {
+        if (GlobalPreferences.getInstance().getAsyncExecutorMode() == ExecutorModes.SPLIT) {
+            return fetchSlots.computeIfAbsent(adapter, a -> {
+                var slots = new PrioritizedExecutor(
+                        Math.max(1, GlobalPreferences.getInstance().getMaxFetchParallelismPerAdapter()),
+                        makeThreadFactory("binjr-fetch-slot-" + fetchSlotsCount.incrementAndGet() + "-"));
+                // Don't hold on to threads for adapters that are no longer in use.
+                slots.setKeepAliveTime(60L, TimeUnit.SECONDS);
+                slots.allowCoreThreadTimeOut(true);
+                return slots;
+            }).submit(request, priority, source, deadline);
+        }
+        FutureTask<V> ftask = new FutureTask<>(() -> callWithPriority(priority, source, request));
+        fetchThreadPool.execute(withDeadline(deadline, ftask));
+        return ftask;
+    }
+
+    /**
+     * Returns the {@link Executor} on which to run CPU-bound work, such as decoding or reducing samples.
+     * <p>In {@link ExecutorModes#SPLIT} mode, this is a pool bounded by the number of available processors;
+     * otherwise this is the same executor as {@link #getFetchExecutor()}.</p>
+     *
+     * @return the {@link Executor} on which to run CPU-bound work.
+     */
+    public Executor getComputeExecutor() {
+        return getComputeExecutor(getCurrentPriority(), getCurrentSource());
+    }
+
+    /**
+     * Returns the {@link Executor} on which to run CPU-bound work, such as decoding or reducing samples, with the
+     * specified priority and on behalf of the specified source.
+     *
+     * @param priority the priority of the work.
+     * @param source   the source on behalf of which the work is run (e.g. a worksheet), or null.
+     * @return the {@link Executor} on which to run CPU-bound work.
+     * @see #getComputeExecutor()
+     */
+    public Executor getComputeExecutor(TaskPriorities priority, Object source) {
+        if (GlobalPreferences.getInstance().getAsyncExecutorMode() == ExecutorModes.SPLIT) {
+            return command -> computeThreadPool.submit(command, priority, source);
+        }
+        return command -> fetchThreadPool.execute(withPriority(priority, source, command));
+    }
+
+    /**
+     * Returns a snapshot of the activity of all the thread pools.
+     *
+     * @return a snapshot of the activity of all the thread pools.
+     */
+    public List<ExecutorStatistics> getStatistics() {
+        return List.of(
+                makeStatistics("Tasks (bounded)", threadPool),
+                makeStatistics("Tasks (I/O)", ioThreadPool),
+                makeStatistics("Fetch", fetchThreadPool),
+                makeFetchSlotsStatistics(),
+                makeStatistics("Compute", computeThreadPool));
+    }
+
+    private ExecutorStatistics makeFetchSlotsStatistics() {
+        int poolSize = 0, activeCount = 0, queueDepth = 0;
+        long completedTaskCount = 0;
+        synchronized (fetchSlots) {
+            for (PrioritizedExecutor slots : fetchSlots.values()) {
+                poolSize += slots.getPoolSize();
+                activeCount += slots.getActiveCount();
+                queueDepth += slots.getQueue().size();
+                completedTaskCount += slots.getCompletedTaskCount();
+            }
+        }
+        return new ExecutorStatistics("Fetch slots", poolSize, activeCount, queueDepth, completedTaskCount);
+    }
+
+    private static ExecutorStatistics makeStatistics(String name, ThreadPoolExecutor executor) {
+        return new ExecutorStatistics(name,
+                executor.getPoolSize(),
+                executor.getActiveCount(),
+                executor.getQueue().size(),
+                executor.getCompletedTaskCount());
+    }
+
+    private Future<?> dispatch(Runnable task, TaskPriorities priority, Object source, Instant deadline) {
+        if (GlobalPreferences.getInstance().getAsyncExecutorMode() == ExecutorModes.SPLIT) {
+            // Tasks start right away on the unbounded pool; their priority and source are applied to the fetch
+            // requests and CPU-bound work they hand over, which is where they contend.
+            return ioThreadPool.submit(withPriority(priority, source, withDeadline(deadline, task)));
+        }
+        return threadPool.submit(task, priority, source, deadline);
+    }
+
+    private static Runnable withDeadline(Instant deadline, Runnable task) {
+        if (deadline == null) {
+            return task;
+        }
+        return () -> {
+            if (Instant.now().isAfter(deadline)) {
+                logger.debug(() -> "Dropping task " + task + ": its deadline has passed (" + deadline + ")");
+                if (task instanceof Future) {
+                    ((Future<?>) task).cancel(false);
+                }
+                return;
+            }
+            task.run();
+        };
+    }
+
+    private static Runnable withPriority(TaskPriorities priority, Object source, Runnable task) {
+        return () -> {
+            setCurrentPriority(priority);
+            setCurrentSource(source);
+            try {
+                task.run();
+            } finally {
+                setCurrentPriority(null);
+                setCurrentSource(null);
+            }
+        };
+    }
 
     private static class AsyncTaskManagerHolder {
         private static final AsyncTaskManager instance = new AsyncTaskManager();
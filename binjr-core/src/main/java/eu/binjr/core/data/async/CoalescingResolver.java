@@ -0,0 +1,114 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.core.data.async;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Resolves values from inputs on a background {@link Executor} and publishes the result of the latest resolution
+ * on the JavaFX application thread, as a single update of a read-only property.
+ * <p>At most one resolution is running at any given time: inputs that are requested while one is in progress
+ * are coalesced, and only the latest of them is resolved once it completes, so that the amount of work does not
+ * depend on the rate at which inputs are requested.</p>
+ *
+ * @param <T> the type of the inputs.
+ * @param <R> the type of the resolved values.
+ * @author Frederic Thevenet
+ */
+public class CoalescingResolver<T, R> {
+    private static final Logger logger = LogManager.getLogger(CoalescingResolver.class);
+    private static final Object NONE = new Object();
+    private final Function<T, R> resolver;
+    private final Executor executor;
+    private final AtomicReference<Object> pending = new AtomicReference<>(NONE);
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final ReadOnlyObjectWrapper<R> result;
+
+    /**
+     * Initializes a new instance of the {@link CoalescingResolver} class.
+     *
+     * @param resolver     the function that resolves a value from an input; it is invoked on the provided executor.
+     * @param executor     the executor on which to invoke the resolver.
+     * @param initialValue the value of the result property until a first resolution completes.
+     */
+    public CoalescingResolver(Function<T, R> resolver, Executor executor, R initialValue) {
+        this.resolver = Objects.requireNonNull(resolver, "Argument resolver must not be null");
+        this.executor = Objects.requireNonNull(executor, "Argument executor must not be null");
+        this.result = new ReadOnlyObjectWrapper<>(initialValue);
+    }
+
+    /**
+     * Requests the resolution of a value from the provided input, superseding any request that has not started yet.
+     *
+     * @param input the input to resolve a value from.
+     */
+    public void request(T input) {
+        pending.set(input);
+        schedule();
+    }
+
+    /**
+     * The property holding the value resolved from the latest input, which is only ever updated on the
+     * JavaFX application thread.
+     *
+     * @return the property holding the value resolved from the latest input.
+     */
+    public ReadOnlyObjectProperty<R> resultProperty() {
+        return result.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the value resolved from the latest input.
+     *
+     * @return the value resolved from the latest input.
+     */
+    public R getResult() {
+        return result.get();
+    }
+
+    private void schedule() {
+        if (pending.get() != NONE && scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drain() {
+        try {
+            Object input = pending.getAndSet(NONE);
+            if (input != NONE) {
+                R value = resolver.apply((T) input);
+                Platform.runLater(() -> result.set(value));
+            }
+        } catch (Exception e) {
+            logger.error("Error while resolving value", e);
+        } finally {
+            scheduled.set(false);
+            // An input might have been requested while the flag was still set
+            schedule();
+        }
+    }
+}
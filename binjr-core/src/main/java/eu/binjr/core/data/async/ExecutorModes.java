@@ -0,0 +1,64 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.core.data.async;
+
+import java.util.Objects;
+
+/**
+ * An enumeration of the modes in which {@link AsyncTaskManager} can schedule background tasks.
+ *
+ * @author Frederic Thevenet
+ */
+public enum ExecutorModes {
+    /**
+     * All tasks share a single pool of threads, whose size is bounded by
+     * {@link eu.binjr.core.preferences.GlobalPreferences#getMaxAsyncTasksParallelism()}.
+     */
+    BOUNDED("Single bounded pool"),
+    /**
+     * Tasks, which mostly wait on I/O, run on an unbounded pool, while requests to each data adapter share a bounded
+     * number of slots and CPU-bound decoding and reduction work runs on a separate pool bounded by the number of
+     * available processors; both order queued work by priority and share it fairly amongst worksheets.
+     */
+    SPLIT("Separate I/O and CPU pools");
+
+    private final String label;
+
+    ExecutorModes(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    /**
+     * Returns the enum entry corresponding to the provided string is it exists, otherwise returns the specified default.
+     *
+     * @param name         the string to try and get a corresponding an enum for.
+     * @param defaultValue the default to return is no entry matches the provided name.
+     * @return the enum entry corresponding to the provided string is it exists, otherwise returns the specified default.
+     */
+    public static ExecutorModes valueOf(String name, ExecutorModes defaultValue) {
+        Objects.requireNonNull(defaultValue, "Default value cannot be null.");
+        try {
+            return ExecutorModes.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+}
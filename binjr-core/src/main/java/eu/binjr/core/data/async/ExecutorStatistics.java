@@ -0,0 +1,88 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.core.data.async;
+
+/**
+ * A snapshot of the activity of one of the thread pools managed by {@link AsyncTaskManager}.
+ *
+ * @author Frederic Thevenet
+ */
+public class ExecutorStatistics {
+    private final String name;
+    private final int poolSize;
+    private final int activeCount;
+    private final int queueDepth;
+    private final long completedTaskCount;
+
+    ExecutorStatistics(String name, int poolSize, int activeCount, int queueDepth, long completedTaskCount) {
+        this.name = name;
+        this.poolSize = poolSize;
+        this.activeCount = activeCount;
+        this.queueDepth = queueDepth;
+        this.completedTaskCount = completedTaskCount;
+    }
+
+    /**
+     * Returns the name of the pool.
+     *
+     * @return the name of the pool.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the current number of threads in the pool.
+     *
+     * @return the current number of threads in the pool.
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Returns the approximate number of threads that are actively executing tasks.
+     *
+     * @return the approximate number of threads that are actively executing tasks.
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * Returns the number of tasks waiting to be executed.
+     *
+     * @return the number of tasks waiting to be executed.
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Returns the approximate total number of tasks that have completed execution.
+     *
+     * @return the approximate total number of tasks that have completed execution.
+     */
+    public long getCompletedTaskCount() {
+        return completedTaskCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: threads=%d, active=%d, queued=%d, completed=%d",
+                name, poolSize, activeCount, queueDepth, completedTaskCount);
+    }
+}
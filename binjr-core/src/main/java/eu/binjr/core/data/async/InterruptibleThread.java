@@ -0,0 +1,79 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package eu.binjr.core.data.async;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link Thread} that runs an action registered by the code it is currently executing whenever it is interrupted.
+ * <p>This allows blocking operations that do not respond to interruptions, such as socket I/O, to be aborted when the
+ * task that issued them is cancelled.</p>
+ *
+ * @author Frederic Thevenet
+ */
+public class InterruptibleThread extends Thread {
+    private final AtomicReference<Runnable> interruptAction = new AtomicReference<>();
+
+    /**
+     * Initializes a new instance of the {@link InterruptibleThread} class.
+     *
+     * @param target the object whose run method is invoked when this thread is started.
+     */
+    public InterruptibleThread(Runnable target) {
+        super(target);
+    }
+
+    @Override
+    public void interrupt() {
+        super.interrupt();
+        Runnable action = interruptAction.get();
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    /**
+     * Registers an action to run if the current thread is interrupted, until the returned {@link Registration} is closed.
+     * <p>If the current thread has already been interrupted, the action runs immediately. If it isn't an instance of
+     * {@link InterruptibleThread}, the action is never run.</p>
+     *
+     * @param action the action to run on interruption; it must be idempotent and thread-safe.
+     * @return a {@link Registration} to close once the action is no longer relevant.
+     */
+    public static Registration onInterrupt(Runnable action) {
+        Thread current = Thread.currentThread();
+        if (!(current instanceof InterruptibleThread)) {
+            return () -> {
+            };
+        }
+        InterruptibleThread thread = (InterruptibleThread) current;
+        thread.interruptAction.set(action);
+        if (thread.isInterrupted()) {
+            action.run();
+        }
+        return () -> thread.interruptAction.set(null);
+    }
+
+    /**
+     * A registered interruption action, which is unregistered when closed.
+     */
+    @FunctionalInterface
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.core.data.async;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded {@link ThreadPoolExecutor} that runs queued tasks by order of priority, shares threads fairly amongst the
+ * sources tasks are submitted on behalf of, and drops tasks whose deadline has passed by the time they are due to run.
+ * <p>Within a priority, tasks are ordered by start-time fair queuing: each source is given a virtual clock that
+ * advances by one with each of its queued tasks, so that a source which floods the queue only delays its own
+ * tasks, while tasks submitted without a source are never delayed by others.</p>
+ *
+ * @author Frederic Thevenet
+ */
+class PrioritizedExecutor extends ThreadPoolExecutor {
+    private static final Logger logger = LogManager.getLogger(PrioritizedExecutor.class);
+    private static final int MAX_TRACKED_SOURCES = 1024;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Object, Long> finishTags = new HashMap<>();
+    private long virtualTime = 0;
+
+    /**
+     * Initializes a new instance of the {@link PrioritizedExecutor} class.
+     *
+     * @param nbThreads     the number of threads in the pool.
+     * @param threadFactory the factory to use when the executor creates a new thread.
+     */
+    PrioritizedExecutor(int nbThreads, ThreadFactory threadFactory) {
+        super(nbThreads, nbThreads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), threadFactory);
+    }
+
+    /**
+     * Submits a task for execution.
+     *
+     * @param task     the task to run.
+     * @param priority the priority of the task.
+     * @param source   the source on behalf of which the task is run, or null.
+     * @return a {@link Future} representing the pending completion of the task.
+     */
+    Future<?> submit(Runnable task, TaskPriorities priority, Object source) {
+        return submit(task, priority, source, null);
+    }
+
+    /**
+     * Submits a task for execution, which is cancelled instead of being run if its deadline has passed by the time
+     * it is due to start.
+     * <p>If the task is itself a {@link Future}, such as a JavaFX {@link javafx.concurrent.Task}, it is cancelled
+     * as well.</p>
+     *
+     * @param task     the task to run.
+     * @param priority the priority of the task.
+     * @param source   the source on behalf of which the task is run, or null.
+     * @param deadline the instant after which the task should no longer be started, or null.
+     * @return a {@link Future} representing the pending completion of the task.
+     */
+    Future<?> submit(Runnable task, TaskPriorities priority, Object source, Instant deadline) {
+        PrioritizedTask<?> ftask = newPrioritizedTask(Executors.callable(task), task, priority, source, deadline);
+        execute(ftask);
+        return ftask;
+    }
+
+    /**
+     * Submits a value-returning task for execution.
+     *
+     * @param task     the task to run.
+     * @param priority the priority of the task.
+     * @param source   the source on behalf of which the task is run, or null.
+     * @param <T>      the type of the task's result.
+     * @return a {@link Future} representing the pending completion of the task.
+     */
+    <T> Future<T> submit(Callable<T> task, TaskPriorities priority, Object source) {
+        return submit(task, priority, source, null);
+    }
+
+    /**
+     * Submits a value-returning task for execution, which is cancelled instead of being run if its deadline has
+     * passed by the time it is due to start.
+     *
+     * @param task     the task to run.
+     * @param priority the priority of the task.
+     * @param source   the source on behalf of which the task is run, or null.
+     * @param deadline the instant after which the task should no longer be started, or null.
+     * @param <T>      the type of the task's result.
+     * @return a {@link Future} representing the pending completion of the task.
+     */
+    <T> Future<T> submit(Callable<T> task, TaskPriorities priority, Object source, Instant deadline) {
+        PrioritizedTask<T> ftask = newPrioritizedTask(task, task, priority, source, deadline);
+        execute(ftask);
+        return ftask;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof PrioritizedTask) {
+            super.execute(command);
+        } else {
+            super.execute(newPrioritizedTask(Executors.callable(command), command, AsyncTaskManager.getCurrentPriority(), AsyncTaskManager.getCurrentSource(), null));
+        }
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return newPrioritizedTask(callable, callable, AsyncTaskManager.getCurrentPriority(), AsyncTaskManager.getCurrentSource(), null);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return newPrioritizedTask(Executors.callable(runnable, value), runnable, AsyncTaskManager.getCurrentPriority(), AsyncTaskManager.getCurrentSource(), null);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        if (r instanceof PrioritizedTask) {
+            PrioritizedTask<?> task = (PrioritizedTask<?>) r;
+            synchronized (finishTags) {
+                virtualTime = Math.max(virtualTime, task.startTag);
+                if (finishTags.size() > MAX_TRACKED_SOURCES) {
+                    // Forget about sources that have been idle long enough not to have any advance left
+                    finishTags.values().removeIf(tag -> tag <= virtualTime);
+                }
+            }
+            if (task.deadline != null && Instant.now().isAfter(task.deadline)) {
+                logger.debug(() -> "Dropping task " + task.action + ": its deadline has passed (" + task.deadline + ")");
+                // A cancelled FutureTask returns from run() without invoking its callable
+                task.expire();
+            }
+            AsyncTaskManager.setCurrentPriority(task.priority);
+            AsyncTaskManager.setCurrentSource(task.source);
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        AsyncTaskManager.setCurrentPriority(null);
+        AsyncTaskManager.setCurrentSource(null);
+        super.afterExecute(r, t);
+    }
+
+    private <T> PrioritizedTask<T> newPrioritizedTask(Callable<T> callable, Object action, TaskPriorities priority, Object source, Instant deadline) {
+        long startTag;
+        synchronized (finishTags) {
+            if (source == null) {
+                startTag = virtualTime;
+            } else {
+                startTag = Math.max(virtualTime, finishTags.getOrDefault(source, 0L));
+                finishTags.put(source, startTag + 1);
+            }
+        }
+        return new PrioritizedTask<>(callable, action, priority, source, startTag, sequence.getAndIncrement(), deadline);
+    }
+
+    private static class PrioritizedTask<T> extends FutureTask<T> implements Comparable<PrioritizedTask<?>> {
+        private final Object action;
+        private final TaskPriorities priority;
+        private final Object source;
+        private final long startTag;
+        private final long seq;
+        private final Instant deadline;
+
+        private PrioritizedTask(Callable<T> callable, Object action, TaskPriorities priority, Object source, long startTag, long seq, Instant deadline) {
+            super(callable);
+            this.action = action;
+            this.priority = priority;
+            this.source = source;
+            this.startTag = startTag;
+            this.seq = seq;
+            this.deadline = deadline;
+        }
+
+        private void expire() {
+            // Let wrapped futures, such as JavaFX tasks, know that they won't run, before waking up callers
+            // waiting on this one.
+            if (action instanceof Future) {
+                ((Future<?>) action).cancel(false);
+            }
+            cancel(false);
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask<?> other) {
+            int res = priority.compareTo(other.priority);
+            if (res == 0) {
+                res = Long.compare(startTag, other.startTag);
+            }
+            if (res == 0) {
+                res = Long.compare(seq, other.seq);
+            }
+            return res;
+        }
+    }
+}
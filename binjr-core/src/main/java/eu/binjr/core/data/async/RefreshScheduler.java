@@ -0,0 +1,157 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package eu.binjr.core.data.async;
+
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
+import javafx.event.EventHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Schedules refresh tasks on the {@link AsyncTaskManager} so that at most one is outstanding for any given key.
+ * <p>Submitting a new task for a key cancels the previous one: if it has not started yet it never will, so that
+ * bursts of requests are coalesced, and if it is running it is interrupted. Only the outcome of the latest task
+ * submitted for a key is ever delivered to the callbacks.</p>
+ * <p><b>Remark:</b> All methods must be invoked on the JavaFX application thread.</p>
+ *
+ * @param <K> the type of the keys identifying the refreshed objects.
+ * @author Frederic Thevenet
+ */
+public class RefreshScheduler<K> implements Closeable {
+    private static final Logger logger = LogManager.getLogger(RefreshScheduler.class);
+    private final Map<K, Future<?>> outstanding = new HashMap<>();
+
+    /**
+     * Submits a refresh action for the specified key, cancelling any outstanding one for the same key.
+     *
+     * @param key         the key identifying the refreshed object.
+     * @param action      an action as a {@link Callable} instance to be run asynchronously.
+     * @param onSucceeded a callback to handle success.
+     * @param onFailed    a callback to handle failure.
+     * @param <V>         the parameter type for the task.
+     */
+    public <V> void submit(K key, Callable<V> action, EventHandler<WorkerStateEvent> onSucceeded, EventHandler<WorkerStateEvent> onFailed) {
+        submit(key, TaskPriorities.NORMAL, null, action, onSucceeded, onFailed);
+    }
+
+    /**
+     * Submits a refresh action for the specified key with the specified priority, cancelling any outstanding one for
+     * the same key.
+     *
+     * @param key         the key identifying the refreshed object.
+     * @param priority    the priority of the refresh action.
+     * @param source      the source on behalf of which the refresh is run (e.g. a worksheet), or null.
+     * @param action      an action as a {@link Callable} instance to be run asynchronously.
+     * @param onSucceeded a callback to handle success.
+     * @param onFailed    a callback to handle failure.
+     * @param <V>         the parameter type for the task.
+     */
+    public <V> void submit(K key, TaskPriorities priority, Object source, Callable<V> action, EventHandler<WorkerStateEvent> onSucceeded, EventHandler<WorkerStateEvent> onFailed) {
+        submit(key, priority, source, null, action, onSucceeded, onFailed, event -> {
+        });
+    }
+
+    /**
+     * Submits a refresh action for the specified key with the specified priority and deadline, cancelling any
+     * outstanding one for the same key.
+     * <p>If the deadline has passed by the time the action is due to start, it is dropped and {@code onExpired} is
+     * invoked instead of the other callbacks.</p>
+     *
+     * @param key         the key identifying the refreshed object.
+     * @param priority    the priority of the refresh action.
+     * @param source      the source on behalf of which the refresh is run (e.g. a worksheet), or null.
+     * @param deadline    the instant after which the refresh action should no longer be started, or null.
+     * @param action      an action as a {@link Callable} instance to be run asynchronously.
+     * @param onSucceeded a callback to handle success.
+     * @param onFailed    a callback to handle failure.
+     * @param onExpired   a callback to handle the action being dropped because its deadline has passed.
+     * @param <V>         the parameter type for the task.
+     */
+    public <V> void submit(K key,
+                           TaskPriorities priority,
+                           Object source,
+                           Instant deadline,
+                           Callable<V> action,
+                           EventHandler<WorkerStateEvent> onSucceeded,
+                           EventHandler<WorkerStateEvent> onFailed,
+                           EventHandler<WorkerStateEvent> onExpired) {
+        cancel(key);
+        Task<V> task = new Task<V>() {
+            @Override
+            protected V call() throws Exception {
+                return action.call();
+            }
+        };
+        task.setOnSucceeded(event -> {
+            if (complete(key, event)) {
+                onSucceeded.handle(event);
+            }
+        });
+        task.setOnFailed(event -> {
+            if (complete(key, event)) {
+                onFailed.handle(event);
+            }
+        });
+        // Superseded tasks are no longer outstanding once cancelled, so only expired ones get through.
+        task.setOnCancelled(event -> {
+            if (complete(key, event)) {
+                onExpired.handle(event);
+            }
+        });
+        outstanding.put(key, task);
+        AsyncTaskManager.getInstance().submit(task, priority, source, deadline);
+    }
+
+    /**
+     * Cancels the outstanding refresh task for the specified key, if any.
+     *
+     * @param key the key identifying the refreshed object.
+     */
+    public void cancel(K key) {
+        Future<?> task = outstanding.remove(key);
+        if (task != null && !task.isDone()) {
+            logger.trace(() -> "Cancelling superseded refresh task for " + key);
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Cancels all outstanding refresh tasks.
+     */
+    @Override
+    public void close() {
+        outstanding.values().forEach(task -> task.cancel(true));
+        outstanding.clear();
+    }
+
+    private boolean complete(K key, WorkerStateEvent event) {
+        if (outstanding.get(key) != event.getSource()) {
+            logger.trace(() -> "Discarding outcome of superseded refresh task for " + key);
+            return false;
+        }
+        outstanding.remove(key);
+        return true;
+    }
+}
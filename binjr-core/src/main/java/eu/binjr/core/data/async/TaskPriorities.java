@@ -0,0 +1,66 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.core.data.async;
+
+import java.util.Objects;
+
+/**
+ * An enumeration of the priorities with which tasks can be submitted to the {@link AsyncTaskManager}, from highest to
+ * lowest.
+ *
+ * @author Frederic Thevenet
+ */
+public enum TaskPriorities {
+    /**
+     * Work on behalf of what is currently visible on screen.
+     */
+    VISIBLE("Visible"),
+    /**
+     * Work on behalf of the other open worksheets, as well as any user initiated task.
+     */
+    NORMAL("Normal"),
+    /**
+     * Work whose outcome isn't immediately needed, such as prefetching or checking for updates.
+     */
+    BACKGROUND("Background");
+
+    private final String label;
+
+    TaskPriorities(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    /**
+     * Returns the enum entry corresponding to the provided string is it exists, otherwise returns the specified default.
+     *
+     * @param name         the string to try and get a corresponding an enum for.
+     * @param defaultValue the default to return is no entry matches the provided name.
+     * @return the enum entry corresponding to the provided string is it exists, otherwise returns the specified default.
+     */
+    public static TaskPriorities valueOf(String name, TaskPriorities defaultValue) {
+        Objects.requireNonNull(defaultValue, "Default value cannot be null.");
+        try {
+            return TaskPriorities.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -13,7 +13,6 @@
  *    See the License for the specific language governing permissions and
  *    limitations under the License.
  */
-
 package eu.binjr.core.data.codec;
 
 import eu.binjr.core.data.exceptions.DecodingDataFromAdapterException;
@@ -22,39 +21,44 @@ import eu.binjr.core.data.timeseries.TimeSeriesProcessorFactory;
 import eu.binjr.core.data.workspace.TimeSeriesInfo;
 import eu.binjr.common.function.CheckedFunction;
 import eu.binjr.common.logging.Profiler;
-import javafx.scene.chart.XYChart;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.*;
 import java.util.function.Consumer;
 
 /**
  * This class provides an implementation of a {@link Decoder} that decode data from a CSV formatted text stream into a {@link TimeSeriesProcessor}.
+ * <p>Records are read with a {@link CsvFieldReader}: column indices are resolved once from the header, and fields
+ * are parsed straight from its character buffer into primitive columns, which are then handed over to the
+ * {@link TimeSeriesProcessor} instances without further copying.</p>
  *
  * @author Frederic Thevenet
  */
 public class CsvDecoder implements Decoder {
+    private static final int INITIAL_COLUMN_CAPACITY = 1024;
     private final String encoding;
     private final char delimiter;
+    private final ZoneId zoneId;
     private final CheckedFunction<String, Double, DecodingDataFromAdapterException> numberParser;
     private final CheckedFunction<String, ZonedDateTime, DecodingDataFromAdapterException> dateParser;
+    private final NumberParser fieldNumberParser;
+    private final TimeStampParser fieldTimeStampParser;
     private final TimeSeriesProcessorFactory timeSeriesFactory;
     private static final Logger logger = LogManager.getLogger(CsvDecoder.class);
 
     /**
      * Initializes a new instance of the {@link CsvDecoder} class.
+     * <p><b>Remark:</b> Since the provided parsers operate on {@link String} instances, a new one is created
+     * for each decoded field; prefer
+     * {@link #CsvDecoder(String, char, ZoneId, TimeSeriesProcessorFactory, NumberParser, TimeStampParser)}
+     * whenever possible.</p>
      *
      * @param encoding          the encoding used in the CSV stream
      * @param delimiter         the character to separate columns in the CSV stream
@@ -69,9 +73,44 @@ public class CsvDecoder implements Decoder {
                       CheckedFunction<String, ZonedDateTime, DecodingDataFromAdapterException> dateParser) {
         this.encoding = encoding;
         this.delimiter = delimiter;
+        this.zoneId = null;
         this.timeSeriesFactory = timeSeriesFactory;
         this.numberParser = numberParser;
         this.dateParser = dateParser;
+        this.fieldNumberParser = (chars, offset, length) -> {
+            Double value = numberParser.apply(new String(chars, offset, length));
+            return value == null ? Double.NaN : value;
+        };
+        this.fieldTimeStampParser = (chars, offset, length) ->
+                dateParser.apply(new String(chars, offset, length)).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Initializes a new instance of the {@link CsvDecoder} class, with parsers operating directly on the
+     * decoder's character buffer.
+     *
+     * @param encoding          the encoding used in the CSV stream
+     * @param delimiter         the character to separate columns in the CSV stream
+     * @param zoneId            the time zone of the decoded time series
+     * @param timeSeriesFactory the factory used to fromUrl new {@link TimeSeriesProcessor} instances.
+     * @param numberParser      the function used to parse numbers from the CSV stream
+     * @param timeStampParser   the function used to parse time stamps from the CSV stream
+     */
+    public CsvDecoder(String encoding,
+                      char delimiter,
+                      ZoneId zoneId,
+                      TimeSeriesProcessorFactory timeSeriesFactory,
+                      NumberParser numberParser,
+                      TimeStampParser timeStampParser) {
+        this.encoding = encoding;
+        this.delimiter = delimiter;
+        this.zoneId = Objects.requireNonNull(zoneId);
+        this.timeSeriesFactory = timeSeriesFactory;
+        this.fieldNumberParser = numberParser;
+        this.fieldTimeStampParser = timeStampParser;
+        this.numberParser = s -> numberParser.parse(s.toCharArray(), 0, s.length());
+        this.dateParser = s -> ZonedDateTime.ofInstant(
+                Instant.ofEpochMilli(timeStampParser.parse(s.toCharArray(), 0, s.length())), zoneId);
     }
 
     /**
@@ -83,38 +122,57 @@ public class CsvDecoder implements Decoder {
      * @throws DecodingDataFromAdapterException if an error occurred while decoding the CSV file.
      */
     public List<String> getDataColumnHeaders(InputStream in) throws IOException, DecodingDataFromAdapterException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, encoding))) {
-            CSVFormat csvFormat = CSVFormat.DEFAULT
-                    .withAllowMissingColumnNames(false)
-                    .withDelimiter(delimiter);
-            Iterable<CSVRecord> records = csvFormat.parse(reader);
-            return this.parseColumnHeaders(records.iterator().next());
+        try (CsvFieldReader reader = new CsvFieldReader(new InputStreamReader(in, encoding), delimiter)) {
+            return this.parseColumnHeaders(reader);
         }
     }
 
     @Override
     public Map<TimeSeriesInfo, TimeSeriesProcessor> decode(InputStream in, List<TimeSeriesInfo> seriesInfo) throws IOException, DecodingDataFromAdapterException {
         try (Profiler ignored = Profiler.start("Building time series from csv data", logger::trace)) {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, encoding))) {
-                CSVFormat csvFormat = CSVFormat.DEFAULT
-                        .withAllowMissingColumnNames(false)
-                        .withFirstRecordAsHeader()
-                        .withSkipHeaderRecord()
-                        .withDelimiter(delimiter);
-                Iterable<CSVRecord> records = csvFormat.parse(reader);
+            try (CsvFieldReader reader = new CsvFieldReader(new InputStreamReader(in, encoding), delimiter)) {
+                List<String> labels = new ArrayList<>(seriesInfo.size());
+                for (TimeSeriesInfo info : seriesInfo) {
+                    labels.add(info.getBinding().getLabel());
+                }
+                int[] columns = resolveColumns(reader, labels);
+                int nbSeries = columns.length;
+                long[] timeStamps = new long[INITIAL_COLUMN_CAPACITY];
+                double[][] values = new double[nbSeries][INITIAL_COLUMN_CAPACITY];
+                int nbPoints = 0;
+                ZoneId zone = this.zoneId;
+                while (reader.nextRecord()) {
+                    if (nbPoints == timeStamps.length) {
+                        int newCapacity = nbPoints + (nbPoints >> 1);
+                        timeStamps = Arrays.copyOf(timeStamps, newCapacity);
+                        for (int s = 0; s < nbSeries; s++) {
+                            values[s] = Arrays.copyOf(values[s], newCapacity);
+                        }
+                    }
+                    if (zone == null) {
+                        zone = dateParser.apply(reader.getField(0)).getZone();
+                    }
+                    char[] buffer = reader.getBuffer();
+                    timeStamps[nbPoints] = fieldTimeStampParser.parse(buffer, reader.getFieldOffset(0), reader.getFieldLength(0));
+                    for (int s = 0; s < nbSeries; s++) {
+                        values[s][nbPoints] = parseCell(reader, buffer, columns[s]);
+                    }
+                    nbPoints++;
+                }
                 Map<TimeSeriesInfo, TimeSeriesProcessor> series = new HashMap<>();
-                final AtomicLong nbpoints = new AtomicLong(0);
-                for (CSVRecord csvRecord : records) {
-                    nbpoints.incrementAndGet();
-                    ZonedDateTime timeStamp = dateParser.apply(csvRecord.get(0));
-                    for (TimeSeriesInfo info : seriesInfo) {
-                        Double val = numberParser.apply(csvRecord.get(info.getBinding().getLabel()));
-                        XYChart.Data<ZonedDateTime, Double> point = new XYChart.Data<>(timeStamp, val);
-                        TimeSeriesProcessor l = series.computeIfAbsent(info, k -> timeSeriesFactory.create());
-                        l.addSample(point);
+                if (nbPoints > 0) {
+                    // Time stamps are shared by all series: trimming them guarantees that the processors will copy
+                    // them before appending any new sample.
+                    long[] sharedTimeStamps = Arrays.copyOf(timeStamps, nbPoints);
+                    for (int s = 0; s < nbSeries; s++) {
+                        TimeSeriesProcessor processor = timeSeriesFactory.create();
+                        processor.setZoneId(zone);
+                        processor.setData(sharedTimeStamps, Arrays.copyOf(values[s], nbPoints), nbPoints);
+                        series.put(seriesInfo.get(s), processor);
                     }
                 }
-                logger.trace(() -> String.format("Built %d series with %d samples each (%d total samples)", seriesInfo.size(), nbpoints.get(), seriesInfo.size() * nbpoints.get()));
+                final int totalPoints = nbPoints;
+                logger.trace(() -> String.format("Built %d series with %d samples each (%d total samples)", nbSeries, totalPoints, (long) nbSeries * totalPoints));
                 return series;
             }
         }
@@ -131,19 +189,20 @@ public class CsvDecoder implements Decoder {
      */
     public void decode(InputStream in, List<String> headers, Consumer<DataSample> mapToResult) throws IOException, DecodingDataFromAdapterException {
         try (Profiler ignored = Profiler.start("Building time series from csv data", logger::trace)) {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, encoding))) {
-                CSVFormat csvFormat = CSVFormat.DEFAULT
-                        .withAllowMissingColumnNames(false)
-                        .withFirstRecordAsHeader()
-                        .withSkipHeaderRecord()
-                        .withDelimiter(delimiter);
-                Iterable<CSVRecord> records = csvFormat.parse(reader);
-
-                for (CSVRecord csvRecord : records) {
-                    ZonedDateTime timeStamp = dateParser.apply(csvRecord.get(0));
+            try (CsvFieldReader reader = new CsvFieldReader(new InputStreamReader(in, encoding), delimiter)) {
+                int[] columns = resolveColumns(reader, headers);
+                while (reader.nextRecord()) {
+                    char[] buffer = reader.getBuffer();
+                    ZonedDateTime timeStamp;
+                    if (zoneId == null) {
+                        timeStamp = dateParser.apply(reader.getField(0));
+                    } else {
+                        timeStamp = ZonedDateTime.ofInstant(Instant.ofEpochMilli(
+                                fieldTimeStampParser.parse(buffer, reader.getFieldOffset(0), reader.getFieldLength(0))), zoneId);
+                    }
                     DataSample tRecord = new DataSample(timeStamp);
-                    for (String h : headers) {
-                        tRecord.getCells().put(h, numberParser.apply(csvRecord.get(h)));
+                    for (int i = 0; i < columns.length; i++) {
+                        tRecord.getCells().put(headers.get(i), parseCell(reader, buffer, columns[i]));
                     }
                     mapToResult.accept(tRecord);
                 }
@@ -187,14 +246,41 @@ public class CsvDecoder implements Decoder {
         return dateParser;
     }
 
-    private List<String> parseColumnHeaders(CSVRecord record) throws IOException, DecodingDataFromAdapterException {
+    private double parseCell(CsvFieldReader reader, char[] buffer, int column) throws DecodingDataFromAdapterException {
+        if (column >= reader.getFieldCount()) {
+            // Missing trailing cells
+            return Double.NaN;
+        }
+        return fieldNumberParser.parse(buffer, reader.getFieldOffset(column), reader.getFieldLength(column));
+    }
+
+    private int[] resolveColumns(CsvFieldReader reader, List<String> names) throws IOException, DecodingDataFromAdapterException {
+        if (!reader.nextRecord()) {
+            throw new DecodingDataFromAdapterException("CSV stream does not contains column header");
+        }
+        Map<String, Integer> headerIndices = new HashMap<>();
+        for (int i = 0; i < reader.getFieldCount(); i++) {
+            headerIndices.putIfAbsent(reader.getField(i), i);
+        }
+        int[] columns = new int[names.size()];
+        for (int i = 0; i < columns.length; i++) {
+            Integer index = headerIndices.get(names.get(i));
+            if (index == null) {
+                throw new DecodingDataFromAdapterException("Could not find a column named \"" + names.get(i) + "\" in CSV stream");
+            }
+            columns[i] = index;
+        }
+        return columns;
+    }
+
+    private List<String> parseColumnHeaders(CsvFieldReader reader) throws IOException, DecodingDataFromAdapterException {
         try (Profiler ignored = Profiler.start("Getting hearders from csv data", logger::trace)) {
-            if (record == null) {
+            if (!reader.nextRecord()) {
                 throw new DecodingDataFromAdapterException("CSV stream does not contains column header");
             }
             List<String> headerNames = new ArrayList<>();
-            for (int i = 1; i < record.size(); i++) {
-                headerNames.add(record.get(i));
+            for (int i = 1; i < reader.getFieldCount(); i++) {
+                headerNames.add(reader.getField(i));
             }
             return headerNames;
         }
@@ -210,4 +296,38 @@ public class CsvDecoder implements Decoder {
         }
         return null;
     }
+
+    /**
+     * A function that parses a number from a range of characters.
+     */
+    @FunctionalInterface
+    public interface NumberParser {
+        /**
+         * Parses a number from the specified range of a character array.
+         *
+         * @param chars  the characters to parse.
+         * @param offset the index of the first character to parse.
+         * @param length the number of characters to parse.
+         * @return the parsed value.
+         * @throws DecodingDataFromAdapterException if the characters cannot be parsed.
+         */
+        double parse(char[] chars, int offset, int length) throws DecodingDataFromAdapterException;
+    }
+
+    /**
+     * A function that parses a time stamp from a range of characters.
+     */
+    @FunctionalInterface
+    public interface TimeStampParser {
+        /**
+         * Parses a time stamp from the specified range of a character array.
+         *
+         * @param chars  the characters to parse.
+         * @param offset the index of the first character to parse.
+         * @param length the number of characters to parse.
+         * @return the parsed time stamp, in milliseconds since the epoch.
+         * @throws DecodingDataFromAdapterException if the characters cannot be parsed.
+         */
+        long parse(char[] chars, int offset, int length) throws DecodingDataFromAdapterException;
+    }
 }
@@ -0,0 +1,269 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package eu.binjr.core.data.codec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A forward-only reader for CSV formatted text, which exposes the fields of the current record as ranges of a
+ * reusable character buffer rather than as {@link String} instances.
+ * <p>Fields may be enclosed in double quotes, in which case they can contain delimiters, line breaks and escaped
+ * ({@code ""}) double quotes. Empty lines are skipped.</p>
+ * <p><b>Remark:</b> The content of the buffer returned by {@link #getBuffer()} is only valid until the next call
+ * to {@link #nextRecord()}.</p>
+ *
+ * @author Frederic Thevenet
+ */
+public final class CsvFieldReader implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final char QUOTE = '"';
+    private final Reader reader;
+    private final char delimiter;
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfStream;
+    private int fieldCount;
+    private int[] fieldOffsets = new int[16];
+    private int[] fieldLengths = new int[16];
+    private boolean[] fieldQuoted = new boolean[16];
+
+    /**
+     * Initializes a new instance of the {@link CsvFieldReader} class.
+     *
+     * @param reader    the {@link Reader} to read CSV formatted text from.
+     * @param delimiter the character to separate fields in a record.
+     */
+    public CsvFieldReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+        this.buffer = new char[DEFAULT_BUFFER_SIZE];
+    }
+
+    /**
+     * Advances to the next non-empty record.
+     *
+     * @return true if a record was read, false if the end of the stream was reached.
+     * @throws IOException in the event of an I/O error.
+     */
+    public boolean nextRecord() throws IOException {
+        while (true) {
+            int next = scanRecord();
+            if (next < 0) {
+                if (endOfStream && position >= limit) {
+                    fieldCount = 0;
+                    return false;
+                }
+                fill();
+                continue;
+            }
+            position = next;
+            if (fieldCount == 1 && fieldLengths[0] == 0 && !fieldQuoted[0]) {
+                // Skip empty lines
+                continue;
+            }
+            unescapeQuotedFields();
+            return true;
+        }
+    }
+
+    /**
+     * Returns the number of fields in the current record.
+     *
+     * @return the number of fields in the current record.
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns the buffer holding the fields of the current record.
+     *
+     * @return the buffer holding the fields of the current record.
+     */
+    public char[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the offset in the buffer of the field at the specified index.
+     *
+     * @param index the index of the field in the current record.
+     * @return the offset in the buffer of the field at the specified index.
+     */
+    public int getFieldOffset(int index) {
+        checkIndex(index);
+        return fieldOffsets[index];
+    }
+
+    /**
+     * Returns the length of the field at the specified index.
+     *
+     * @param index the index of the field in the current record.
+     * @return the length of the field at the specified index.
+     */
+    public int getFieldLength(int index) {
+        checkIndex(index);
+        return fieldLengths[index];
+    }
+
+    /**
+     * Returns the field at the specified index as a new {@link String} instance.
+     *
+     * @param index the index of the field in the current record.
+     * @return the field at the specified index.
+     */
+    public String getField(int index) {
+        checkIndex(index);
+        return new String(buffer, fieldOffsets[index], fieldLengths[index]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Finds the boundaries of the fields in the record starting at the current position, without altering the buffer.
+     *
+     * @return the position following the record, or -1 if more characters must be read to complete the record.
+     */
+    private int scanRecord() {
+        fieldCount = 0;
+        if (position >= limit) {
+            return -1;
+        }
+        int i = position;
+        while (true) {
+            if (i < limit && buffer[i] == QUOTE) {
+                int start = ++i;
+                int end = -1;
+                while (i < limit) {
+                    if (buffer[i] == QUOTE) {
+                        if (i + 1 >= limit && !endOfStream) {
+                            return -1;
+                        }
+                        if (i + 1 < limit && buffer[i + 1] == QUOTE) {
+                            i += 2;
+                            continue;
+                        }
+                        end = i++;
+                        break;
+                    }
+                    i++;
+                }
+                if (end < 0) {
+                    if (!endOfStream) {
+                        return -1;
+                    }
+                    // Unterminated quote at the end of the stream: take whatever is left
+                    end = limit;
+                }
+                addField(start, end - start, true);
+                // Ignore any character between the closing quote and the end of the field
+                while (i < limit && !isFieldEnd(buffer[i])) {
+                    i++;
+                }
+            } else {
+                int start = i;
+                while (i < limit && !isFieldEnd(buffer[i])) {
+                    i++;
+                }
+                addField(start, i - start, false);
+            }
+            if (i >= limit) {
+                return endOfStream ? limit : -1;
+            }
+            char c = buffer[i++];
+            if (c == delimiter) {
+                continue;
+            }
+            if (c == '\r') {
+                if (i >= limit && !endOfStream) {
+                    return -1;
+                }
+                if (i < limit && buffer[i] == '\n') {
+                    i++;
+                }
+            }
+            return i;
+        }
+    }
+
+    private boolean isFieldEnd(char c) {
+        return c == delimiter || c == '\n' || c == '\r';
+    }
+
+    private void addField(int offset, int length, boolean quoted) {
+        if (fieldCount == fieldOffsets.length) {
+            int newCapacity = fieldCount * 2;
+            fieldOffsets = Arrays.copyOf(fieldOffsets, newCapacity);
+            fieldLengths = Arrays.copyOf(fieldLengths, newCapacity);
+            fieldQuoted = Arrays.copyOf(fieldQuoted, newCapacity);
+        }
+        fieldOffsets[fieldCount] = offset;
+        fieldLengths[fieldCount] = length;
+        fieldQuoted[fieldCount] = quoted;
+        fieldCount++;
+    }
+
+    private void unescapeQuotedFields() {
+        for (int f = 0; f < fieldCount; f++) {
+            if (!fieldQuoted[f]) {
+                continue;
+            }
+            int read = fieldOffsets[f];
+            int end = read + fieldLengths[f];
+            int write = read;
+            while (read < end) {
+                char c = buffer[read++];
+                if (c == QUOTE && read < end && buffer[read] == QUOTE) {
+                    read++;
+                }
+                buffer[write++] = c;
+            }
+            fieldLengths[f] = write - fieldOffsets[f];
+        }
+    }
+
+    private void fill() throws IOException {
+        if (position > 0) {
+            // Move the incomplete record to the front of the buffer
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfStream = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Field count: " + fieldCount);
+        }
+    }
+}
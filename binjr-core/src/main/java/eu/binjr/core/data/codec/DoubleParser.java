@@ -0,0 +1,140 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package eu.binjr.core.data.codec;
+
+/**
+ * Parses decimal numbers from ranges of a character array, without allocating intermediate {@link String} instances.
+ * <p>Numbers with up to 18 significant digits and a decimal exponent within [-22, 22], which covers the vast majority
+ * of the values found in CSV exports, are converted exactly with a single floating point operation.
+ * Any other input is handed over to {@link Double#parseDouble(String)}, so that results and errors are always
+ * identical to it.</p>
+ *
+ * @author Frederic Thevenet
+ */
+public final class DoubleParser {
+    private static final int MAX_SIGNIFICANT_DIGITS = 18;
+    private static final int MAX_FAST_EXPONENT = 22;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+            1e21, 1e22
+    };
+
+    private DoubleParser() {
+    }
+
+    /**
+     * Parses a decimal number from the specified range of a character array.
+     *
+     * @param chars  the characters to parse.
+     * @param offset the index of the first character to parse.
+     * @param length the number of characters to parse.
+     * @return the parsed value.
+     * @throws NumberFormatException if the characters do not represent a valid number.
+     */
+    public static double parse(char[] chars, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        // Leading and trailing whitespaces are ignored, like Double.parseDouble does
+        while (i < end && chars[i] <= ' ') {
+            i++;
+        }
+        while (end > i && chars[end - 1] <= ' ') {
+            end--;
+        }
+        if (i == end) {
+            return slowParse(chars, offset, length);
+        }
+        boolean negative = false;
+        if (chars[i] == '-' || chars[i] == '+') {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        char c;
+        while (i < end && (c = chars[i]) >= '0' && c <= '9') {
+            hasDigits = true;
+            if (mantissa != 0 || c != '0') {
+                if (++significantDigits > MAX_SIGNIFICANT_DIGITS) {
+                    return slowParse(chars, offset, length);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+            }
+            i++;
+        }
+        if (i < end && chars[i] == '.') {
+            i++;
+            while (i < end && (c = chars[i]) >= '0' && c <= '9') {
+                hasDigits = true;
+                if (mantissa != 0 || c != '0') {
+                    if (++significantDigits > MAX_SIGNIFICANT_DIGITS) {
+                        return slowParse(chars, offset, length);
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                exponent--;
+                i++;
+            }
+        }
+        if (!hasDigits) {
+            // NaN, Infinity, hexadecimal notation or invalid input
+            return slowParse(chars, offset, length);
+        }
+        if (i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+                negativeExponent = chars[i] == '-';
+                i++;
+            }
+            int explicitExponent = 0;
+            int exponentStart = i;
+            while (i < end && (c = chars[i]) >= '0' && c <= '9') {
+                if (explicitExponent > 10_000) {
+                    return slowParse(chars, offset, length);
+                }
+                explicitExponent = explicitExponent * 10 + (c - '0');
+                i++;
+            }
+            if (i == exponentStart) {
+                return slowParse(chars, offset, length);
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (i != end) {
+            // Type suffixes or invalid input
+            return slowParse(chars, offset, length);
+        }
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (mantissa < MAX_EXACT_MANTISSA && exponent >= -MAX_FAST_EXPONENT && exponent <= MAX_FAST_EXPONENT) {
+            // Both operands are exact, so the result of a single operation is correctly rounded
+            double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        return slowParse(chars, offset, length);
+    }
+
+    private static double slowParse(char[] chars, int offset, int length) {
+        return Double.parseDouble(new String(chars, offset, length));
+    }
+}
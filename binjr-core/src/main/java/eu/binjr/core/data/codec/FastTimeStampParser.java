@@ -0,0 +1,355 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package eu.binjr.core.data.codec;
+
+import eu.binjr.core.data.exceptions.DecodingDataFromAdapterException;
+
+import java.nio.CharBuffer;
+import java.time.*;
+import java.time.chrono.IsoChronology;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * A {@link CsvDecoder.TimeStampParser} that converts the digits of common time stamp formats straight into
+ * milliseconds since the epoch, instead of resolving every field through a {@link DateTimeFormatter}.
+ * <p>The following patterns are recognized:</p>
+ * <ul>
+ * <li>{@code yyyy-MM-dd HH:mm:ss} and {@code yyyy-MM-dd'T'HH:mm:ss}, optionally followed by {@code .SSS}</li>
+ * <li>{@link #ISO_8601}: an ISO-8601 date and time, with an optional fraction of a second and an optional offset</li>
+ * <li>{@link #EPOCH_SECONDS} and {@link #EPOCH_MILLIS}: a number of seconds or milliseconds since the epoch</li>
+ * </ul>
+ * <p>Any other pattern is handled by a {@link DateTimeFormatter}.
+ * Local date and times are converted using the offset of the time zone for the day they belong to, which is cached
+ * for as long as consecutive time stamps belong to the same day, unless that day contains a transition; in which
+ * case local times in a gap or an overlap are resolved the same way {@link ZonedDateTime#ofLocal} does.</p>
+ *
+ * @author Frederic Thevenet
+ */
+public final class FastTimeStampParser implements CsvDecoder.TimeStampParser {
+    /**
+     * The pattern for ISO-8601 date and times, e.g. {@code 2019-03-31T02:30:00.250+02:00}.
+     */
+    public static final String ISO_8601 = "ISO_8601";
+    /**
+     * The pattern for a number of seconds since the epoch.
+     */
+    public static final String EPOCH_SECONDS = "EPOCH_SECONDS";
+    /**
+     * The pattern for a number of milliseconds since the epoch.
+     */
+    public static final String EPOCH_MILLIS = "EPOCH_MILLIS";
+    private static final int SECONDS_PER_DAY = 86400;
+
+    private final Format format;
+    private final char dateTimeSeparator;
+    private final ZoneId zoneId;
+    private final ZoneRules rules;
+    private final DateTimeFormatter formatter;
+    private DayOffset cachedOffset;
+
+    private enum Format {
+        LOCAL_SECONDS,
+        LOCAL_MILLIS,
+        ISO_8601,
+        EPOCH_SECONDS,
+        EPOCH_MILLIS,
+        FORMATTER
+    }
+
+    private FastTimeStampParser(Format format, char dateTimeSeparator, ZoneId zoneId, DateTimeFormatter formatter) {
+        this.format = format;
+        this.dateTimeSeparator = dateTimeSeparator;
+        this.zoneId = zoneId;
+        this.rules = zoneId.getRules();
+        this.formatter = formatter;
+    }
+
+    /**
+     * Returns a parser for the specified pattern and time zone.
+     *
+     * @param pattern the pattern of the time stamps; either one of the recognized patterns, or a pattern as
+     *                accepted by {@link DateTimeFormatter#ofPattern(String)}.
+     * @param zoneId  the time zone of local dates and times.
+     * @return a parser for the specified pattern and time zone.
+     */
+    public static FastTimeStampParser of(String pattern, ZoneId zoneId) {
+        switch (pattern) {
+            case "yyyy-MM-dd HH:mm:ss":
+                return new FastTimeStampParser(Format.LOCAL_SECONDS, ' ', zoneId, null);
+            case "yyyy-MM-dd'T'HH:mm:ss":
+                return new FastTimeStampParser(Format.LOCAL_SECONDS, 'T', zoneId, null);
+            case "yyyy-MM-dd HH:mm:ss.SSS":
+                return new FastTimeStampParser(Format.LOCAL_MILLIS, ' ', zoneId, null);
+            case "yyyy-MM-dd'T'HH:mm:ss.SSS":
+                return new FastTimeStampParser(Format.LOCAL_MILLIS, 'T', zoneId, null);
+            case ISO_8601:
+                return new FastTimeStampParser(Format.ISO_8601, 'T', zoneId, null);
+            case EPOCH_SECONDS:
+                return new FastTimeStampParser(Format.EPOCH_SECONDS, ' ', zoneId, null);
+            case EPOCH_MILLIS:
+                return new FastTimeStampParser(Format.EPOCH_MILLIS, ' ', zoneId, null);
+            default:
+                return new FastTimeStampParser(Format.FORMATTER, ' ', zoneId,
+                        DateTimeFormatter.ofPattern(pattern).withZone(zoneId));
+        }
+    }
+
+    @Override
+    public long parse(char[] chars, int offset, int length) throws DecodingDataFromAdapterException {
+        // Ignore surrounding whitespaces
+        int end = offset + length;
+        while (offset < end && chars[offset] <= ' ') {
+            offset++;
+        }
+        while (end > offset && chars[end - 1] <= ' ') {
+            end--;
+        }
+        switch (format) {
+            case LOCAL_SECONDS:
+                if (end - offset != 19) {
+                    throw invalid(chars, offset, end);
+                }
+                return toEpochMilli(parseLocalSeconds(chars, offset, end), 0);
+            case LOCAL_MILLIS:
+                if (end - offset != 23 || chars[offset + 19] != '.') {
+                    throw invalid(chars, offset, end);
+                }
+                return toEpochMilli(parseLocalSeconds(chars, offset, end), digits(chars, offset + 20, 3, end));
+            case ISO_8601:
+                return parseIso(chars, offset, end);
+            case EPOCH_SECONDS:
+                return parseEpoch(chars, offset, end, 1000);
+            case EPOCH_MILLIS:
+                return parseEpoch(chars, offset, end, 1);
+            case FORMATTER:
+            default:
+                try {
+                    return ZonedDateTime.parse(CharBuffer.wrap(chars, offset, end - offset), formatter).toInstant().toEpochMilli();
+                } catch (DateTimeParseException e) {
+                    throw new DecodingDataFromAdapterException("Failed to parse time stamp \"" + new String(chars, offset, end - offset) + "\": " + e.getMessage(), e);
+                }
+        }
+    }
+
+    /**
+     * Parses {@code yyyy-MM-dd?HH:mm:ss} into a number of seconds since the local epoch.
+     */
+    private long parseLocalSeconds(char[] chars, int offset, int end) throws DecodingDataFromAdapterException {
+        if (end - offset < 19 ||
+                chars[offset + 4] != '-' ||
+                chars[offset + 7] != '-' ||
+                chars[offset + 10] != dateTimeSeparator ||
+                chars[offset + 13] != ':' ||
+                chars[offset + 16] != ':') {
+            throw invalid(chars, offset, end);
+        }
+        int year = digits(chars, offset, 4, end);
+        int month = digits(chars, offset + 5, 2, end);
+        int day = digits(chars, offset + 8, 2, end);
+        int hour = digits(chars, offset + 11, 2, end);
+        int minute = digits(chars, offset + 14, 2, end);
+        int second = digits(chars, offset + 17, 2, end);
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month) ||
+                hour > 23 || minute > 59 || second > 59) {
+            throw invalid(chars, offset, end);
+        }
+        return epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+    }
+
+    private long parseIso(char[] chars, int offset, int end) throws DecodingDataFromAdapterException {
+        long localSeconds = parseLocalSeconds(chars, offset, end);
+        int i = offset + 19;
+        int millis = 0;
+        if (i < end && (chars[i] == '.' || chars[i] == ',')) {
+            int start = ++i;
+            while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+                if (i - start < 3) {
+                    millis = millis * 10 + (chars[i] - '0');
+                }
+                i++;
+            }
+            if (i == start || i - start > 9) {
+                throw invalid(chars, offset, end);
+            }
+            for (int n = i - start; n < 3; n++) {
+                millis *= 10;
+            }
+        }
+        if (i == end) {
+            return toEpochMilli(localSeconds, millis);
+        }
+        int offsetSeconds;
+        if (chars[i] == 'Z' && i + 1 == end) {
+            offsetSeconds = 0;
+        } else if (chars[i] == '+' || chars[i] == '-') {
+            int sign = chars[i] == '-' ? -1 : 1;
+            int hours = digits(chars, i + 1, 2, end);
+            int minutes = 0;
+            int remaining = end - (i + 3);
+            if (remaining == 3 && chars[i + 3] == ':') {
+                minutes = digits(chars, i + 4, 2, end);
+            } else if (remaining == 2) {
+                minutes = digits(chars, i + 3, 2, end);
+            } else if (remaining != 0) {
+                throw invalid(chars, offset, end);
+            }
+            if (hours > 18 || minutes > 59) {
+                throw invalid(chars, offset, end);
+            }
+            offsetSeconds = sign * (hours * 3600 + minutes * 60);
+        } else {
+            throw invalid(chars, offset, end);
+        }
+        return (localSeconds - offsetSeconds) * 1000 + millis;
+    }
+
+    private long parseEpoch(char[] chars, int offset, int end, long unitInMillis) throws DecodingDataFromAdapterException {
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        int start = i;
+        long value = 0;
+        while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+            if (i - start >= 18) {
+                throw invalid(chars, offset, end);
+            }
+            value = value * 10 + (chars[i++] - '0');
+        }
+        if (i == start) {
+            throw invalid(chars, offset, end);
+        }
+        long millis = value * unitInMillis;
+        if (i < end && chars[i] == '.' && unitInMillis > 1) {
+            // Fractional seconds, down to the millisecond
+            int fractionStart = ++i;
+            long fraction = 0;
+            long scale = unitInMillis;
+            while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+                if (scale > 1) {
+                    scale /= 10;
+                    fraction += (chars[i] - '0') * scale;
+                }
+                i++;
+            }
+            if (i == fractionStart) {
+                throw invalid(chars, offset, end);
+            }
+            millis += fraction;
+        }
+        if (i != end) {
+            throw invalid(chars, offset, end);
+        }
+        return negative ? -millis : millis;
+    }
+
+    private long toEpochMilli(long localSeconds, int millis) {
+        long epochDay = Math.floorDiv(localSeconds, SECONDS_PER_DAY);
+        DayOffset offset = cachedOffset;
+        if (offset == null || offset.epochDay != epochDay) {
+            offset = resolveDayOffset(epochDay);
+            cachedOffset = offset;
+        }
+        if (offset.hasTransition) {
+            // Let the time zone rules resolve gaps and overlaps
+            return ZonedDateTime.ofLocal(
+                    LocalDateTime.ofEpochSecond(localSeconds, millis * 1_000_000, ZoneOffset.UTC), zoneId, null)
+                    .toInstant().toEpochMilli();
+        }
+        return (localSeconds - offset.offsetSeconds) * 1000 + millis;
+    }
+
+    private DayOffset resolveDayOffset(long epochDay) {
+        if (rules.isFixedOffset()) {
+            return new DayOffset(epochDay, rules.getOffset(Instant.EPOCH).getTotalSeconds(), false);
+        }
+        LocalDateTime startOfDay = LocalDate.ofEpochDay(epochDay).atStartOfDay();
+        ZoneOffset offset = rules.getValidOffsets(startOfDay).size() == 1 ? rules.getOffset(startOfDay) : null;
+        if (offset == null) {
+            return new DayOffset(epochDay, 0, true);
+        }
+        // Check whether a transition happens before the end of the day
+        Instant dayStart = startOfDay.toInstant(offset);
+        ZoneOffsetTransition next = rules.nextTransition(dayStart);
+        boolean hasTransition = next != null &&
+                next.getInstant().isBefore(dayStart.plusSeconds(SECONDS_PER_DAY + Math.abs(next.getDuration().getSeconds())));
+        return new DayOffset(epochDay, offset.getTotalSeconds(), hasTransition);
+    }
+
+    private static int digits(char[] chars, int offset, int count, int end) throws DecodingDataFromAdapterException {
+        if (offset + count > end) {
+            throw invalid(chars, offset, end);
+        }
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                throw invalid(chars, offset, end);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return IsoChronology.INSTANCE.isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Computes the number of days since 1970-01-01 for a date of the proleptic Gregorian calendar.
+     */
+    private static long epochDay(int year, int month, int day) {
+        // From "chrono-Compatible Low-Level Date Algorithms", H. Hinnant
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static DecodingDataFromAdapterException invalid(char[] chars, int offset, int end) {
+        return new DecodingDataFromAdapterException("Failed to parse time stamp \"" + new String(chars, offset, Math.max(0, end - offset)) + "\"");
+    }
+
+    private static final class DayOffset {
+        private final long epochDay;
+        private final int offsetSeconds;
+        private final boolean hasTransition;
+
+        private DayOffset(long epochDay, int offsetSeconds, boolean hasTransition) {
+            this.epochDay = epochDay;
+            this.offsetSeconds = offsetSeconds;
+            this.hasTransition = hasTransition;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.core.data.codec;
+
+import java.util.Arrays;
+
+/**
+ * Compresses time series samples following the scheme described in "Gorilla: A Fast, Scalable, In-Memory Time Series
+ * Database" (Pelkonen et al., 2015): time stamps are encoded as variable length delta-of-deltas and values as the
+ * meaningful bits of the XOR with the previous value.
+ * <p>Regularly spaced time stamps and slowly changing values, which make up most of the time series retrieved from
+ * monitoring sources, then typically need a couple of bits per time stamp and a dozen bits per value, instead of
+ * 128 bits per sample.</p>
+ *
+ * @author Frederic Thevenet
+ */
+public final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    /**
+     * Compresses the specified samples.
+     *
+     * @param timeStamps the time stamps of the samples, in milliseconds since the epoch.
+     * @param values     the values of the samples.
+     * @param length     the number of samples to compress.
+     * @return the compressed samples, packed in an array of longs.
+     */
+    public static long[] encode(long[] timeStamps, double[] values, int length) {
+        BitWriter out = new BitWriter(Math.max(4, length / 2));
+        long previousTimeStamp = 0;
+        long previousDelta = 0;
+        long previousValue = 0;
+        int previousLeading = Integer.MAX_VALUE;
+        int previousTrailing = 0;
+        for (int i = 0; i < length; i++) {
+            long value = Double.doubleToRawLongBits(values[i]);
+            if (i == 0) {
+                out.write(timeStamps[0], 64);
+                out.write(value, 64);
+            } else {
+                long delta = timeStamps[i] - previousTimeStamp;
+                long deltaOfDelta = delta - previousDelta;
+                previousDelta = delta;
+                if (deltaOfDelta == 0) {
+                    out.write(0, 1);
+                } else if (fits(deltaOfDelta, 7)) {
+                    out.write(0b10, 2);
+                    out.write(deltaOfDelta, 7);
+                } else if (fits(deltaOfDelta, 9)) {
+                    out.write(0b110, 3);
+                    out.write(deltaOfDelta, 9);
+                } else if (fits(deltaOfDelta, 12)) {
+                    out.write(0b1110, 4);
+                    out.write(deltaOfDelta, 12);
+                } else {
+                    out.write(0b1111, 4);
+                    out.write(deltaOfDelta, 64);
+                }
+                long xor = value ^ previousValue;
+                if (xor == 0) {
+                    out.write(0, 1);
+                } else {
+                    int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+                    int trailing = Long.numberOfTrailingZeros(xor);
+                    if (leading >= previousLeading && trailing >= previousTrailing) {
+                        // Meaningful bits fit within the previous window
+                        out.write(0b10, 2);
+                        out.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                    } else {
+                        int meaningful = 64 - leading - trailing;
+                        out.write(0b11, 2);
+                        out.write(leading, 5);
+                        out.write(meaningful - 1, 6);
+                        out.write(xor >>> trailing, meaningful);
+                        previousLeading = leading;
+                        previousTrailing = trailing;
+                    }
+                }
+            }
+            previousTimeStamp = timeStamps[i];
+            previousValue = value;
+        }
+        return out.toArray();
+    }
+
+    /**
+     * Decompresses samples, up to the first one whose time stamp is greater than the specified limit.
+     *
+     * @param encoded    the compressed samples.
+     * @param length     the number of samples that were compressed.
+     * @param upTo       the maximum time stamp of the samples to decompress.
+     * @param timeStamps the array into which the time stamps are decompressed.
+     * @param values     the array into which the values are decompressed.
+     * @return the number of decompressed samples.
+     */
+    public static int decode(long[] encoded, int length, long upTo, long[] timeStamps, double[] values) {
+        BitReader in = new BitReader(encoded);
+        long timeStamp = 0;
+        long delta = 0;
+        long value = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 0; i < length; i++) {
+            if (i == 0) {
+                timeStamp = in.read(64);
+                value = in.read(64);
+            } else {
+                long deltaOfDelta;
+                if (in.read(1) == 0) {
+                    deltaOfDelta = 0;
+                } else if (in.read(1) == 0) {
+                    deltaOfDelta = in.readSigned(7);
+                } else if (in.read(1) == 0) {
+                    deltaOfDelta = in.readSigned(9);
+                } else if (in.read(1) == 0) {
+                    deltaOfDelta = in.readSigned(12);
+                } else {
+                    deltaOfDelta = in.read(64);
+                }
+                delta += deltaOfDelta;
+                timeStamp += delta;
+                if (in.read(1) != 0) {
+                    if (in.read(1) != 0) {
+                        leading = (int) in.read(5);
+                        int meaningful = (int) in.read(6) + 1;
+                        trailing = 64 - leading - meaningful;
+                    }
+                    value ^= in.read(64 - leading - trailing) << trailing;
+                }
+            }
+            if (timeStamp > upTo) {
+                return i;
+            }
+            timeStamps[i] = timeStamp;
+            values[i] = Double.longBitsToDouble(value);
+        }
+        return length;
+    }
+
+    private static boolean fits(long value, int bits) {
+        return value >= -(1L << (bits - 1)) && value < (1L << (bits - 1));
+    }
+
+    private static final class BitWriter {
+        private long[] words;
+        private int position;
+
+        private BitWriter(int initialCapacity) {
+            this.words = new long[initialCapacity];
+        }
+
+        private void write(long bits, int count) {
+            if (count < 64) {
+                bits &= (1L << count) - 1;
+            }
+            if (((position + count + 63) >>> 6) > words.length) {
+                words = Arrays.copyOf(words, Math.max(words.length * 2, (position + count + 63) >>> 6));
+            }
+            int offset = position & 63;
+            int index = position >>> 6;
+            int available = 64 - offset;
+            if (count <= available) {
+                words[index] |= bits << (available - count);
+            } else {
+                words[index] |= bits >>> (count - available);
+                words[index + 1] |= bits << (64 - (count - available));
+            }
+            position += count;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(words, (position + 63) >>> 6);
+        }
+    }
+
+    private static final class BitReader {
+        private final long[] words;
+        private int position;
+
+        private BitReader(long[] words) {
+            this.words = words;
+        }
+
+        private long read(int count) {
+            int offset = position & 63;
+            int index = position >>> 6;
+            int available = 64 - offset;
+            long bits;
+            if (count <= available) {
+                bits = words[index] >>> (available - count);
+            } else {
+                bits = (words[index] << (count - available)) | (words[index + 1] >>> (64 - (count - available)));
+            }
+            position += count;
+            return count < 64 ? bits & ((1L << count) - 1) : bits;
+        }
+
+        private long readSigned(int count) {
+            long bits = read(count);
+            return (bits << (64 - count)) >> (64 - count);
+        }
+    }
+}
@@ -16,10 +16,6 @@
 
 package eu.binjr.core.data.timeseries;
 
-import javafx.scene.chart.XYChart;
-
-import java.util.OptionalDouble;
-
 /**
  * This class provides a full implementation of a {@link TimeSeriesProcessor} of {@link Double} values.
  *
@@ -35,20 +31,7 @@ public class DoubleTimeSeriesProcessor extends TimeSeriesProcessor {
     }
 
     @Override
-    public Double computeMinValue() {
-        OptionalDouble res = this.data.stream().mapToDouble(XYChart.Data::getYValue).min();
-        return res.isPresent() ? res.getAsDouble() : Double.NaN;
-    }
-
-    @Override
-    public Double computeAverageValue() {
-        OptionalDouble res = this.data.stream().mapToDouble(XYChart.Data::getYValue).average();
-        return res.isPresent() ? res.getAsDouble() : Double.NaN;
-    }
-
-    @Override
-    public Double computeMaxValue() {
-        OptionalDouble res = this.data.stream().mapToDouble(XYChart.Data::getYValue).max();
-        return res.isPresent() ? res.getAsDouble() : Double.NaN;
+    protected TimeSeriesStatistics computeStatistics(double[] values, int length) {
+        return TimeSeriesStatistics.of(values, length);
     }
 }
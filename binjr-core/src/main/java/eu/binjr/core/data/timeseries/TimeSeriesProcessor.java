@@ -20,26 +20,48 @@ import eu.binjr.core.data.adapters.TimeSeriesBinding;
 import eu.binjr.common.concurrent.ReadWriteLockHelper;
 import javafx.scene.chart.XYChart;
 
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * The base class for time series processor classes, which holds raw data points and provides access to summary properties.
+ * <p>Samples are stored in a column-oriented fashion, as two parallel primitive arrays holding time stamps
+ * (in milliseconds since the epoch) and values respectively, so as to keep the memory footprint per sample as low
+ * as possible. Instances of {@link XYChart.Data} are only ever created on demand, when data is handed over to a chart.</p>
+ * <p>The columns are append-only: existing elements are never modified in place and arrays are replaced as a whole
+ * when new data is set, which allows {@link #snapshot()} to expose them without copying.</p>
+ * <p>Summary statistics are computed by the thread that sets or appends data, rather than by readers, so that
+ * getting them never requires going over the samples.</p>
+ * <p><b>Remark:</b> Percentiles require sorting all values: they are only computed when data is set as a whole, not
+ * when samples are appended one at a time.</p>
  *
  * @author Frederic Thevenet
  */
 public abstract class TimeSeriesProcessor {
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
     private final ReadWriteLockHelper monitor = new ReadWriteLockHelper();
-    protected List<XYChart.Data<ZonedDateTime, Double>> data;
+    protected long[] timeStamps;
+    protected double[] values;
+    protected int length;
+    private ZoneId zoneId;
+    private TimeSeriesStatistics.Accumulator accumulator;
+    private volatile TimeSeriesStatistics statistics = TimeSeriesStatistics.EMPTY;
+    private volatile boolean sharedColumns;
 
     /**
      * Initializes a new instance of the {@link TimeSeriesProcessor} class with the provided {@link TimeSeriesBinding}.
      */
     public TimeSeriesProcessor() {
-        this.data = new ArrayList<>();
+        this.timeStamps = new long[DEFAULT_INITIAL_CAPACITY];
+        this.values = new double[DEFAULT_INITIAL_CAPACITY];
+        this.length = 0;
+        this.zoneId = ZoneId.systemDefault();
     }
 
     /**
@@ -48,7 +70,7 @@ public abstract class TimeSeriesProcessor {
      * @return the minimum value for the Y coordinates of the {@link TimeSeriesProcessor}
      */
     public final Double getMinValue() {
-        return monitor.read().lock(this::computeMinValue);
+        return getSummaryStatistics().getMin();
     }
 
     /**
@@ -57,7 +79,7 @@ public abstract class TimeSeriesProcessor {
      * @return the average for all Y coordinates of the {@link TimeSeriesProcessor}
      */
     public final Double getAverageValue() {
-        return monitor.read().lock(this::computeAverageValue);
+        return getSummaryStatistics().getAverage();
     }
 
     /**
@@ -66,7 +88,36 @@ public abstract class TimeSeriesProcessor {
      * @return the maximum value for the Y coordinates of the {@link TimeSeriesProcessor}
      */
     public final Double getMaxValue() {
-        return monitor.read().lock(this::computeMaxValue);
+        return getSummaryStatistics().getMax();
+    }
+
+    /**
+     * Gets a snapshot of the summary statistics for the values of the {@link TimeSeriesProcessor}.
+     * <p>All statistics, percentiles included, are computed by the thread that sets data, so this method runs in
+     * constant time. Samples appended one at a time keep count, sum, minimum,
+     * maximum, average and standard deviation up to date, but the returned snapshot then doesn't include percentiles
+     * (see {@link TimeSeriesStatistics#isPercentilesComputed()}) until data is set as a whole again.</p>
+     *
+     * @return a snapshot of the summary statistics for the values of the {@link TimeSeriesProcessor}.
+     */
+    public final TimeSeriesStatistics getStatistics() {
+        return getSummaryStatistics();
+    }
+
+    private TimeSeriesStatistics getSummaryStatistics() {
+        TimeSeriesStatistics stats = statistics;
+        if (stats == null) {
+            // Samples were appended since the last snapshot: take a new one from the running totals.
+            stats = monitor.read().lock(() -> {
+                TimeSeriesStatistics current = statistics;
+                if (current == null) {
+                    current = accumulator.toStatistics();
+                    statistics = current;
+                }
+                return current;
+            });
+        }
+        return stats;
     }
 
     /**
@@ -94,18 +145,68 @@ public abstract class TimeSeriesProcessor {
         return monitor.read().lock(this::unsafeGetNearestValue, xValue);
     }
 
+    /**
+     * Try to get the nearest value for the specified time stamp, expressed in milliseconds since the epoch.
+     *
+     * <p><b>Remark:</b> If the processor is already being accessed by another thread, returns immediately with Optional.empty</p>
+     *
+     * @param timeStamp the time stamp to get the value for, in milliseconds since the epoch.
+     * @return An {@link Optional} instance that contains the value for the time position nearest to the one requested if process could complete and value is non-null.
+     */
+    public Optional<Double> tryGetNearestValue(long timeStamp) {
+        return monitor.read().tryLock(this::unsafeGetNearestValueAt, timeStamp);
+    }
+
+    /**
+     * Returns the index of the sample whose time stamp is the nearest to the one provided.
+     *
+     * @param timeStamp the time stamp to look up, in milliseconds since the epoch.
+     * @return the index of the nearest sample, or -1 if the processor is empty.
+     */
+    public int indexOfNearest(long timeStamp) {
+        return monitor.read().lock(this::unsafeIndexOfNearest, timeStamp);
+    }
+
     /**
      * Gets the data of the {@link TimeSeriesProcessor}
      *
-     * <p><b>Remark:</b> the returned collection is a shallow copy of the the processor's own backing collection,
-     * so it can be iterated through without risking a concurrent access error even if content is being added or
-     * removed to the processor on a seperate thread. However, the the actual data for individual samples  are
-     * not guarded against concurrent access in any capacity.</p>
+     * <p><b>Remark:</b> the returned collection is built from the processor's own backing columns for each call,
+     * and each sample in it is a new instance of {@link XYChart.Data}. It can be iterated through without risking
+     * a concurrent access error even if content is being added or removed to the processor on a separate thread,
+     * but callers should refrain from invoking this method in a loop.</p>
      *
      * @return the data of the {@link TimeSeriesProcessor}
      */
     public Collection<XYChart.Data<ZonedDateTime, Double>> getData() {
-        return monitor.read().lock(() -> new ArrayList<>(data));
+        return monitor.read().lock(() -> {
+            List<XYChart.Data<ZonedDateTime, Double>> data = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                data.add(makeSample(i));
+            }
+            return data;
+        });
+    }
+
+    /**
+     * Gets the data of the {@link TimeSeriesProcessor} that falls within the specified time interval, plus the samples
+     * immediately before and after it, so that lines can be drawn up to the edges of the interval.
+     * <p>The bounds of the interval are located via a binary search over the time stamp column, so that only
+     * the samples in the interval are materialized as {@link XYChart.Data} instances.</p>
+     *
+     * @param fromTimeStamp the start of the time interval, in milliseconds since the epoch.
+     * @param toTimeStamp   the end of the time interval, in milliseconds since the epoch.
+     * @return the data of the {@link TimeSeriesProcessor} within the specified time interval.
+     */
+    public Collection<XYChart.Data<ZonedDateTime, Double>> getData(long fromTimeStamp, long toTimeStamp) {
+        return monitor.read().lock(() -> {
+            int from = unsafeFirstIndexInView(fromTimeStamp);
+            int to = unsafeEndIndexInView(toTimeStamp);
+            List<XYChart.Data<ZonedDateTime, Double>> data = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                data.add(makeSample(i));
+            }
+            return data;
+        });
     }
 
     /**
@@ -114,17 +215,154 @@ public abstract class TimeSeriesProcessor {
      * @param newData the list of {@link XYChart.Data} points to use as the {@link TimeSeriesProcessor}' data.
      */
     public void setData(Collection<XYChart.Data<ZonedDateTime, Double>> newData) {
-        monitor.write().lock(() -> this.data = new ArrayList<>(newData));
+        long[] newTimeStamps = new long[Math.max(DEFAULT_INITIAL_CAPACITY, newData.size())];
+        double[] newValues = new double[newTimeStamps.length];
+        int i = 0;
+        ZoneId newZoneId = null;
+        for (XYChart.Data<ZonedDateTime, Double> sample : newData) {
+            if (newZoneId == null) {
+                newZoneId = sample.getXValue().getZone();
+            }
+            newTimeStamps[i] = sample.getXValue().toInstant().toEpochMilli();
+            newValues[i] = toPrimitive(sample.getYValue());
+            i++;
+        }
+        final int newLength = i;
+        final ZoneId zone = newZoneId;
+        final TimeSeriesStatistics newStatistics = computeStatistics(newValues, newLength);
+        monitor.write().lock(() -> {
+            this.timeStamps = newTimeStamps;
+            this.values = newValues;
+            this.length = newLength;
+            unsafeSetStatistics(newStatistics);
+            this.sharedColumns = false;
+            if (zone != null) {
+                this.zoneId = zone;
+            }
+        });
+    }
+
+    /**
+     * Sets the content for the {@link TimeSeriesProcessor}'s data store from a pair of primitive arrays.
+     * <p><b>Remark:</b> The provided arrays are used as is as the new backing store, without being copied,
+     * so callers must relinquish any further write access to them.</p>
+     *
+     * @param timeStamps the time stamps of the samples, in milliseconds since the epoch, in ascending order.
+     * @param values     the values of the samples.
+     * @param length     the number of valid samples in the provided arrays.
+     */
+    public void setData(long[] timeStamps, double[] values, int length) {
+        if (timeStamps.length < length || values.length < length) {
+            throw new IllegalArgumentException("Provided arrays are shorter than the specified length");
+        }
+        TimeSeriesStatistics newStatistics = computeStatistics(values, length);
+        monitor.write().lock(() -> {
+            this.timeStamps = timeStamps;
+            this.values = values;
+            this.length = length;
+            unsafeSetStatistics(newStatistics);
+            this.sharedColumns = false;
+        });
+    }
+
+    /**
+     * Sets the content for the {@link TimeSeriesProcessor}'s data store from a {@link TimeSeriesSnapshot}.
+     *
+     * @param snapshot the snapshot to use as the {@link TimeSeriesProcessor}' data.
+     */
+    public void setData(TimeSeriesSnapshot snapshot) {
+        TimeSeriesStatistics newStatistics = computeStatistics(snapshot.getValues(), snapshot.size());
+        monitor.write().lock(() -> {
+            this.timeStamps = snapshot.getTimeStamps();
+            this.values = snapshot.getValues();
+            this.length = snapshot.size();
+            this.zoneId = snapshot.getZoneId();
+            unsafeSetStatistics(newStatistics);
+            this.sharedColumns = true;
+        });
+    }
+
+    /**
+     * Takes a snapshot of the processor's columns, which can then be accessed without further locking.
+     * <p>No data is copied: the snapshot shares the processor's backing arrays, which are copied before any
+     * subsequent append.</p>
+     *
+     * @return a snapshot of the processor's columns.
+     */
+    public TimeSeriesSnapshot snapshot() {
+        return monitor.read().lock(() -> {
+            sharedColumns = true;
+            return new TimeSeriesSnapshot(timeStamps, values, length, zoneId);
+        });
+    }
+
+    /**
+     * Takes a snapshot of the samples that fall within the specified time interval, plus the samples immediately
+     * before and after it.
+     * <p>The bounds of the interval are located via a binary search over the time stamp column, and only the
+     * samples within it are copied; if the interval spans all samples, the processor's columns are shared instead,
+     * as with {@link #snapshot()}.</p>
+     *
+     * @param fromTimeStamp the start of the time interval, in milliseconds since the epoch.
+     * @param toTimeStamp   the end of the time interval, in milliseconds since the epoch.
+     * @return a snapshot of the samples within the specified time interval.
+     */
+    public TimeSeriesSnapshot snapshot(long fromTimeStamp, long toTimeStamp) {
+        return monitor.read().lock(() -> {
+            int from = unsafeFirstIndexInView(fromTimeStamp);
+            int to = unsafeEndIndexInView(toTimeStamp);
+            if (from == 0 && to == length) {
+                sharedColumns = true;
+                return new TimeSeriesSnapshot(timeStamps, values, length, zoneId);
+            }
+            int size = Math.max(0, to - from);
+            return new TimeSeriesSnapshot(
+                    Arrays.copyOfRange(timeStamps, from, from + size),
+                    Arrays.copyOfRange(values, from, from + size),
+                    size,
+                    zoneId);
+        });
     }
 
     /**
      * Returns the data sample at the given index.
+     * <p><b>Remark:</b> a new instance of {@link XYChart.Data} is created for each call;
+     * use {@link #getTimeStamp(int)} and {@link #getValue(int)} to access samples without allocating.</p>
      *
      * @param index the index of the sample to retrieve.
      * @return the data sample at the given index.
      */
     public XYChart.Data<ZonedDateTime, Double> getSample(int index) {
-        return monitor.read().lock(() -> this.data.get(index));
+        return monitor.read().lock(() -> {
+            checkIndex(index);
+            return makeSample(index);
+        });
+    }
+
+    /**
+     * Returns the time stamp of the sample at the given index, in milliseconds since the epoch.
+     *
+     * @param index the index of the sample to retrieve.
+     * @return the time stamp of the sample at the given index, in milliseconds since the epoch.
+     */
+    public long getTimeStamp(int index) {
+        return monitor.read().lock(() -> {
+            checkIndex(index);
+            return timeStamps[index];
+        });
+    }
+
+    /**
+     * Returns the value of the sample at the given index.
+     *
+     * @param index the index of the sample to retrieve.
+     * @return the value of the sample at the given index.
+     */
+    public double getValue(int index) {
+        return monitor.read().lock(() -> {
+            checkIndex(index);
+            return values[index];
+        });
     }
 
     /**
@@ -133,7 +371,7 @@ public abstract class TimeSeriesProcessor {
      * @return the number of elements in the processor's data store
      */
     public int size() {
-        return monitor.read().lock(() -> this.data.size());
+        return monitor.read().lock(() -> this.length);
     }
 
     /**
@@ -142,27 +380,175 @@ public abstract class TimeSeriesProcessor {
      * @param sample a new sample to add to the processor's data store
      */
     public void addSample(XYChart.Data<ZonedDateTime, Double> sample) {
-        monitor.write().lock(() -> this.data.add(sample));
+        addSample(sample.getXValue(), sample.getYValue());
+    }
+
+    /**
+     * Adds a new sample to the processor's data store
+     *
+     * @param timeStamp the time stamp of the sample.
+     * @param value     the value of the sample.
+     */
+    public void addSample(ZonedDateTime timeStamp, Double value) {
+        monitor.write().lock(() -> {
+            if (length == 0) {
+                this.zoneId = timeStamp.getZone();
+            }
+            unsafeAppend(timeStamp.toInstant().toEpochMilli(), toPrimitive(value));
+        });
+    }
+
+    /**
+     * Adds a new sample to the processor's data store
+     *
+     * @param timeStamp the time stamp of the sample, in milliseconds since the epoch.
+     * @param value     the value of the sample.
+     */
+    public void addSample(long timeStamp, double value) {
+        monitor.write().lock(() -> unsafeAppend(timeStamp, value));
+    }
+
+    /**
+     * Returns the id of the time zone used to materialize time stamps as {@link ZonedDateTime} instances.
+     *
+     * @return the id of the time zone used to materialize time stamps as {@link ZonedDateTime} instances.
+     */
+    public ZoneId getZoneId() {
+        return monitor.read().lock(() -> zoneId);
+    }
+
+    /**
+     * Sets the id of the time zone used to materialize time stamps as {@link ZonedDateTime} instances.
+     *
+     * @param zoneId the id of the time zone used to materialize time stamps as {@link ZonedDateTime} instances.
+     */
+    public void setZoneId(ZoneId zoneId) {
+        monitor.write().lock(() -> this.zoneId = zoneId);
+    }
+
+    /**
+     * Computes the summary statistics, percentiles included, for the provided values.
+     * <p><b>Remark:</b> This method is invoked on new columns before they are published, outside of the boundaries
+     * of the processor's lock: it must not access the processor's state.</p>
+     *
+     * @param values the values to compute the statistics for.
+     * @param length the number of valid values in the provided array.
+     * @return the summary statistics for the provided values.
+     */
+    protected abstract TimeSeriesStatistics computeStatistics(double[] values, int length);
+
+    private void unsafeSetStatistics(TimeSeriesStatistics newStatistics) {
+        this.accumulator = null;
+        this.statistics = newStatistics;
     }
 
-    protected abstract Double computeMinValue();
+    private void unsafeAppend(long timeStamp, double value) {
+        if (length == timeStamps.length || sharedColumns) {
+            // Never write into arrays that might be visible through a snapshot: copy them first.
+            int newCapacity = Math.max(DEFAULT_INITIAL_CAPACITY, length + (length >> 1));
+            timeStamps = Arrays.copyOf(timeStamps, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+            sharedColumns = false;
+        }
+        timeStamps[length] = timeStamp;
+        values[length] = value;
+        length++;
+        if (accumulator == null) {
+            // Resume from the statistics computed when data was last set
+            accumulator = new TimeSeriesStatistics.Accumulator(statistics);
+        }
+        accumulator.add(value);
+        statistics = null;
+    }
+
+    private XYChart.Data<ZonedDateTime, Double> makeSample(int index) {
+        return new XYChart.Data<>(ZonedDateTime.ofInstant(Instant.ofEpochMilli(timeStamps[index]), zoneId), values[index]);
+    }
 
-    protected abstract Double computeAverageValue();
+    private void checkIndex(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+        }
+    }
 
-    protected abstract Double computeMaxValue();
+    private static double toPrimitive(Double value) {
+        return value == null ? Double.NaN : value;
+    }
 
     private Double unsafeGetNearestValue(ZonedDateTime xValue) {
-        Double value = null;
-        if (xValue != null && data != null) {
-            for (XYChart.Data<ZonedDateTime, Double> sample : data) {
-                value = sample.getYValue();
-                if (xValue.isBefore(sample.getXValue())) {
-                    //TODO check if previous value is nearer and return corresponding value instead
-                    return value;
-                }
+        if (xValue == null) {
+            return null;
+        }
+        return unsafeGetNearestValueAt(xValue.toInstant().toEpochMilli());
+    }
+
+    private Double unsafeGetNearestValueAt(long timeStamp) {
+        int index = unsafeIndexOfNearest(timeStamp);
+        return index < 0 ? null : values[index];
+    }
+
+    /**
+     * Returns the index of the last sample before the provided time stamp, or of the first sample if there is none.
+     */
+    private int unsafeFirstIndexInView(long timeStamp) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timeStamps[mid] < timeStamp) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
             }
         }
-        return value;
+        return Math.max(0, lo - 1);
+    }
+
+    /**
+     * Returns the index following that of the first sample after the provided time stamp, or the number of samples if there is none.
+     */
+    private int unsafeEndIndexInView(long timeStamp) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timeStamps[mid] <= timeStamp) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return Math.min(length, lo + 1);
+    }
+
+    /**
+     * Returns the index of the sample whose time stamp is the nearest to the one provided, or -1 if the processor is empty.
+     * <p>Since samples are sorted in ascending time stamp order, the lookup is done via a binary search
+     * over the time stamp column; when the requested time stamp lies exactly in between two samples, the earliest
+     * one is returned.</p>
+     * <p><b>Remark:</b> This method must be invoked within the boundaries of the processor's read lock.</p>
+     *
+     * @param timeStamp the time stamp to look up, in milliseconds since the epoch.
+     * @return the index of the nearest sample, or -1 if the processor is empty.
+     */
+    protected int unsafeIndexOfNearest(long timeStamp) {
+        if (length == 0) {
+            return -1;
+        }
+        int pos = Arrays.binarySearch(timeStamps, 0, length, timeStamp);
+        if (pos >= 0) {
+            return pos;
+        }
+        int insertionPoint = -(pos + 1);
+        if (insertionPoint == 0) {
+            return 0;
+        }
+        if (insertionPoint == length) {
+            return length - 1;
+        }
+        return (timeStamp - timeStamps[insertionPoint - 1]) <= (timeStamps[insertionPoint] - timeStamp) ?
+                insertionPoint - 1 :
+                insertionPoint;
     }
 
 }
@@ -0,0 +1,328 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.core.data.timeseries;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * A multi-resolution summary of the samples of a single time series, made of buckets holding the minimum, maximum
+ * and average of all samples within power-of-two time intervals (from 1ms up to about 2000 years), as well as the
+ * time stamps at which the minimum and maximum occurred.
+ * <p>
+ * The pyramid is built incrementally from the raw samples retrieved from a data adapter, and can then serve any
+ * time interval within the span of time it covers, at any resolution down to its finest level, without having
+ * to fetch and reduce raw data again.
+ * </p>
+ * <p>
+ * The time interval covered by a pyramid is always contiguous: samples retrieved for an interval that overlaps or
+ * adjoins the current coverage extend it, while samples for a disjoint interval replace the content of the pyramid
+ * altogether. Samples inside the current coverage are assumed not to have changed and are ignored; call
+ * {@link #clear()} to discard the content of the pyramid when this is not the case.
+ * </p>
+ * <p>
+ * Each level holds at most {@link #MAX_BUCKETS_PER_LEVEL} buckets; levels that would require more buckets to cover
+ * the pyramid's span are discarded, so a pyramid never holds more than twice that number of buckets in total.
+ * </p>
+ *
+ * @author Frederic Thevenet
+ */
+public class TimeSeriesPyramid {
+    /**
+     * The maximum number of buckets per level.
+     */
+    public static final int MAX_BUCKETS_PER_LEVEL = 16384;
+    private static final int LEVEL_COUNT = 47;
+    private final Level[] levels = new Level[LEVEL_COUNT];
+    private long coveredFrom;
+    private long coveredTo;
+    private int finestLevel = -1;
+    private ZoneId zoneId = ZoneId.systemDefault();
+
+    /**
+     * Discards all the content of the pyramid.
+     */
+    public synchronized void clear() {
+        Arrays.fill(levels, null);
+        finestLevel = -1;
+    }
+
+    /**
+     * Returns true if the pyramid holds no data, false otherwise.
+     *
+     * @return true if the pyramid holds no data, false otherwise.
+     */
+    public synchronized boolean isEmpty() {
+        return finestLevel < 0;
+    }
+
+    /**
+     * Returns true if the provided time interval is fully covered by the pyramid.
+     *
+     * @param begin the start of the time interval.
+     * @param end   the end of the time interval.
+     * @return true if the provided time interval is fully covered by the pyramid.
+     */
+    public synchronized boolean covers(Instant begin, Instant end) {
+        return finestLevel >= 0 && begin.toEpochMilli() >= coveredFrom && end.toEpochMilli() <= coveredTo;
+    }
+
+    /**
+     * Adds the raw samples retrieved for the specified time interval to the pyramid.
+     *
+     * @param begin   the start of the time interval the samples were retrieved for.
+     * @param end     the end of the time interval the samples were retrieved for.
+     * @param samples the raw samples retrieved for the time interval.
+     */
+    public synchronized void ingest(Instant begin, Instant end, TimeSeriesSnapshot samples) {
+        long from = begin.toEpochMilli();
+        long to = end.toEpochMilli();
+        if (from > to) {
+            return;
+        }
+        long skipFrom = Long.MAX_VALUE;
+        long skipTo = Long.MIN_VALUE;
+        if (finestLevel < 0 || to < coveredFrom || from > coveredTo) {
+            clear();
+            coveredFrom = from;
+            coveredTo = to;
+        } else {
+            skipFrom = coveredFrom;
+            skipTo = coveredTo;
+            coveredFrom = Math.min(coveredFrom, from);
+            coveredTo = Math.max(coveredTo, to);
+        }
+        if (samples.getZoneId() != null) {
+            zoneId = samples.getZoneId();
+        }
+        // Discard the levels that have become too fine to cover the whole span within the allotted number of buckets
+        int finest = Math.max(0, finestLevel);
+        while (finest < LEVEL_COUNT - 1 && bucketIndex(coveredTo, finest) - bucketIndex(coveredFrom, finest) >= MAX_BUCKETS_PER_LEVEL) {
+            levels[finest++] = null;
+        }
+        finestLevel = finest;
+        for (int k = finest; k < LEVEL_COUNT; k++) {
+            if (levels[k] == null) {
+                levels[k] = new Level();
+            }
+            levels[k].ensureRange(bucketIndex(coveredFrom, k), bucketIndex(coveredTo, k));
+        }
+        // Accumulate the new samples into the finest level...
+        long lo = Long.MAX_VALUE;
+        long hi = Long.MIN_VALUE;
+        long[] timeStamps = samples.getTimeStamps();
+        double[] values = samples.getValues();
+        for (int i = 0; i < samples.size(); i++) {
+            long t = timeStamps[i];
+            double v = values[i];
+            if (t < from || t > to || (t >= skipFrom && t <= skipTo) || Double.isNaN(v)) {
+                continue;
+            }
+            long idx = bucketIndex(t, finest);
+            levels[finest].add(idx, t, v);
+            lo = Math.min(lo, idx);
+            hi = Math.max(hi, idx);
+        }
+        // ...then propagate the changes to the affected buckets of coarser levels.
+        for (int k = finest + 1; k < LEVEL_COUNT && lo <= hi; k++) {
+            lo >>= 1;
+            hi >>= 1;
+            for (long idx = lo; idx <= hi; idx++) {
+                levels[k].merge(idx, levels[k - 1], idx << 1, (idx << 1) + 1);
+            }
+        }
+    }
+
+    /**
+     * Returns the samples to display the specified time interval over the specified number of columns, taken
+     * from the coarsest level with buckets no wider than a column, or an empty {@link Optional} if the
+     * interval is not covered by the pyramid or if even its finest level is too coarse.
+     * <p>As an envelope, each bucket produces its minimum and maximum values at the time they occurred and in that
+     * order, so that peaks survive whatever reduction is subsequently applied to the returned samples; otherwise, it
+     * produces its average value in its middle.</p>
+     *
+     * @param begin    the start of the time interval.
+     * @param end      the end of the time interval.
+     * @param columns  the number of columns to display the interval over.
+     * @param envelope true to produce the minimum and maximum values of each bucket, false to produce their average.
+     * @return the samples to display the specified time interval, if the pyramid can provide them.
+     */
+    public synchronized Optional<TimeSeriesSnapshot> trySelect(Instant begin, Instant end, int columns, boolean envelope) {
+        long from = begin.toEpochMilli();
+        long to = end.toEpochMilli();
+        if (finestLevel < 0 || from < coveredFrom || to > coveredTo || from >= to || columns < 1) {
+            return Optional.empty();
+        }
+        long columnWidth = (to - from) / columns;
+        if (columnWidth < (1L << finestLevel)) {
+            return Optional.empty();
+        }
+        int k = Math.min(LEVEL_COUNT - 1, 63 - Long.numberOfLeadingZeros(columnWidth));
+        Level level = levels[k];
+        long width = 1L << k;
+        long first = bucketIndex(from, k);
+        long last = bucketIndex(to, k);
+        int capacity = (int) (last - first + 1) * (envelope ? 2 : 1);
+        long[] timeStamps = new long[capacity];
+        double[] values = new double[capacity];
+        int n = 0;
+        for (long idx = first; idx <= last; idx++) {
+            int count = level.count(idx);
+            if (count == 0) {
+                continue;
+            }
+            if (!envelope) {
+                timeStamps[n] = idx * width + width / 2;
+                values[n++] = level.sum(idx) / count;
+                continue;
+            }
+            long minTime = level.minTime(idx);
+            long maxTime = level.maxTime(idx);
+            if (minTime == maxTime) {
+                timeStamps[n] = minTime;
+                values[n++] = level.min(idx);
+            } else if (minTime < maxTime) {
+                timeStamps[n] = minTime;
+                values[n++] = level.min(idx);
+                timeStamps[n] = maxTime;
+                values[n++] = level.max(idx);
+            } else {
+                timeStamps[n] = maxTime;
+                values[n++] = level.max(idx);
+                timeStamps[n] = minTime;
+                values[n++] = level.min(idx);
+            }
+        }
+        return Optional.of(new TimeSeriesSnapshot(timeStamps, values, n, zoneId));
+    }
+
+    private static long bucketIndex(long timeStamp, int level) {
+        return timeStamp >> level;
+    }
+
+    /**
+     * The buckets of a single level of the pyramid, over a contiguous range of indices.
+     */
+    private static final class Level {
+        private long firstIndex;
+        private int length = 0;
+        private double[] min = new double[0];
+        private double[] max = new double[0];
+        private long[] minTime = new long[0];
+        private long[] maxTime = new long[0];
+        private double[] sum = new double[0];
+        private int[] count = new int[0];
+
+        private void ensureRange(long lo, long hi) {
+            if (length > 0 && lo >= firstIndex && hi < firstIndex + length) {
+                return;
+            }
+            long newFirst = length > 0 ? Math.min(lo, firstIndex) : lo;
+            long newLast = length > 0 ? Math.max(hi, firstIndex + length - 1) : hi;
+            int newLength = (int) (newLast - newFirst + 1);
+            int offset = (int) (firstIndex - newFirst);
+            double[] newMin = new double[newLength];
+            double[] newMax = new double[newLength];
+            long[] newMinTime = new long[newLength];
+            long[] newMaxTime = new long[newLength];
+            double[] newSum = new double[newLength];
+            int[] newCount = new int[newLength];
+            if (length > 0) {
+                System.arraycopy(min, 0, newMin, offset, length);
+                System.arraycopy(max, 0, newMax, offset, length);
+                System.arraycopy(minTime, 0, newMinTime, offset, length);
+                System.arraycopy(maxTime, 0, newMaxTime, offset, length);
+                System.arraycopy(sum, 0, newSum, offset, length);
+                System.arraycopy(count, 0, newCount, offset, length);
+            }
+            firstIndex = newFirst;
+            length = newLength;
+            min = newMin;
+            max = newMax;
+            minTime = newMinTime;
+            maxTime = newMaxTime;
+            sum = newSum;
+            count = newCount;
+        }
+
+        private void add(long index, long timeStamp, double value) {
+            int i = (int) (index - firstIndex);
+            if (count[i] == 0 || value < min[i]) {
+                min[i] = value;
+                minTime[i] = timeStamp;
+            }
+            if (count[i] == 0 || value > max[i]) {
+                max[i] = value;
+                maxTime[i] = timeStamp;
+            }
+            sum[i] += value;
+            count[i]++;
+        }
+
+        private void merge(long index, Level children, long left, long right) {
+            int i = (int) (index - firstIndex);
+            min[i] = Double.POSITIVE_INFINITY;
+            max[i] = Double.NEGATIVE_INFINITY;
+            sum[i] = 0;
+            count[i] = 0;
+            for (long child = left; child <= right; child++) {
+                int c = children.count(child);
+                if (c > 0) {
+                    if (children.min(child) < min[i]) {
+                        min[i] = children.min(child);
+                        minTime[i] = children.minTime(child);
+                    }
+                    if (children.max(child) > max[i]) {
+                        max[i] = children.max(child);
+                        maxTime[i] = children.maxTime(child);
+                    }
+                    sum[i] += children.sum(child);
+                    count[i] += c;
+                }
+            }
+        }
+
+        private boolean contains(long index) {
+            return index >= firstIndex && index < firstIndex + length;
+        }
+
+        private int count(long index) {
+            return contains(index) ? count[(int) (index - firstIndex)] : 0;
+        }
+
+        private double min(long index) {
+            return min[(int) (index - firstIndex)];
+        }
+
+        private double max(long index) {
+            return max[(int) (index - firstIndex)];
+        }
+
+        private long minTime(long index) {
+            return minTime[(int) (index - firstIndex)];
+        }
+
+        private long maxTime(long index) {
+            return maxTime[(int) (index - firstIndex)];
+        }
+
+        private double sum(long index) {
+            return sum[(int) (index - firstIndex)];
+        }
+    }
+}
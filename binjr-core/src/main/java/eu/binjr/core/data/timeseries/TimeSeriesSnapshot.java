@@ -0,0 +1,114 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package eu.binjr.core.data.timeseries;
+
+import java.time.ZoneId;
+
+/**
+ * A read-only view over the columns of a {@link TimeSeriesProcessor}, as they were at the time the snapshot was taken.
+ * <p>Since the columns of a processor are append-only and are replaced as a whole whenever new data is set, a snapshot
+ * shares the processor's backing arrays rather than copying them, and can be accessed without any locking.
+ * The arrays returned by {@link #getTimeStamps()} and {@link #getValues()} must therefore never be modified, and
+ * might be longer than {@link #size()}.</p>
+ *
+ * @author Frederic Thevenet
+ */
+public final class TimeSeriesSnapshot {
+    private final long[] timeStamps;
+    private final double[] values;
+    private final int length;
+    private final ZoneId zoneId;
+
+    TimeSeriesSnapshot(long[] timeStamps, double[] values, int length, ZoneId zoneId) {
+        this.timeStamps = timeStamps;
+        this.values = values;
+        this.length = length;
+        this.zoneId = zoneId;
+    }
+
+    /**
+     * Returns a new snapshot made of the samples at the specified indices.
+     *
+     * @param indices the indices of the samples to select, in ascending order.
+     * @return a new snapshot made of the samples at the specified indices.
+     */
+    public TimeSeriesSnapshot select(int[] indices) {
+        long[] selectedTimeStamps = new long[indices.length];
+        double[] selectedValues = new double[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            selectedTimeStamps[i] = timeStamps[indices[i]];
+            selectedValues[i] = values[indices[i]];
+        }
+        return new TimeSeriesSnapshot(selectedTimeStamps, selectedValues, indices.length, zoneId);
+    }
+
+    /**
+     * Returns the backing array for time stamps, in milliseconds since the epoch.
+     *
+     * @return the backing array for time stamps.
+     */
+    public long[] getTimeStamps() {
+        return timeStamps;
+    }
+
+    /**
+     * Returns the backing array for values.
+     *
+     * @return the backing array for values.
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    /**
+     * Returns the time stamp of the sample at the given index, in milliseconds since the epoch.
+     *
+     * @param index the index of the sample.
+     * @return the time stamp of the sample at the given index.
+     */
+    public long getTimeStamp(int index) {
+        return timeStamps[index];
+    }
+
+    /**
+     * Returns the value of the sample at the given index.
+     *
+     * @param index the index of the sample.
+     * @return the value of the sample at the given index.
+     */
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the number of samples in the snapshot.
+     *
+     * @return the number of samples in the snapshot.
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * Returns the id of the time zone of the series.
+     *
+     * @return the id of the time zone of the series.
+     */
+    public ZoneId getZoneId() {
+        return zoneId;
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package eu.binjr.core.data.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the summary statistics for the values of a {@link TimeSeriesProcessor}.
+ * <p>Count, sum, minimum, maximum, average and standard deviation are computed in a single pass over the values,
+ * and can be kept up to date as values are appended, while percentiles are computed from a sorted copy of those,
+ * which is discarded afterward. {@link Double#NaN} values are ignored.</p>
+ *
+ * @author Frederic Thevenet
+ */
+public final class TimeSeriesStatistics {
+    /**
+     * Statistics for an empty series.
+     */
+    public static final TimeSeriesStatistics EMPTY = new TimeSeriesStatistics(0, 0.0, Double.NaN, Double.NaN,
+            Double.NaN, Double.NaN, true, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+    private final double average;
+    private final double standardDeviation;
+    private final boolean percentilesComputed;
+    private final double median;
+    private final double percentile90;
+    private final double percentile95;
+    private final double percentile99;
+
+    private TimeSeriesStatistics(long count,
+                                 double sum,
+                                 double min,
+                                 double max,
+                                 double average,
+                                 double standardDeviation,
+                                 boolean percentilesComputed,
+                                 double median,
+                                 double percentile90,
+                                 double percentile95,
+                                 double percentile99) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.average = average;
+        this.standardDeviation = standardDeviation;
+        this.percentilesComputed = percentilesComputed;
+        this.median = median;
+        this.percentile90 = percentile90;
+        this.percentile95 = percentile95;
+        this.percentile99 = percentile99;
+    }
+
+    /**
+     * Computes the statistics for the first {@code length} elements of the provided array.
+     *
+     * @param values the values to compute the statistics for.
+     * @param length the number of elements to consider.
+     * @return the statistics for the provided values.
+     */
+    public static TimeSeriesStatistics of(double[] values, int length) {
+        Accumulator accumulator = new Accumulator();
+        double[] sorted = new double[length];
+        for (int i = 0; i < length; i++) {
+            double v = values[i];
+            if (!Double.isNaN(v)) {
+                sorted[(int) accumulator.count] = v;
+                accumulator.add(v);
+            }
+        }
+        int count = (int) accumulator.count;
+        if (count == 0) {
+            return EMPTY;
+        }
+        Arrays.sort(sorted, 0, count);
+        return accumulator.toStatistics(true,
+                percentile(sorted, count, 50),
+                percentile(sorted, count, 90),
+                percentile(sorted, count, 95),
+                percentile(sorted, count, 99));
+    }
+
+    private static double percentile(double[] sorted, int count, double p) {
+        double rank = p / 100.0 * (count - 1);
+        int lower = (int) Math.floor(rank);
+        int upper = (int) Math.ceil(rank);
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * (rank - lower);
+    }
+
+    /**
+     * Returns the number of values.
+     *
+     * @return the number of values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of all values.
+     *
+     * @return the sum of all values.
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the minimum value.
+     *
+     * @return the minimum value.
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the maximum value.
+     *
+     * @return the maximum value.
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the average value.
+     *
+     * @return the average value.
+     */
+    public double getAverage() {
+        return average;
+    }
+
+    /**
+     * Returns the population standard deviation of the values.
+     *
+     * @return the population standard deviation of the values.
+     */
+    public double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    /**
+     * Returns true if the percentiles of the values are part of the snapshot, false if they have yet to be computed,
+     * in which case all percentiles are {@link Double#NaN}.
+     *
+     * @return true if the percentiles of the values are part of the snapshot, false otherwise.
+     */
+    public boolean isPercentilesComputed() {
+        return percentilesComputed;
+    }
+
+    /**
+     * Returns the median (50th percentile) of the values.
+     *
+     * @return the median of the values.
+     */
+    public double getMedian() {
+        return median;
+    }
+
+    /**
+     * Returns the 90th percentile of the values.
+     *
+     * @return the 90th percentile of the values.
+     */
+    public double getPercentile90() {
+        return percentile90;
+    }
+
+    /**
+     * Returns the 95th percentile of the values.
+     *
+     * @return the 95th percentile of the values.
+     */
+    public double getPercentile95() {
+        return percentile95;
+    }
+
+    /**
+     * Returns the 99th percentile of the values.
+     *
+     * @return the 99th percentile of the values.
+     */
+    public double getPercentile99() {
+        return percentile99;
+    }
+
+    @Override
+    public String toString() {
+        return "TimeSeriesStatistics{" +
+                "count=" + count +
+                ", sum=" + sum +
+                ", min=" + min +
+                ", max=" + max +
+                ", average=" + average +
+                ", standardDeviation=" + standardDeviation +
+                ", percentilesComputed=" + percentilesComputed +
+                ", median=" + median +
+                ", percentile90=" + percentile90 +
+                ", percentile95=" + percentile95 +
+                ", percentile99=" + percentile99 +
+                '}';
+    }
+
+    /**
+     * Accumulates count, sum, minimum, maximum, average and standard deviation one value at a time, so that they can
+     * be kept up to date as values are appended without rescanning the previous ones.
+     */
+    static final class Accumulator {
+        private long count = 0;
+        private double sum = 0.0;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        // Welford's online algorithm for the mean and variance
+        private double mean = 0.0;
+        private double m2 = 0.0;
+
+        /**
+         * Initializes a new, empty instance of the {@link Accumulator} class.
+         */
+        Accumulator() {
+        }
+
+        /**
+         * Initializes a new instance of the {@link Accumulator} class that resumes from the provided statistics.
+         *
+         * @param statistics the statistics to resume from.
+         */
+        Accumulator(TimeSeriesStatistics statistics) {
+            if (statistics.count > 0) {
+                this.count = statistics.count;
+                this.sum = statistics.sum;
+                this.min = statistics.min;
+                this.max = statistics.max;
+                this.mean = statistics.average;
+                this.m2 = statistics.standardDeviation * statistics.standardDeviation * statistics.count;
+            }
+        }
+
+        /**
+         * Adds a value to the accumulator; {@link Double#NaN} values are ignored.
+         *
+         * @param v the value to add.
+         */
+        void add(double v) {
+            if (Double.isNaN(v)) {
+                return;
+            }
+            count++;
+            sum += v;
+            if (v < min) {
+                min = v;
+            }
+            if (v > max) {
+                max = v;
+            }
+            double delta = v - mean;
+            mean += delta / count;
+            m2 += delta * (v - mean);
+        }
+
+        /**
+         * Returns a snapshot of the statistics accumulated so far, without percentiles.
+         *
+         * @return a snapshot of the statistics accumulated so far.
+         */
+        TimeSeriesStatistics toStatistics() {
+            if (count == 0) {
+                return EMPTY;
+            }
+            return toStatistics(false, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        }
+
+        private TimeSeriesStatistics toStatistics(boolean percentilesComputed,
+                                                  double median,
+                                                  double percentile90,
+                                                  double percentile95,
+                                                  double percentile99) {
+            return new TimeSeriesStatistics(count,
+                    sum,
+                    min,
+                    max,
+                    mean,
+                    Math.sqrt(m2 / count),
+                    percentilesComputed,
+                    median,
+                    percentile90,
+                    percentile95,
+                    percentile99);
+        }
+    }
+}
@@ -17,13 +17,9 @@
 package eu.binjr.core.data.timeseries.transform;
 
 import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesSnapshot;
 import eu.binjr.core.data.workspace.TimeSeriesInfo;
-import javafx.scene.chart.XYChart;
 
-import java.time.ZonedDateTime;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -51,21 +47,10 @@ public class DecimationTransform extends TimeSeriesTransform {
                 .parallelStream()
                 .collect(Collectors.toMap(Map.Entry::getKey, o -> {
                     if (threshold > 0 && o.getValue().size() > threshold) {
-                        o.getValue().setData(decimate(o.getValue(), threshold));
+                        TimeSeriesSnapshot snapshot = o.getValue().snapshot();
+                        o.getValue().setData(snapshot.select(ReductionKernels.decimate(snapshot.size(), threshold)));
                     }
                     return o.getValue();
                 }));
     }
-
-    private Collection<XYChart.Data<ZonedDateTime, Double>> decimate(TimeSeriesProcessor data, int threshold) {
-        int dataLength = data.size();
-        List<XYChart.Data<ZonedDateTime, Double>> sampled = new ArrayList<>(threshold);
-        double every = (double) (dataLength - 2) / (threshold - 2);
-        sampled.add(data.getSample(0)); // Always add the first point
-        for (int i = 1; i < threshold - 1; i++) {
-            sampled.add(data.getSample(Math.min(dataLength - 1, (int) Math.round(i * every))));
-        }
-        sampled.add(data.getSample(dataLength - 1));
-        return sampled;
-    }
-}
\ No newline at end of file
+}
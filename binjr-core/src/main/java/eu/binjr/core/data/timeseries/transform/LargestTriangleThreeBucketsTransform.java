@@ -17,13 +17,9 @@
 package eu.binjr.core.data.timeseries.transform;
 
 import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesSnapshot;
 import eu.binjr.core.data.workspace.TimeSeriesInfo;
-import javafx.scene.chart.XYChart;
 
-import java.time.ZonedDateTime;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -52,67 +48,14 @@ public class LargestTriangleThreeBucketsTransform extends TimeSeriesTransform {
                 .parallelStream()
                 .collect(Collectors.toMap(Map.Entry::getKey, o -> {
                     if (threshold > 0 && o.getValue().size() > threshold) {
-                        o.getValue().setData(applyLTTBReduction(o.getValue(), threshold));
+                        TimeSeriesSnapshot snapshot = o.getValue().snapshot();
+                        o.getValue().setData(snapshot.select(ReductionKernels.largestTriangleThreeBuckets(
+                                snapshot.getTimeStamps(),
+                                snapshot.getValues(),
+                                snapshot.size(),
+                                threshold)));
                     }
                     return o.getValue();
                 }));
     }
-
-
-    /**
-     * <p>Method implementing the Largest-Triangle-Three-Buckets algorithm.</p>
-     * <p>Adapted from <a href="https://gist.github.com/DanielWJudge/63300889f27c7f50eeb7">DanielWJudge/LargestTriangleThreeBuckets.cs</a></p>
-     *
-     * @param data      the list of sample to apply the reduction to.
-     * @param threshold d the maximum number of samples to keep.
-     * @return a reduced list of samples.
-     */
-    private Collection<XYChart.Data<ZonedDateTime, Double>> applyLTTBReduction(TimeSeriesProcessor data, int threshold) {
-        int dataLength = data.size();
-        List<XYChart.Data<ZonedDateTime, Double>> sampled = new ArrayList<>(threshold);
-        // Bucket size. Leave room for start and end data points
-        double every = (double) (dataLength - 2) / (threshold - 2);
-        int a = 0;
-        int nextA = 0;
-        XYChart.Data<ZonedDateTime, Double> maxAreaPoint = data.getSample(a);
-        sampled.add(data.getSample(a)); // Always add the first point
-        for (int i = 0; i < threshold - 2; i++) {
-            // Calculate point average for next bucket (containing c)
-            double avgX = 0;
-            double avgY = 0;
-            int avgRangeStart = (int) (Math.floor((i + 1) * every) + 1);
-            int avgRangeEnd = (int) (Math.floor((i + 2) * every) + 1);
-            avgRangeEnd = avgRangeEnd < dataLength ? avgRangeEnd : dataLength;
-            int avgRangeLength = avgRangeEnd - avgRangeStart;
-            for (; avgRangeStart < avgRangeEnd; avgRangeStart++) {
-                avgX += data.getSample(avgRangeStart).getXValue().toEpochSecond();
-                avgY += data.getSample(avgRangeStart).getYValue();
-            }
-            avgX /= avgRangeLength;
-            avgY /= avgRangeLength;
-            // Get the range for this bucket
-            int rangeOffs = (int) (Math.floor((i) * every) + 1);
-            int rangeTo = (int) (Math.floor((i + 1) * every) + 1);
-
-            // Point a
-            double pointAx = data.getSample(a).getXValue().toEpochSecond();
-            double pointAy = data.getSample(a).getYValue();
-            double maxArea = -1;
-            for (; rangeOffs < rangeTo; rangeOffs++) {
-                // Calculate triangle area over three buckets
-                double area = Math.abs((pointAx - avgX) * (data.getSample(rangeOffs).getYValue() - pointAy) -
-                        (pointAx - data.getSample(rangeOffs).getXValue().toEpochSecond()) * (avgY - pointAy)
-                ) * 0.5;
-                if (area > maxArea) {
-                    maxArea = area;
-                    maxAreaPoint = data.getSample(rangeOffs);
-                    nextA = rangeOffs; // Next a is this b
-                }
-            }
-            sampled.add(maxAreaPoint); // Pick this point from the bucket
-            a = nextA; // This a is the next a (chosen b)
-        }
-        sampled.add(data.getSample(dataLength - 1)); // Always add last
-        return sampled;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,71 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package eu.binjr.core.data.timeseries.transform;
+
+import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesSnapshot;
+import eu.binjr.core.data.workspace.TimeSeriesInfo;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link TimeSeriesTransform} that keeps the first, last, minimum and maximum samples for each pixel column of
+ * the plot area (M4 aggregation), so that series are reduced to at most four times the width of the chart
+ * without losing any peak.
+ *
+ * @author Frederic Thevenet
+ */
+public class M4Transform extends TimeSeriesTransform {
+    private final long start;
+    private final long end;
+    private final int columns;
+
+    /**
+     * Initializes a new instance of the {@link M4Transform} class.
+     *
+     * @param start   the time stamp at the left edge of the plot area.
+     * @param end     the time stamp at the right edge of the plot area.
+     * @param columns the width of the plot area, in pixels.
+     */
+    public M4Transform(Instant start, Instant end, int columns) {
+        super("M4Transform");
+        this.start = start.toEpochMilli();
+        this.end = end.toEpochMilli();
+        this.columns = columns;
+    }
+
+    @Override
+    public Map<TimeSeriesInfo, TimeSeriesProcessor> apply(Map<TimeSeriesInfo, TimeSeriesProcessor> m) {
+        return m.entrySet()
+                .parallelStream()
+                .collect(Collectors.toMap(Map.Entry::getKey, o -> {
+                    if (columns > 0 && o.getValue().size() > 4 * columns) {
+                        TimeSeriesSnapshot snapshot = o.getValue().snapshot();
+                        o.getValue().setData(snapshot.select(ReductionKernels.m4(
+                                snapshot.getTimeStamps(),
+                                snapshot.getValues(),
+                                snapshot.size(),
+                                start,
+                                end,
+                                columns)));
+                    }
+                    return o.getValue();
+                }));
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package eu.binjr.core.data.timeseries.transform;
+
+import java.util.Arrays;
+
+/**
+ * Sample reduction algorithms operating directly on primitive arrays.
+ * <p>All kernels are free of locking and only allocate the array of indices they return; those indices identify
+ * the samples to keep, in ascending order.</p>
+ *
+ * @author Frederic Thevenet
+ */
+public final class ReductionKernels {
+
+    private ReductionKernels() {
+    }
+
+    /**
+     * Selects samples at regular intervals.
+     *
+     * @param length    the number of samples in the series.
+     * @param threshold the maximum number of samples to keep.
+     * @return the indices of the samples to keep.
+     */
+    public static int[] decimate(int length, int threshold) {
+        if (threshold <= 0 || length <= threshold) {
+            return identity(length);
+        }
+        if (threshold < 3) {
+            return firstAndLast(length, threshold);
+        }
+        int[] sampled = new int[threshold];
+        double every = (double) (length - 2) / (threshold - 2);
+        sampled[0] = 0; // Always add the first point
+        for (int i = 1; i < threshold - 1; i++) {
+            sampled[i] = Math.min(length - 1, (int) Math.round(i * every));
+        }
+        sampled[threshold - 1] = length - 1;
+        return sampled;
+    }
+
+    /**
+     * <p>Selects samples according to the Largest-Triangle-Three-Buckets algorithm.</p>
+     * <p>Adapted from <a href="https://gist.github.com/DanielWJudge/63300889f27c7f50eeb7">DanielWJudge/LargestTriangleThreeBuckets.cs</a></p>
+     *
+     * @param x         the X coordinates of the samples (e.g. time stamps), in ascending order.
+     * @param y         the Y coordinates of the samples.
+     * @param length    the number of samples in the series.
+     * @param threshold the maximum number of samples to keep.
+     * @return the indices of the samples to keep.
+     */
+    public static int[] largestTriangleThreeBuckets(long[] x, double[] y, int length, int threshold) {
+        if (threshold <= 0 || length <= threshold) {
+            return identity(length);
+        }
+        if (threshold < 3) {
+            return firstAndLast(length, threshold);
+        }
+        // Offset X coordinates by the first one to preserve precision once converted to double
+        final long origin = x[0];
+        int[] sampled = new int[threshold];
+        int count = 0;
+        // Bucket size. Leave room for start and end data points
+        double every = (double) (length - 2) / (threshold - 2);
+        int a = 0;
+        int nextA = 0;
+        int maxAreaPoint = 0;
+        sampled[count++] = 0; // Always add the first point
+        for (int i = 0; i < threshold - 2; i++) {
+            // Calculate point average for next bucket (containing c)
+            double avgX = 0;
+            double avgY = 0;
+            int avgRangeStart = (int) (Math.floor((i + 1) * every) + 1);
+            int avgRangeEnd = (int) (Math.floor((i + 2) * every) + 1);
+            avgRangeEnd = avgRangeEnd < length ? avgRangeEnd : length;
+            int avgRangeLength = avgRangeEnd - avgRangeStart;
+            for (; avgRangeStart < avgRangeEnd; avgRangeStart++) {
+                avgX += x[avgRangeStart] - origin;
+                avgY += y[avgRangeStart];
+            }
+            avgX /= avgRangeLength;
+            avgY /= avgRangeLength;
+            // Get the range for this bucket
+            int rangeOffs = (int) (Math.floor(i * every) + 1);
+            int rangeTo = (int) (Math.floor((i + 1) * every) + 1);
+            // Point a
+            double pointAx = x[a] - origin;
+            double pointAy = y[a];
+            double maxArea = -1;
+            for (; rangeOffs < rangeTo; rangeOffs++) {
+                // Calculate triangle area over three buckets
+                double area = Math.abs((pointAx - avgX) * (y[rangeOffs] - pointAy) -
+                        (pointAx - (x[rangeOffs] - origin)) * (avgY - pointAy)
+                ) * 0.5;
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxAreaPoint = rangeOffs;
+                    nextA = rangeOffs; // Next a is this b
+                }
+            }
+            sampled[count++] = maxAreaPoint; // Pick this point from the bucket
+            a = nextA; // This a is the next a (chosen b)
+        }
+        sampled[count] = length - 1; // Always add last
+        return sampled;
+    }
+
+    /**
+     * <p>Selects the first, last, minimum and maximum samples for each pixel column of a chart (M4 aggregation).</p>
+     * <p>Since those are the only samples which can affect the rasterization of a line within a pixel column,
+     * the reduced series renders identically to the original one, peaks included.</p>
+     * <p>See <a href="http://www.vldb.org/pvldb/vol7/p797-jugel.pdf">M4: A Visualization-Oriented Time Series Data Aggregation</a></p>
+     *
+     * @param x       the X coordinates of the samples (e.g. time stamps), in ascending order.
+     * @param y       the Y coordinates of the samples.
+     * @param length  the number of samples in the series.
+     * @param start   the X coordinate of the left edge of the plot area.
+     * @param end     the X coordinate of the right edge of the plot area.
+     * @param columns the number of pixel columns in the plot area.
+     * @return the indices of the samples to keep.
+     */
+    public static int[] m4(long[] x, double[] y, int length, long start, long end, int columns) {
+        if (columns <= 0 || end <= start || length <= 4L * columns) {
+            return identity(length);
+        }
+        final double pixelsPerUnit = (double) columns / (end - start);
+        int[] sampled = new int[4 * columns];
+        int count = 0;
+        int column = -1;
+        int first = 0;
+        int last = 0;
+        int min = 0;
+        int max = 0;
+        for (int i = 0; i < length; i++) {
+            // Samples outside of the plot area are folded into the first and last columns
+            int c = (int) Math.max(0, Math.min(columns - 1, Math.floor((x[i] - start) * pixelsPerUnit)));
+            if (c != column) {
+                if (column >= 0) {
+                    if (count > sampled.length - 4) {
+                        // Only happens if X coordinates are not sorted
+                        sampled = Arrays.copyOf(sampled, sampled.length * 2);
+                    }
+                    count = appendColumn(sampled, count, first, min, max, last);
+                }
+                column = c;
+                first = last = min = max = i;
+            } else {
+                last = i;
+                if (y[i] < y[min]) {
+                    min = i;
+                }
+                if (y[i] > y[max]) {
+                    max = i;
+                }
+            }
+        }
+        if (column >= 0) {
+            count = appendColumn(sampled, count, first, min, max, last);
+        }
+        return count == sampled.length ? sampled : Arrays.copyOf(sampled, count);
+    }
+
+    private static int appendColumn(int[] sampled, int count, int first, int min, int max, int last) {
+        int lower = Math.min(min, max);
+        int upper = Math.max(min, max);
+        sampled[count++] = first;
+        if (lower != first) {
+            sampled[count++] = lower;
+        }
+        if (upper != lower && upper != last) {
+            sampled[count++] = upper;
+        }
+        if (last != first && last != lower) {
+            sampled[count++] = last;
+        }
+        return count;
+    }
+
+    private static int[] identity(int length) {
+        int[] indices = new int[length];
+        for (int i = 0; i < length; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    private static int[] firstAndLast(int length, int threshold) {
+        return threshold == 1 ? new int[]{0} : new int[]{0, length - 1};
+    }
+}
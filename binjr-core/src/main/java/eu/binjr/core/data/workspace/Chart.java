@@ -17,11 +17,20 @@
 package eu.binjr.core.data.workspace;
 
 import eu.binjr.common.io.IOUtils;
+import eu.binjr.core.data.adapters.DataAdapter;
+import eu.binjr.core.data.async.AsyncTaskManager;
 import eu.binjr.core.data.dirtyable.ChangeWatcher;
 import eu.binjr.core.data.dirtyable.Dirtyable;
 import eu.binjr.core.data.dirtyable.IsDirtyable;
 import eu.binjr.core.data.exceptions.DataAdapterException;
+import eu.binjr.core.data.exceptions.FetchingDataFromAdapterException;
+import eu.binjr.core.data.timeseries.DoubleTimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesSnapshot;
 import eu.binjr.core.data.timeseries.transform.DecimationTransform;
+import eu.binjr.core.data.timeseries.transform.LargestTriangleThreeBucketsTransform;
+import eu.binjr.core.data.timeseries.transform.M4Transform;
+import eu.binjr.core.data.timeseries.transform.TimeSeriesTransform;
 import eu.binjr.core.preferences.GlobalPreferences;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
@@ -30,11 +39,17 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.xml.bind.annotation.*;
+import java.time.Instant;
 import java.time.ZonedDateTime;
-import java.util.Collection;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.groupingBy;
@@ -72,9 +87,13 @@ public class Chart implements Dirtyable, AutoCloseable {
     private DoubleProperty yAxisMinValue;
     @IsDirtyable
     private DoubleProperty yAxisMaxValue;
+    @IsDirtyable
+    private Property<DownSamplingMethod> downSamplingMethod;
 
     private transient BooleanProperty showProperties;
     private transient final ChangeWatcher status;
+    // The time interval for which the series' processors hold unreduced data, if any.
+    private transient volatile ZonedDateTime[] rawDataInterval;
 
     /**
      * Initializes a new instance of the {@link Worksheet} class
@@ -90,7 +109,8 @@ public class Chart implements Dirtyable, AutoCloseable {
                 1.0,
                 true,
                 0.0,
-                100.0);
+                100.0,
+                DownSamplingMethod.DECIMATION);
     }
 
     /**
@@ -112,7 +132,8 @@ public class Chart implements Dirtyable, AutoCloseable {
                 1.0,
                 true,
                 0.0,
-                100.0);
+                100.0,
+                DownSamplingMethod.DECIMATION);
     }
 
     /**
@@ -133,7 +154,8 @@ public class Chart implements Dirtyable, AutoCloseable {
                 initChart.getStrokeWidth(),
                 initChart.isAutoScaleYAxis(),
                 initChart.getyAxisMinValue(),
-                initChart.getyAxisMaxValue()
+                initChart.getyAxisMaxValue(),
+                initChart.getDownSamplingMethod()
         );
     }
 
@@ -147,7 +169,8 @@ public class Chart implements Dirtyable, AutoCloseable {
                   double strokeWidth,
                   boolean autoScaleYAxis,
                   double yAxisMinValue,
-                  double yAxisMaxValue) {
+                  double yAxisMaxValue,
+                  DownSamplingMethod downSamplingMethod) {
         this.name = new SimpleStringProperty(name);
         this.unit = new SimpleStringProperty(unitName);
         this.chartType = new SimpleObjectProperty<>(chartType);
@@ -159,6 +182,7 @@ public class Chart implements Dirtyable, AutoCloseable {
         this.autoScaleYAxis = new SimpleBooleanProperty(autoScaleYAxis);
         this.yAxisMinValue = new SimpleDoubleProperty(yAxisMinValue);
         this.yAxisMaxValue = new SimpleDoubleProperty(yAxisMaxValue);
+        this.downSamplingMethod = new SimpleObjectProperty<>(downSamplingMethod);
         this.showProperties = new SimpleBooleanProperty(false);
 
         // Change watcher must be initialized after dirtyable properties or they will not be tracked.
@@ -176,6 +200,32 @@ public class Chart implements Dirtyable, AutoCloseable {
      */
     public void fetchDataFromSources(ZonedDateTime startTime, ZonedDateTime endTime, boolean bypassCache)
             throws DataAdapterException {
+        fetchDataFromSources(startTime, endTime, bypassCache, 0, (completed, total) -> {
+        });
+    }
+
+    /**
+     * Fills up the backend for all {@link TimeSeriesInfo} in the chart by querying the relevant data adapters
+     * for the specified time interval, and reduces the number of samples according to the chart's
+     * {@link DownSamplingMethod} and the width of its plot area.
+     * <p>If sample reduction is disabled and unreduced data was already retrieved for an interval that
+     * encloses the requested one, nothing is fetched.</p>
+     * <p>Series whose {@link eu.binjr.core.data.timeseries.TimeSeriesPyramid} already covers the time interval at
+     * a fine enough resolution are served from it instead, without querying their adapter.</p>
+     *
+     * @param startTime     the start of the time interval
+     * @param endTime       the end of the time interval
+     * @param bypassCache   set to true to forcefully bypass any cache on the adapter, or on the series' pyramids.
+     * @param plotAreaWidth the width of the plot area in pixels, or 0 if unknown.
+     * @param onProgress    a callback invoked, from any thread, with the number of completed and total paths each time
+     *                      data for a batch of paths has been retrieved and reduced.
+     * @throws DataAdapterException if an error occurs while retrieving data from the adapter
+     */
+    public void fetchDataFromSources(ZonedDateTime startTime,
+                                     ZonedDateTime endTime,
+                                     boolean bypassCache,
+                                     int plotAreaWidth,
+                                     BiConsumer<Integer, Integer> onProgress) throws DataAdapterException {
         // prune series from closed adapters
         series.removeIf(seriesInfo -> {
             if (seriesInfo.getBinding().getAdapter().isClosed()) {
@@ -186,32 +236,191 @@ public class Chart implements Dirtyable, AutoCloseable {
             return false;
         });
         // Define the reduction transform to apply
-        var reducer = new DecimationTransform(GlobalPreferences.getInstance().getDownSamplingThreshold());
-        // Group all bindings by common adapters
-        var bindingsByAdapters = getSeries().stream().collect(groupingBy(o -> o.getBinding().getAdapter()));
+        var reducer = makeReducer(startTime, endTime, plotAreaWidth);
+        boolean reductionEnabled = GlobalPreferences.getInstance().getDownSamplingEnabled();
+        boolean pyramidEnabled = reductionEnabled && GlobalPreferences.getInstance().isLevelOfDetailPyramidEnabled();
+        // Unreduced data already retrieved for a wider interval can be displayed as is: views only expose the visible range.
+        ZonedDateTime[] rawInterval = rawDataInterval;
+        if (!reductionEnabled && !bypassCache && rawInterval != null &&
+                !startTime.isBefore(rawInterval[0]) && !endTime.isAfter(rawInterval[1]) &&
+                getSeries().stream().allMatch(s -> s.getProcessor() != null)) {
+            logger.debug(() -> "Data for chart " + getName() + " within [" + startTime + ", " + endTime + "] was already retrieved");
+            return;
+        }
+        rawDataInterval = null;
+        int maxParallelism = Math.max(1, GlobalPreferences.getInstance().getMaxFetchParallelismPerAdapter());
+        // Serve the series whose pyramid covers the requested interval at a fine enough resolution without fetching
+        List<TimeSeriesInfo> seriesToFetch = new ArrayList<>();
+        Map<TimeSeriesInfo, TimeSeriesProcessor> served = new HashMap<>();
+        for (var seriesInfo : getSeries()) {
+            if (bypassCache) {
+                seriesInfo.getPyramid().clear();
+            }
+            Optional<TimeSeriesSnapshot> selection = pyramidEnabled && !bypassCache ?
+                    seriesInfo.getPyramid().trySelect(startTime.toInstant(),
+                            endTime.toInstant(),
+                            getPlotAreaColumns(plotAreaWidth),
+                            // The envelope of each bucket keeps peaks whatever the down-sampling method applied next
+                            true) :
+                    Optional.empty();
+            if (selection.isPresent()) {
+                TimeSeriesProcessor processor = new DoubleTimeSeriesProcessor();
+                processor.setData(selection.get());
+                served.put(seriesInfo, processor);
+            } else {
+                seriesToFetch.add(seriesInfo);
+            }
+        }
+        if (!served.isEmpty()) {
+            logger.debug(() -> served.size() + " series in chart " + getName() + " are served from their level of detail pyramid");
+            var data = reducer.transform(served, reductionEnabled);
+            for (var seriesInfo : data.keySet()) {
+                seriesInfo.setProcessor(data.get(seriesInfo));
+            }
+        }
+        // Group all bindings by common adapters, then all queries with the same adapter and path
+        var bindingsByAdapters = seriesToFetch.stream()
+                .collect(groupingBy(o -> o.getBinding().getAdapter(), groupingBy(o -> o.getBinding().getPath())));
+        final int total = bindingsByAdapters.values().stream().mapToInt(Map::size).sum();
+        var completed = new AtomicInteger(0);
+        var aborted = new AtomicBoolean(false);
+        // Work handed over to other threads inherits the priority and source of the calling task
+        var priority = AsyncTaskManager.getCurrentPriority();
+        var source = AsyncTaskManager.getCurrentSource();
+        List<Future<?>> workers = new ArrayList<>();
         for (var byAdapterEntry : bindingsByAdapters.entrySet()) {
-            var adapter = byAdapterEntry.getKey();
-            // Group all queries with the same adapter and path
-            var bindingsByPath = byAdapterEntry.getValue().stream().collect(groupingBy(o -> o.getBinding().getPath()));
-            for (var byPathEntry : bindingsByPath.entrySet()) {
-                String path = byPathEntry.getKey();
-                // Get data from the adapter
-                var data = adapter.fetchData(
-                        path,
-                        startTime.toInstant(),
-                        endTime.toInstant(),
-                        byPathEntry.getValue(),
-                        bypassCache);
-                // Applying sample reduction
-                data = reducer.transform(data, GlobalPreferences.getInstance().getDownSamplingEnabled());
-                //Update timeSeries data
-                for (var seriesInfo : data.keySet()) {
-                    seriesInfo.setProcessor(data.get(seriesInfo));
+            DataAdapter adapter = byAdapterEntry.getKey();
+            // Split the adapter's paths into batches, which it may be able to fetch in fewer requests
+            int batchSize = Math.max(1, adapter.getMaxFetchBatchSize());
+            Queue<Map<String, List<TimeSeriesInfo>>> pending = new ConcurrentLinkedQueue<>();
+            Map<String, List<TimeSeriesInfo>> batch = new HashMap<>();
+            for (var byPathEntry : byAdapterEntry.getValue().entrySet()) {
+                batch.put(byPathEntry.getKey(), byPathEntry.getValue());
+                if (batch.size() == batchSize) {
+                    pending.add(batch);
+                    batch = new HashMap<>();
                 }
             }
+            if (!batch.isEmpty()) {
+                pending.add(batch);
+            }
+            // Each worker drains the adapter's queue of batches, which bounds the number of concurrent requests per adapter
+            for (int i = 0; i < Math.min(maxParallelism, pending.size()); i++) {
+                workers.add(AsyncTaskManager.getInstance().submitFetch(() -> {
+                    Map<String, List<TimeSeriesInfo>> byPathBatch;
+                    while (!aborted.get() && (byPathBatch = pending.poll()) != null) {
+                        try {
+                            // Get data from the adapter
+                            var fetched = adapter.fetchData(
+                                    byPathBatch,
+                                    startTime.toInstant(),
+                                    endTime.toInstant(),
+                                    bypassCache);
+                            // Summarizing raw data and applying sample reduction, on the executor dedicated to CPU-bound work
+                            var reduction = CompletableFuture.supplyAsync(() -> {
+                                        // Don't bother if the refresh was cancelled while the reduction was queued
+                                        if (aborted.get()) {
+                                            throw new CancellationException("Fetching data for chart " + getName() + " was cancelled");
+                                        }
+                                        if (pyramidEnabled) {
+                                            // Samples that may still change must not be served without asking the adapter again
+                                            Instant settledEnd = Instant.now().minus(adapter.getSettleDelay());
+                                            Instant ingestedEnd = endTime.toInstant().isBefore(settledEnd) ? endTime.toInstant() : settledEnd;
+                                            fetched.forEach((seriesInfo, processor) -> seriesInfo.getPyramid()
+                                                    .ingest(startTime.toInstant(), ingestedEnd, processor.snapshot()));
+                                        }
+                                        return reducer.transform(fetched, reductionEnabled);
+                                    },
+                                    AsyncTaskManager.getInstance().getComputeExecutor(priority, source));
+                            Map<TimeSeriesInfo, TimeSeriesProcessor> data;
+                            try {
+                                // Unlike join(), get() lets the worker be interrupted while waiting.
+                                data = reduction.get();
+                            } catch (InterruptedException e) {
+                                reduction.cancel(true);
+                                Thread.currentThread().interrupt();
+                                throw new FetchingDataFromAdapterException("Fetching data for chart " + getName() + " was cancelled", e);
+                            } catch (ExecutionException e) {
+                                if (e.getCause() instanceof CancellationException) {
+                                    throw new FetchingDataFromAdapterException("Fetching data for chart " + getName() + " was cancelled", e.getCause());
+                                }
+                                throw new DataAdapterException("Error reducing data for chart " + getName(), e.getCause());
+                            }
+                            //Update timeSeries data
+                            for (var seriesInfo : data.keySet()) {
+                                seriesInfo.setProcessor(data.get(seriesInfo));
+                            }
+                        } catch (Exception e) {
+                            aborted.set(true);
+                            throw e;
+                        }
+                        onProgress.accept(completed.addAndGet(byPathBatch.size()), total);
+                    }
+                    return null;
+                }, priority, adapter, source));
+            }
+        }
+        try {
+            for (var worker : workers) {
+                worker.get();
+            }
+            if (!reductionEnabled) {
+                rawDataInterval = new ZonedDateTime[]{startTime, endTime};
+            }
+        } catch (InterruptedException e) {
+            // The refresh has been superseded: abort outstanding requests
+            Thread.currentThread().interrupt();
+            throw new FetchingDataFromAdapterException("Fetching data for chart " + getName() + " was cancelled", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DataAdapterException) {
+                throw (DataAdapterException) e.getCause();
+            }
+            throw new DataAdapterException("Error fetching data for chart " + getName(), e.getCause());
+        } finally {
+            aborted.set(true);
+            workers.forEach(worker -> worker.cancel(true));
         }
     }
 
+    private int getPlotAreaColumns(int plotAreaWidth) {
+        // Fall back to a number of columns that yields as many samples as the threshold with M4 if width is unknown
+        return plotAreaWidth > 0 ? plotAreaWidth : Math.max(1, GlobalPreferences.getInstance().getDownSamplingThreshold() / 4);
+    }
+
+    private TimeSeriesTransform makeReducer(ZonedDateTime startTime, ZonedDateTime endTime, int plotAreaWidth) {
+        int threshold = GlobalPreferences.getInstance().getDownSamplingThreshold();
+        switch (getDownSamplingMethod()) {
+            case M4:
+                return new M4Transform(startTime.toInstant(), endTime.toInstant(), getPlotAreaColumns(plotAreaWidth));
+            case LTTB:
+                return new LargestTriangleThreeBucketsTransform(threshold);
+            case DECIMATION:
+            default:
+                return new DecimationTransform(threshold);
+        }
+    }
+
+    /**
+     * Resolves the values nearest to the provided time stamp for all the series in the chart, in a single pass.
+     * <p><b>Remark:</b> Series with no data or whose processor is being accessed by another thread are mapped to
+     * {@link Double#NaN}.</p>
+     *
+     * @param xValue the time stamp to get the values for.
+     * @return a map of the values nearest to the provided time stamp, for each series in the chart.
+     */
+    public Map<TimeSeriesInfo, Double> tryGetNearestValues(ZonedDateTime xValue) {
+        Map<TimeSeriesInfo, Double> values = new HashMap<>(series.size());
+        if (xValue == null) {
+            return values;
+        }
+        long timeStamp = xValue.toInstant().toEpochMilli();
+        for (TimeSeriesInfo info : series) {
+            TimeSeriesProcessor processor = info.getProcessor();
+            values.put(info, processor == null ? Double.NaN : processor.tryGetNearestValue(timeStamp).orElse(Double.NaN));
+        }
+        return values;
+    }
+
     /**
      * Adds a {@link TimeSeriesInfo} to the worksheet
      *
@@ -316,6 +525,34 @@ public class Chart implements Dirtyable, AutoCloseable {
         this.chartType.setValue(chartType);
     }
 
+    /**
+     * The method used to reduce the number of samples plotted on the chart
+     *
+     * @return the method used to reduce the number of samples plotted on the chart
+     */
+    @XmlAttribute
+    public DownSamplingMethod getDownSamplingMethod() {
+        return downSamplingMethod.getValue();
+    }
+
+    /**
+     * The method used to reduce the number of samples plotted on the chart
+     *
+     * @return An instance of {@link Property} for the method used to reduce the number of samples plotted on the chart
+     */
+    public Property<DownSamplingMethod> downSamplingMethodProperty() {
+        return downSamplingMethod;
+    }
+
+    /**
+     * The method used to reduce the number of samples plotted on the chart
+     *
+     * @param downSamplingMethod the method used to reduce the number of samples plotted on the chart
+     */
+    public void setDownSamplingMethod(DownSamplingMethod downSamplingMethod) {
+        this.downSamplingMethod.setValue(downSamplingMethod);
+    }
+
     /**
      * The unit for the {@link Worksheet}'s times series Y axis
      *
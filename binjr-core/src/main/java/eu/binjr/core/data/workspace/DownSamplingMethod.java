@@ -0,0 +1,39 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package eu.binjr.core.data.workspace;
+
+/**
+ * An enumeration of the methods available to reduce the number of samples plotted on a chart.
+ *
+ * @author Frederic Thevenet
+ */
+public enum DownSamplingMethod {
+    DECIMATION("Decimation"),
+    LTTB("Largest triangle three buckets"),
+    M4("Min/max per pixel (M4)");
+
+    private String label;
+
+    DownSamplingMethod(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
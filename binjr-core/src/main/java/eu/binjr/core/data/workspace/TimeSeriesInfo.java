@@ -21,6 +21,7 @@ import eu.binjr.core.data.dirtyable.ChangeWatcher;
 import eu.binjr.core.data.dirtyable.Dirtyable;
 import eu.binjr.core.data.dirtyable.IsDirtyable;
 import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesPyramid;
 import javafx.beans.property.*;
 import javafx.scene.paint.Color;
 
@@ -44,6 +45,7 @@ public class TimeSeriesInfo implements Dirtyable {
     private final TimeSeriesBinding binding;
     private final ChangeWatcher status;
     private Property<TimeSeriesProcessor> processor = new SimpleObjectProperty<>();
+    private final TimeSeriesPyramid pyramid = new TimeSeriesPyramid();
 
     /**
      * Parameter-less constructor (needed for XMl serialization)
@@ -228,6 +230,16 @@ public class TimeSeriesInfo implements Dirtyable {
         return this.processor;
     }
 
+    /**
+     * Gets the multi-resolution summary of the data retrieved so far for the series.
+     *
+     * @return the multi-resolution summary of the data retrieved so far for the series.
+     */
+    @XmlTransient
+    public TimeSeriesPyramid getPyramid() {
+        return pyramid;
+    }
+
     @XmlTransient
     @Override
     public Boolean isDirty() {
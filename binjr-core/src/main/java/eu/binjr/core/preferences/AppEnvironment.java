@@ -30,6 +30,8 @@ import org.apache.logging.log4j.core.config.Configurator;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.jar.Manifest;
@@ -222,6 +224,30 @@ public class AppEnvironment {
         }
     }
 
+    /**
+     * Returns the path of the directory in which the application can store cached data for the current user,
+     * according to the conventions of the currently running OS.
+     *
+     * @return the path of the directory in which the application can store cached data.
+     */
+    public Path getUserCacheLocation() {
+        String home = System.getProperty("user.home");
+        switch (getOsFamily()) {
+            case WINDOWS:
+                String localAppData = System.getenv("LOCALAPPDATA");
+                return (localAppData != null ? Paths.get(localAppData) : Paths.get(home, "AppData", "Local"))
+                        .resolve(APP_NAME).resolve("cache");
+            case OSX:
+                return Paths.get(home, "Library", "Caches", APP_NAME);
+            case LINUX:
+            case UNSUPPORTED:
+            default:
+                String xdgCacheHome = System.getenv("XDG_CACHE_HOME");
+                return (xdgCacheHome != null && !xdgCacheHome.isEmpty() ? Paths.get(xdgCacheHome) : Paths.get(home, ".cache"))
+                        .resolve(APP_NAME);
+        }
+    }
+
     /**
      * Set to true to enable debug mode, set to false to disable it.
      *
@@ -16,6 +16,8 @@
 
 package eu.binjr.core.preferences;
 
+import eu.binjr.common.cache.EvictionPolicies;
+import eu.binjr.core.data.async.ExecutorModes;
 import eu.binjr.core.dialogs.UserInterfaceThemes;
 import javafx.beans.property.*;
 import javafx.geometry.Rectangle2D;
@@ -59,6 +61,21 @@ public class GlobalPreferences {
     private static final String CONSOLE_MAX_LINE_CAPACITY = "consoleMaxLineCapacity";
     private static final String FULL_HEIGHT_CROSSHAIR_MARKER = "fullHeightCrosshairMarker";
     private static final String MAX_ASYNC_TASKS_PARALLELISM = "maxAsyncTasksParallelism";
+    private static final String ASYNC_EXECUTOR_MODE = "asyncExecutorMode";
+    private static final String CANVAS_CHART_RENDERING_ENABLED = "canvasChartRenderingEnabled";
+    private static final String LEVEL_OF_DETAIL_PYRAMID_ENABLED = "levelOfDetailPyramidEnabled";
+    private static final String MAX_FETCH_PARALLELISM_PER_ADAPTER = "maxFetchParallelismPerAdapter";
+    private static final String BACKGROUND_REFRESH_DEADLINE_SECONDS = "backgroundRefreshDeadlineSeconds";
+    private static final String ADAPTER_CACHE_MAX_SIZE_MB = "adapterCacheMaxSizeMB";
+    private static final String ADAPTER_CACHE_EVICTION_POLICY = "adapterCacheEvictionPolicy";
+    private static final String ADAPTER_CACHE_COMPRESSION_ENABLED = "adapterCacheCompressionEnabled";
+    private static final String DISK_CACHE_ENABLED = "diskCacheEnabled";
+    private static final String DISK_CACHE_MAX_SIZE_MB = "diskCacheMaxSizeMB";
+    private static final String DISK_CACHE_LOCATION = "diskCacheLocation";
+    private static final String HTTP_MAX_CONNECTIONS = "httpMaxConnections";
+    private static final String HTTP_MAX_CONNECTIONS_PER_ROUTE = "httpMaxConnectionsPerRoute";
+    private static final String HTTP_IDLE_CONNECTION_TIMEOUT = "httpIdleConnectionTimeout";
+    private static final String HTTP_KEEP_ALIVE_DURATION = "httpKeepAliveDuration";
     private static final String WINDOW_LAST_POSITION_X = "windowLastPositionX";
     private static final String WINDOW_LAST_POSITION_Y = "windowLastPositionY";
     private static final String WINDOW_LAST_POSITION_HEIGHT = "windowLastPositionHeight";
@@ -84,6 +101,21 @@ public class GlobalPreferences {
     private final IntegerProperty consoleMaxLineCapacity = new SimpleIntegerProperty();
     private final BooleanProperty fullHeightCrosshairMarker = new SimpleBooleanProperty();
     private final IntegerProperty maxAsyncTasksParallelism = new SimpleIntegerProperty();
+    private final Property<ExecutorModes> asyncExecutorMode = new SimpleObjectProperty<>();
+    private final BooleanProperty canvasChartRenderingEnabled = new SimpleBooleanProperty();
+    private final BooleanProperty levelOfDetailPyramidEnabled = new SimpleBooleanProperty();
+    private final IntegerProperty maxFetchParallelismPerAdapter = new SimpleIntegerProperty();
+    private final IntegerProperty backgroundRefreshDeadlineSeconds = new SimpleIntegerProperty();
+    private final IntegerProperty adapterCacheMaxSizeMB = new SimpleIntegerProperty();
+    private final Property<EvictionPolicies> adapterCacheEvictionPolicy = new SimpleObjectProperty<>();
+    private final BooleanProperty adapterCacheCompressionEnabled = new SimpleBooleanProperty();
+    private final BooleanProperty diskCacheEnabled = new SimpleBooleanProperty();
+    private final IntegerProperty diskCacheMaxSizeMB = new SimpleIntegerProperty();
+    private final Property<Path> diskCacheLocation = new SimpleObjectProperty<>();
+    private final IntegerProperty httpMaxConnections = new SimpleIntegerProperty();
+    private final IntegerProperty httpMaxConnectionsPerRoute = new SimpleIntegerProperty();
+    private final IntegerProperty httpIdleConnectionTimeout = new SimpleIntegerProperty();
+    private final IntegerProperty httpKeepAliveDuration = new SimpleIntegerProperty();
     private final Property<Rectangle2D> windowLastPosition = new SimpleObjectProperty<>();
 
     private final Preferences prefs;
@@ -109,6 +141,21 @@ public class GlobalPreferences {
         checkForUpdateOnStartUp.addListener((observable, oldValue, newValue) -> prefs.putBoolean(CHECK_FOR_UPDATE_ON_START_UP, newValue));
         fullHeightCrosshairMarker.addListener((observable, oldValue, newValue) -> prefs.putBoolean(FULL_HEIGHT_CROSSHAIR_MARKER, newValue));
         maxAsyncTasksParallelism.addListener((observable, oldValue, newValue) -> prefs.putInt(MAX_ASYNC_TASKS_PARALLELISM, newValue.intValue()));
+        asyncExecutorMode.addListener((observable, oldValue, newValue) -> prefs.put(ASYNC_EXECUTOR_MODE, newValue.name()));
+        canvasChartRenderingEnabled.addListener((observable, oldValue, newValue) -> prefs.putBoolean(CANVAS_CHART_RENDERING_ENABLED, newValue));
+        levelOfDetailPyramidEnabled.addListener((observable, oldValue, newValue) -> prefs.putBoolean(LEVEL_OF_DETAIL_PYRAMID_ENABLED, newValue));
+        maxFetchParallelismPerAdapter.addListener((observable, oldValue, newValue) -> prefs.putInt(MAX_FETCH_PARALLELISM_PER_ADAPTER, newValue.intValue()));
+        backgroundRefreshDeadlineSeconds.addListener((observable, oldValue, newValue) -> prefs.putInt(BACKGROUND_REFRESH_DEADLINE_SECONDS, newValue.intValue()));
+        adapterCacheMaxSizeMB.addListener((observable, oldValue, newValue) -> prefs.putInt(ADAPTER_CACHE_MAX_SIZE_MB, newValue.intValue()));
+        adapterCacheEvictionPolicy.addListener((observable, oldValue, newValue) -> prefs.put(ADAPTER_CACHE_EVICTION_POLICY, newValue.name()));
+        adapterCacheCompressionEnabled.addListener((observable, oldValue, newValue) -> prefs.putBoolean(ADAPTER_CACHE_COMPRESSION_ENABLED, newValue));
+        diskCacheEnabled.addListener((observable, oldValue, newValue) -> prefs.putBoolean(DISK_CACHE_ENABLED, newValue));
+        diskCacheMaxSizeMB.addListener((observable, oldValue, newValue) -> prefs.putInt(DISK_CACHE_MAX_SIZE_MB, newValue.intValue()));
+        diskCacheLocation.addListener((observable, oldValue, newValue) -> prefs.put(DISK_CACHE_LOCATION, newValue.toString()));
+        httpMaxConnections.addListener((observable, oldValue, newValue) -> prefs.putInt(HTTP_MAX_CONNECTIONS, newValue.intValue()));
+        httpMaxConnectionsPerRoute.addListener((observable, oldValue, newValue) -> prefs.putInt(HTTP_MAX_CONNECTIONS_PER_ROUTE, newValue.intValue()));
+        httpIdleConnectionTimeout.addListener((observable, oldValue, newValue) -> prefs.putInt(HTTP_IDLE_CONNECTION_TIMEOUT, newValue.intValue()));
+        httpKeepAliveDuration.addListener((observable, oldValue, newValue) -> prefs.putInt(HTTP_KEEP_ALIVE_DURATION, newValue.intValue()));
         windowLastPosition.addListener((observable, oldValue, newValue) -> {
             if (newValue != null) {
                 prefs.putDouble(WINDOW_LAST_POSITION_X, newValue.getMinX());
@@ -148,6 +195,21 @@ public class GlobalPreferences {
             loadPluginsFromExternalLocation.setValue(prefs.getBoolean(LOAD_PLUGINS_FROM_EXTERNAL_LOCATION, false));
             fullHeightCrosshairMarker.setValue(prefs.getBoolean(FULL_HEIGHT_CROSSHAIR_MARKER, false));
             maxAsyncTasksParallelism.setValue(prefs.getInt(MAX_ASYNC_TASKS_PARALLELISM, 4));
+            asyncExecutorMode.setValue(ExecutorModes.valueOf(prefs.get(ASYNC_EXECUTOR_MODE, ""), ExecutorModes.BOUNDED));
+            canvasChartRenderingEnabled.setValue(prefs.getBoolean(CANVAS_CHART_RENDERING_ENABLED, false));
+            levelOfDetailPyramidEnabled.setValue(prefs.getBoolean(LEVEL_OF_DETAIL_PYRAMID_ENABLED, false));
+            maxFetchParallelismPerAdapter.setValue(prefs.getInt(MAX_FETCH_PARALLELISM_PER_ADAPTER, 4));
+            backgroundRefreshDeadlineSeconds.setValue(prefs.getInt(BACKGROUND_REFRESH_DEADLINE_SECONDS, 30));
+            adapterCacheMaxSizeMB.setValue(prefs.getInt(ADAPTER_CACHE_MAX_SIZE_MB, 256));
+            adapterCacheEvictionPolicy.setValue(EvictionPolicies.valueOf(prefs.get(ADAPTER_CACHE_EVICTION_POLICY, ""), EvictionPolicies.W_TINY_LFU));
+            adapterCacheCompressionEnabled.setValue(prefs.getBoolean(ADAPTER_CACHE_COMPRESSION_ENABLED, true));
+            diskCacheEnabled.setValue(prefs.getBoolean(DISK_CACHE_ENABLED, false));
+            diskCacheMaxSizeMB.setValue(prefs.getInt(DISK_CACHE_MAX_SIZE_MB, 1024));
+            diskCacheLocation.setValue(Paths.get(prefs.get(DISK_CACHE_LOCATION, AppEnvironment.getInstance().getUserCacheLocation().toString())));
+            httpMaxConnections.setValue(prefs.getInt(HTTP_MAX_CONNECTIONS, 32));
+            httpMaxConnectionsPerRoute.setValue(prefs.getInt(HTTP_MAX_CONNECTIONS_PER_ROUTE, 8));
+            httpIdleConnectionTimeout.setValue(prefs.getInt(HTTP_IDLE_CONNECTION_TIMEOUT, 30));
+            httpKeepAliveDuration.setValue(prefs.getInt(HTTP_KEEP_ALIVE_DURATION, 60));
             windowLastPosition.setValue(new Rectangle2D(
                     prefs.getDouble(WINDOW_LAST_POSITION_X, Double.MAX_VALUE),
                     prefs.getDouble(WINDOW_LAST_POSITION_Y, Double.MAX_VALUE),
@@ -719,6 +781,426 @@ public class GlobalPreferences {
         this.maxAsyncTasksParallelism.set(maxAsyncTasksParallelism);
     }
 
+    /**
+     * Returns the mode in which background tasks are scheduled. Defaults to {@link ExecutorModes#BOUNDED}.
+     *
+     * @return the mode in which background tasks are scheduled.
+     */
+    public ExecutorModes getAsyncExecutorMode() {
+        return asyncExecutorMode.getValue();
+    }
+
+    /**
+     * The asyncExecutorMode property.
+     *
+     * @return the asyncExecutorMode property.
+     */
+    public Property<ExecutorModes> asyncExecutorModeProperty() {
+        return asyncExecutorMode;
+    }
+
+    /**
+     * Sets the mode in which background tasks are scheduled.
+     *
+     * @param asyncExecutorMode the mode in which background tasks are scheduled.
+     */
+    public void setAsyncExecutorMode(ExecutorModes asyncExecutorMode) {
+        this.asyncExecutorMode.setValue(asyncExecutorMode);
+    }
+
+    /**
+     * Returns true if charts are rasterized onto a canvas rather than built from a scene graph node per sample.
+     * Disabled by default.
+     *
+     * @return true if charts are rasterized onto a canvas, false otherwise.
+     */
+    public boolean isCanvasChartRenderingEnabled() {
+        return canvasChartRenderingEnabled.get();
+    }
+
+    /**
+     * The canvasChartRenderingEnabled property.
+     *
+     * @return the canvasChartRenderingEnabled property.
+     */
+    public BooleanProperty canvasChartRenderingEnabledProperty() {
+        return canvasChartRenderingEnabled;
+    }
+
+    /**
+     * Set to true if charts should be rasterized onto a canvas rather than built from a scene graph node per sample.
+     * This only applies to worksheets opened after the change.
+     *
+     * @param canvasChartRenderingEnabled true if charts should be rasterized onto a canvas, false otherwise.
+     */
+    public void setCanvasChartRenderingEnabled(boolean canvasChartRenderingEnabled) {
+        this.canvasChartRenderingEnabled.set(canvasChartRenderingEnabled);
+    }
+
+    /**
+     * Returns true if charts are redrawn from a multi-resolution summary of the data already retrieved whenever
+     * possible, rather than from data fetched anew from the source. Disabled by default.
+     *
+     * @return true if charts are redrawn from a multi-resolution summary of the data already retrieved, false otherwise.
+     */
+    public boolean isLevelOfDetailPyramidEnabled() {
+        return levelOfDetailPyramidEnabled.get();
+    }
+
+    /**
+     * The levelOfDetailPyramidEnabled property.
+     *
+     * @return the levelOfDetailPyramidEnabled property.
+     */
+    public BooleanProperty levelOfDetailPyramidEnabledProperty() {
+        return levelOfDetailPyramidEnabled;
+    }
+
+    /**
+     * Set to true if charts should be redrawn from a multi-resolution summary of the data already retrieved whenever
+     * possible, rather than from data fetched anew from the source.
+     *
+     * @param levelOfDetailPyramidEnabled true if charts should be redrawn from a multi-resolution summary of the data already retrieved.
+     */
+    public void setLevelOfDetailPyramidEnabled(boolean levelOfDetailPyramidEnabled) {
+        this.levelOfDetailPyramidEnabled.set(levelOfDetailPyramidEnabled);
+    }
+
+    /**
+     * Returns the maximum number of concurrent data requests issued to a single data adapter when refreshing a chart.
+     * <p>In {@link ExecutorModes#SPLIT} mode, this also bounds the requests issued to a single data adapter across
+     * all charts.</p>
+     *
+     * @return the maximum number of concurrent data requests issued to a single data adapter.
+     */
+    public int getMaxFetchParallelismPerAdapter() {
+        return maxFetchParallelismPerAdapter.get();
+    }
+
+    /**
+     * The maxFetchParallelismPerAdapter property.
+     *
+     * @return the maxFetchParallelismPerAdapter property.
+     */
+    public IntegerProperty maxFetchParallelismPerAdapterProperty() {
+        return maxFetchParallelismPerAdapter;
+    }
+
+    /**
+     * Sets the maximum number of concurrent data requests issued to a single data adapter when refreshing a chart.
+     *
+     * @param maxFetchParallelismPerAdapter the maximum number of concurrent data requests issued to a single data adapter.
+     */
+    public void setMaxFetchParallelismPerAdapter(int maxFetchParallelismPerAdapter) {
+        this.maxFetchParallelismPerAdapter.set(maxFetchParallelismPerAdapter);
+    }
+
+    /**
+     * Returns the number of seconds after which a queued refresh of a chart on a worksheet that isn't selected is
+     * dropped if it hasn't started yet; the chart is then refreshed when its worksheet gets selected.
+     * <p>A value of zero or less means that such refreshes never expire. Defaults to 30 seconds.</p>
+     *
+     * @return the number of seconds after which a queued refresh of a chart on a worksheet that isn't selected is dropped.
+     */
+    public int getBackgroundRefreshDeadlineSeconds() {
+        return backgroundRefreshDeadlineSeconds.get();
+    }
+
+    /**
+     * The backgroundRefreshDeadlineSeconds property.
+     *
+     * @return the backgroundRefreshDeadlineSeconds property.
+     */
+    public IntegerProperty backgroundRefreshDeadlineSecondsProperty() {
+        return backgroundRefreshDeadlineSeconds;
+    }
+
+    /**
+     * Sets the number of seconds after which a queued refresh of a chart on a worksheet that isn't selected is dropped.
+     *
+     * @param backgroundRefreshDeadlineSeconds the number of seconds after which a queued refresh of a chart on a
+     *                                         worksheet that isn't selected is dropped.
+     */
+    public void setBackgroundRefreshDeadlineSeconds(int backgroundRefreshDeadlineSeconds) {
+        this.backgroundRefreshDeadlineSeconds.set(backgroundRefreshDeadlineSeconds);
+    }
+
+    /**
+     * Returns the maximum amount of memory used to cache data retrieved by data adapters, in megabytes.
+     *
+     * @return the maximum amount of memory used to cache data retrieved by data adapters, in megabytes.
+     */
+    public int getAdapterCacheMaxSizeMB() {
+        return adapterCacheMaxSizeMB.get();
+    }
+
+    /**
+     * The adapterCacheMaxSizeMB property.
+     *
+     * @return the adapterCacheMaxSizeMB property.
+     */
+    public IntegerProperty adapterCacheMaxSizeMBProperty() {
+        return adapterCacheMaxSizeMB;
+    }
+
+    /**
+     * Sets the maximum amount of memory used to cache data retrieved by data adapters, in megabytes.
+     *
+     * @param adapterCacheMaxSizeMB the maximum amount of memory used to cache data retrieved by data adapters, in megabytes.
+     */
+    public void setAdapterCacheMaxSizeMB(int adapterCacheMaxSizeMB) {
+        this.adapterCacheMaxSizeMB.set(adapterCacheMaxSizeMB);
+    }
+
+    /**
+     * Returns the policy used to evict entries from the data adapters' cache.
+     *
+     * @return the policy used to evict entries from the data adapters' cache.
+     */
+    public EvictionPolicies getAdapterCacheEvictionPolicy() {
+        return adapterCacheEvictionPolicy.getValue();
+    }
+
+    /**
+     * The adapterCacheEvictionPolicy property.
+     *
+     * @return the adapterCacheEvictionPolicy property.
+     */
+    public Property<EvictionPolicies> adapterCacheEvictionPolicyProperty() {
+        return adapterCacheEvictionPolicy;
+    }
+
+    /**
+     * Sets the policy used to evict entries from the data adapters' cache.
+     *
+     * @param adapterCacheEvictionPolicy the policy used to evict entries from the data adapters' cache.
+     */
+    public void setAdapterCacheEvictionPolicy(EvictionPolicies adapterCacheEvictionPolicy) {
+        this.adapterCacheEvictionPolicy.setValue(adapterCacheEvictionPolicy);
+    }
+
+    /**
+     * Returns true if samples held in the data adapters' cache are compressed, false otherwise.
+     *
+     * @return true if samples held in the data adapters' cache are compressed, false otherwise.
+     */
+    public boolean isAdapterCacheCompressionEnabled() {
+        return adapterCacheCompressionEnabled.get();
+    }
+
+    /**
+     * The adapterCacheCompressionEnabled property.
+     *
+     * @return the adapterCacheCompressionEnabled property.
+     */
+    public BooleanProperty adapterCacheCompressionEnabledProperty() {
+        return adapterCacheCompressionEnabled;
+    }
+
+    /**
+     * Set to true to compress samples held in the data adapters' cache, false otherwise.
+     * <p>The setting only applies to data cached after it is changed.</p>
+     *
+     * @param adapterCacheCompressionEnabled true to compress samples held in the data adapters' cache, false otherwise.
+     */
+    public void setAdapterCacheCompressionEnabled(boolean adapterCacheCompressionEnabled) {
+        this.adapterCacheCompressionEnabled.set(adapterCacheCompressionEnabled);
+    }
+
+    /**
+     * Returns true if responses from remote sources for time intervals in the past are also cached on disk, false otherwise.
+     * <p>The disk cache is disabled by default. When enabled, it holds copies of the data retrieved from remote sources
+     * in the directory returned by {@link #getDiskCacheLocation()}; deleting that directory while the application
+     * isn't running purges it.</p>
+     *
+     * @return true if responses from remote sources are also cached on disk, false otherwise.
+     */
+    public boolean isDiskCacheEnabled() {
+        return diskCacheEnabled.get();
+    }
+
+    /**
+     * The diskCacheEnabled property.
+     *
+     * @return the diskCacheEnabled property.
+     */
+    public BooleanProperty diskCacheEnabledProperty() {
+        return diskCacheEnabled;
+    }
+
+    /**
+     * Set to true to also cache responses from remote sources for time intervals in the past on disk, false otherwise.
+     *
+     * @param diskCacheEnabled true to also cache responses from remote sources on disk, false otherwise.
+     */
+    public void setDiskCacheEnabled(boolean diskCacheEnabled) {
+        this.diskCacheEnabled.set(diskCacheEnabled);
+    }
+
+    /**
+     * Returns the maximum amount of disk space used by the disk cache, in megabytes.
+     *
+     * @return the maximum amount of disk space used by the disk cache, in megabytes.
+     */
+    public int getDiskCacheMaxSizeMB() {
+        return diskCacheMaxSizeMB.get();
+    }
+
+    /**
+     * The diskCacheMaxSizeMB property.
+     *
+     * @return the diskCacheMaxSizeMB property.
+     */
+    public IntegerProperty diskCacheMaxSizeMBProperty() {
+        return diskCacheMaxSizeMB;
+    }
+
+    /**
+     * Sets the maximum amount of disk space used by the disk cache, in megabytes.
+     *
+     * @param diskCacheMaxSizeMB the maximum amount of disk space used by the disk cache, in megabytes.
+     */
+    public void setDiskCacheMaxSizeMB(int diskCacheMaxSizeMB) {
+        this.diskCacheMaxSizeMB.set(diskCacheMaxSizeMB);
+    }
+
+    /**
+     * Returns the path of the directory where the disk cache is stored.
+     * <p>It defaults to the OS specific cache directory for the current user, as returned by
+     * {@link AppEnvironment#getUserCacheLocation()}.</p>
+     *
+     * @return the path of the directory where the disk cache is stored.
+     */
+    public Path getDiskCacheLocation() {
+        return diskCacheLocation.getValue();
+    }
+
+    /**
+     * The diskCacheLocation property.
+     *
+     * @return the diskCacheLocation property.
+     */
+    public Property<Path> diskCacheLocationProperty() {
+        return diskCacheLocation;
+    }
+
+    /**
+     * Sets the path of the directory where the disk cache is stored.
+     *
+     * @param diskCacheLocation the path of the directory where the disk cache is stored.
+     */
+    public void setDiskCacheLocation(Path diskCacheLocation) {
+        this.diskCacheLocation.setValue(diskCacheLocation);
+    }
+
+    /**
+     * Returns the maximum number of pooled connections to HTTP data sources.
+     *
+     * @return the maximum number of pooled connections to HTTP data sources.
+     */
+    public int getHttpMaxConnections() {
+        return httpMaxConnections.get();
+    }
+
+    /**
+     * The httpMaxConnections property.
+     *
+     * @return the httpMaxConnections property.
+     */
+    public IntegerProperty httpMaxConnectionsProperty() {
+        return httpMaxConnections;
+    }
+
+    /**
+     * Sets the maximum number of pooled connections to HTTP data sources.
+     *
+     * @param httpMaxConnections the maximum number of pooled connections to HTTP data sources.
+     */
+    public void setHttpMaxConnections(int httpMaxConnections) {
+        this.httpMaxConnections.set(httpMaxConnections);
+    }
+
+    /**
+     * Returns the maximum number of pooled connections to a single HTTP data source.
+     *
+     * @return the maximum number of pooled connections to a single HTTP data source.
+     */
+    public int getHttpMaxConnectionsPerRoute() {
+        return httpMaxConnectionsPerRoute.get();
+    }
+
+    /**
+     * The httpMaxConnectionsPerRoute property.
+     *
+     * @return the httpMaxConnectionsPerRoute property.
+     */
+    public IntegerProperty httpMaxConnectionsPerRouteProperty() {
+        return httpMaxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of pooled connections to a single HTTP data source.
+     *
+     * @param httpMaxConnectionsPerRoute the maximum number of pooled connections to a single HTTP data source.
+     */
+    public void setHttpMaxConnectionsPerRoute(int httpMaxConnectionsPerRoute) {
+        this.httpMaxConnectionsPerRoute.set(httpMaxConnectionsPerRoute);
+    }
+
+    /**
+     * Returns the number of seconds after which idle pooled connections to HTTP data sources are closed.
+     *
+     * @return the number of seconds after which idle pooled connections to HTTP data sources are closed.
+     */
+    public int getHttpIdleConnectionTimeout() {
+        return httpIdleConnectionTimeout.get();
+    }
+
+    /**
+     * The httpIdleConnectionTimeout property.
+     *
+     * @return the httpIdleConnectionTimeout property.
+     */
+    public IntegerProperty httpIdleConnectionTimeoutProperty() {
+        return httpIdleConnectionTimeout;
+    }
+
+    /**
+     * Sets the number of seconds after which idle pooled connections to HTTP data sources are closed.
+     *
+     * @param httpIdleConnectionTimeout the number of seconds after which idle pooled connections to HTTP data sources are closed.
+     */
+    public void setHttpIdleConnectionTimeout(int httpIdleConnectionTimeout) {
+        this.httpIdleConnectionTimeout.set(httpIdleConnectionTimeout);
+    }
+
+    /**
+     * Returns the number of seconds connections to HTTP data sources are kept alive for, when the server does not specify it.
+     *
+     * @return the number of seconds connections to HTTP data sources are kept alive for, when the server does not specify it.
+     */
+    public int getHttpKeepAliveDuration() {
+        return httpKeepAliveDuration.get();
+    }
+
+    /**
+     * The httpKeepAliveDuration property.
+     *
+     * @return the httpKeepAliveDuration property.
+     */
+    public IntegerProperty httpKeepAliveDurationProperty() {
+        return httpKeepAliveDuration;
+    }
+
+    /**
+     * Sets the number of seconds connections to HTTP data sources are kept alive for, when the server does not specify it.
+     *
+     * @param httpKeepAliveDuration the number of seconds connections to HTTP data sources are kept alive for, when the server does not specify it.
+     */
+    public void setHttpKeepAliveDuration(int httpKeepAliveDuration) {
+        this.httpKeepAliveDuration.set(httpKeepAliveDuration);
+    }
+
 
     public Rectangle2D getWindowLastPosition() {
         return windowLastPosition.getValue();
@@ -17,6 +17,7 @@
 package eu.binjr.core.preferences;
 
 import eu.binjr.core.data.async.AsyncTaskManager;
+import eu.binjr.core.data.async.TaskPriorities;
 import eu.binjr.common.github.GithubApi;
 import eu.binjr.common.github.GithubRelease;
 import eu.binjr.common.version.Version;
@@ -148,6 +149,6 @@ public class UpdateManager {
                 onFailure.run();
             }
         });
-        AsyncTaskManager.getInstance().submit(getLatestTask);
+        AsyncTaskManager.getInstance().submit(getLatestTask, TaskPriorities.BACKGROUND, null);
     }
 }
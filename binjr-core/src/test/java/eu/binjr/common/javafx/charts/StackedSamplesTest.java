@@ -0,0 +1,72 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.common.javafx.charts;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link StackedSamples}.
+ *
+ * @author Frederic Thevenet
+ */
+class StackedSamplesTest {
+
+    @Test
+    void unalignedSeriesAreInterpolatedOverTheUnionOfTimeStamps() {
+        StackedSamples stack = StackedSamples.of(List.of(
+                series(new long[]{0, 10, 20}, new double[]{1, 1, 1}),
+                series(new long[]{5, 15}, new double[]{2, 4})));
+
+        assertArrayEquals(new long[]{0, 5, 10, 15, 20}, stack.getTimeStamps());
+        double[] bottom = {1, 1, 1, 1, 1};
+        // The top series contributes nothing outside of the time span it covers
+        double[] top = {1, 3, 4, 5, 1};
+        for (int i = 0; i < stack.size(); i++) {
+            assertEquals(bottom[i], stack.getCumulativeValue(0, i));
+            assertEquals(top[i], stack.getCumulativeValue(1, i));
+        }
+        assertEquals(0, stack.getMinValue());
+        assertEquals(5, stack.getMaxValue());
+    }
+
+    @Test
+    void cumulativeValuesDoNotLosePrecisionOverLongSeries() {
+        int size = 10_000;
+        long[] timeStamps = new long[size];
+        double[] large = new double[size];
+        double[] small = new double[size];
+        for (int i = 0; i < size; i++) {
+            timeStamps[i] = i;
+        }
+        Arrays.fill(large, 1e15);
+        Arrays.fill(small, 0.5);
+        StackedSamples stack = StackedSamples.of(List.of(series(timeStamps, large), series(timeStamps, small)));
+
+        // Sums over the whole series are too large for the 0.5 increments to be recovered from their differences
+        for (int i = 0; i < size; i++) {
+            assertEquals(1e15 + 0.5, stack.getCumulativeValue(1, i), "at " + i);
+        }
+    }
+
+    private static CanvasXYChart.SampleSeries series(long[] timeStamps, double[] values) {
+        return new CanvasXYChart.SampleSeries(timeStamps, values, timeStamps.length);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.core.data.adapters;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import eu.binjr.core.data.codec.Decoder;
+import eu.binjr.core.data.exceptions.CannotInitializeDataAdapterException;
+import eu.binjr.core.data.timeseries.DoubleTimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
+import eu.binjr.core.data.workspace.ChartType;
+import eu.binjr.core.data.workspace.TimeSeriesInfo;
+import eu.binjr.core.data.workspace.UnitPrefixes;
+import javafx.scene.control.TreeItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the retrieval of data over HTTP by {@link HttpDataAdapter}.
+ *
+ * @author Frederic Thevenet
+ */
+class HttpDataAdapterTest {
+    private static final List<String> PATHS = List.of("a", "b", "c");
+    private static final int SAMPLES_PER_PART = 1000;
+    private final Map<String, CountDownLatch> firstSampleDecoded = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> decodedWhileStreaming = new ConcurrentHashMap<>();
+    private final Map<String, String> acceptedEncodings = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private GzipSourceAdapter adapter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        PATHS.forEach(path -> firstSampleDecoded.put(path, new CountDownLatch(1)));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/data", this::serve);
+        // Serve requests concurrently
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        adapter = new GzipSourceAdapter(new URL("http", "127.0.0.1", server.getAddress().getPort(), "/"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        adapter.close();
+        server.stop(0);
+    }
+
+    @Test
+    void gzipPayloadsOfMultiPathBatchAreDecodedAsTheyAreStreamed() throws Exception {
+        Map<String, List<TimeSeriesInfo>> seriesByPath = new LinkedHashMap<>();
+        for (String path : PATHS) {
+            seriesByPath.put(path, List.of(TimeSeriesInfo.fromBinding(new TimeSeriesBinding(path, path, null, path,
+                    UnitPrefixes.METRIC, ChartType.LINE, "", "", adapter))));
+        }
+        // Samples are timestamped from the epoch, one millisecond apart
+        Instant begin = Instant.EPOCH;
+        Instant end = begin.plusMillis(2 * SAMPLES_PER_PART);
+
+        Map<TimeSeriesInfo, TimeSeriesProcessor> data = adapter.fetchData(seriesByPath, begin, end, true);
+
+        assertEquals(PATHS.size(), data.size());
+        for (String path : PATHS) {
+            assertTrue(acceptedEncodings.getOrDefault(path, "").contains("gzip"), "Compressed content should be requested");
+            assertEquals(Boolean.TRUE, decodedWhileStreaming.get(path),
+                    "Samples should be decoded before the whole payload is received");
+            TimeSeriesProcessor processor = data.get(seriesByPath.get(path).get(0));
+            assertEquals(2 * SAMPLES_PER_PART, processor.size());
+            for (int i = 0; i < processor.size(); i++) {
+                assertEquals(i, processor.getTimeStamp(i));
+                assertEquals(valueOf(path, i), processor.getValue(i));
+            }
+        }
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getQuery().substring("path=".length());
+        acceptedEncodings.put(path, String.valueOf(exchange.getRequestHeaders().getFirst("Accept-Encoding")));
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        // A length of 0 results in a chunked response
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody(), true)) {
+            writeSamples(out, path, 0, SAMPLES_PER_PART);
+            out.flush();
+            // Hold the rest of the payload back until the client has started to decode it
+            decodedWhileStreaming.put(path, firstSampleDecoded.get(path).await(10, TimeUnit.SECONDS));
+            writeSamples(out, path, SAMPLES_PER_PART, 2 * SAMPLES_PER_PART);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void writeSamples(OutputStream out, String path, int from, int to) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            sb.append(i).append(',').append(valueOf(path, i)).append('\n');
+        }
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static double valueOf(String path, int i) {
+        return path.hashCode() + i;
+    }
+
+    /**
+     * An adapter for a source serving gzip compressed lines of comma separated timestamps and values.
+     */
+    private final class GzipSourceAdapter extends HttpDataAdapter {
+
+        private GzipSourceAdapter(URL baseAddress) throws CannotInitializeDataAdapterException {
+            super(baseAddress);
+        }
+
+        @Override
+        protected URI craftFetchUri(String path, Instant begin, Instant end) {
+            return URI.create(getBaseAddress() + "data?path=" + path);
+        }
+
+        @Override
+        public Decoder getDecoder() {
+            return this::decode;
+        }
+
+        private Map<TimeSeriesInfo, TimeSeriesProcessor> decode(InputStream in, List<TimeSeriesInfo> seriesInfo) throws IOException {
+            TimeSeriesInfo info = seriesInfo.get(0);
+            TimeSeriesProcessor processor = new DoubleTimeSeriesProcessor();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                processor.addSample(Long.parseLong(fields[0]), Double.parseDouble(fields[1]));
+                firstSampleDecoded.get(info.getBinding().getPath()).countDown();
+            }
+            return Map.of(info, processor);
+        }
+
+        @Override
+        public TreeItem<TimeSeriesBinding> getBindingTree() {
+            return new TreeItem<>();
+        }
+
+        @Override
+        public String getEncoding() {
+            return "UTF-8";
+        }
+
+        @Override
+        public ZoneId getTimeZoneId() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public String getSourceName() {
+            return "Gzip source";
+        }
+
+        @Override
+        public void onStart() {
+        }
+    }
+}
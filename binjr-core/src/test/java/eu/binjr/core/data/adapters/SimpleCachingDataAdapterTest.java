@@ -0,0 +1,272 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.core.data.adapters;
+
+import eu.binjr.core.data.codec.Decoder;
+import eu.binjr.core.data.exceptions.DataAdapterException;
+import eu.binjr.core.data.timeseries.DoubleTimeSeriesProcessor;
+import eu.binjr.core.data.timeseries.TimeSeriesProcessor;
+import eu.binjr.core.data.workspace.ChartType;
+import eu.binjr.core.data.workspace.TimeSeriesInfo;
+import eu.binjr.core.data.workspace.UnitPrefixes;
+import javafx.scene.control.TreeItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the time segment cache of {@link SimpleCachingDataAdapter}.
+ *
+ * @author Frederic Thevenet
+ */
+class SimpleCachingDataAdapterTest {
+    private static final long STEP = Duration.ofMinutes(1).toMillis();
+    private static final Duration SETTLE_DELAY = Duration.ofMinutes(5);
+    private FakeSourceAdapter adapter;
+    private List<TimeSeriesInfo> seriesInfo;
+
+    @BeforeEach
+    void setUp() {
+        adapter = new FakeSourceAdapter();
+        seriesInfo = List.of(TimeSeriesInfo.fromBinding(new TimeSeriesBinding("series", "path", null, "series",
+                UnitPrefixes.METRIC, ChartType.LINE, "", "", adapter)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        adapter.close();
+    }
+
+    @Test
+    void tailIsFetchedAgainAcrossNow() throws Exception {
+        long now = System.currentTimeMillis();
+        Instant begin = Instant.ofEpochMilli(now - Duration.ofHours(1).toMillis());
+        Instant end = Instant.ofEpochMilli(now + Duration.ofMinutes(10).toMillis());
+
+        TimeSeriesProcessor first = fetch(begin, end);
+        assertEquals(List.of(new Interval(begin.toEpochMilli(), end.toEpochMilli())), adapter.requests);
+        adapter.requests.clear();
+
+        TimeSeriesProcessor second = fetch(begin, end);
+        // Only the part of the interval past the settle delay is requested again, up to the end of the interval
+        assertEquals(1, adapter.requests.size());
+        Interval refetched = adapter.requests.get(0);
+        assertTrue(refetched.begin > begin.toEpochMilli(), "The settled part of the interval should be served from the cache");
+        assertTrue(refetched.begin <= now - SETTLE_DELAY.toMillis() + Duration.ofSeconds(30).toMillis(),
+                "The unsettled tail should be fetched again");
+        assertEquals(end.toEpochMilli(), refetched.end);
+        // Samples from the cache and from the tail are all returned, once
+        assertSameSamples(first, second);
+        assertEquals(adapter.samplesWithin(begin.toEpochMilli(), end.toEpochMilli()), second.size());
+    }
+
+    @Test
+    void settledIntervalIsServedFromCache() throws Exception {
+        long now = System.currentTimeMillis();
+        Instant begin = Instant.ofEpochMilli(now - Duration.ofHours(2).toMillis());
+        Instant end = Instant.ofEpochMilli(now - Duration.ofHours(1).toMillis());
+
+        TimeSeriesProcessor first = fetch(begin, end);
+        assertEquals(1, adapter.requests.size());
+        adapter.requests.clear();
+
+        TimeSeriesProcessor second = fetch(begin, end);
+        assertTrue(adapter.requests.isEmpty(), "A settled interval should be served from the cache");
+        assertSameSamples(first, second);
+    }
+
+    @Test
+    void panningOnlyRequestsTheUncoveredPart() throws Exception {
+        long now = System.currentTimeMillis();
+        long begin = now - Duration.ofHours(3).toMillis();
+        long end = now - Duration.ofHours(2).toMillis();
+        long shift = Duration.ofMinutes(20).toMillis();
+
+        fetch(Instant.ofEpochMilli(begin), Instant.ofEpochMilli(end));
+        assertEquals(List.of(new Interval(begin, end)), adapter.requests);
+        adapter.requests.clear();
+
+        // Panning forward overlaps the cached interval, only the newly exposed part is requested
+        TimeSeriesProcessor forward = fetch(Instant.ofEpochMilli(begin + shift), Instant.ofEpochMilli(end + shift));
+        assertEquals(List.of(new Interval(end + 1, end + shift)), adapter.requests);
+        assertSamples(begin + shift, end + shift, forward);
+        adapter.requests.clear();
+
+        // Same when panning backward
+        TimeSeriesProcessor backward = fetch(Instant.ofEpochMilli(begin - shift), Instant.ofEpochMilli(end - shift));
+        assertEquals(List.of(new Interval(begin - shift, begin - 1)), adapter.requests);
+        assertSamples(begin - shift, end - shift, backward);
+        adapter.requests.clear();
+
+        // The whole panned range is now covered
+        TimeSeriesProcessor all = fetch(Instant.ofEpochMilli(begin - shift), Instant.ofEpochMilli(end + shift));
+        assertTrue(adapter.requests.isEmpty(), "The panned range should be served from the cache");
+        assertSamples(begin - shift, end + shift, all);
+    }
+
+    @Test
+    void unsettledIntervalIsNeverCached() throws Exception {
+        long now = System.currentTimeMillis();
+        Instant begin = Instant.ofEpochMilli(now - Duration.ofMinutes(2).toMillis());
+        Instant end = Instant.ofEpochMilli(now + Duration.ofMinutes(2).toMillis());
+
+        TimeSeriesProcessor first = fetch(begin, end);
+        TimeSeriesProcessor second = fetch(begin, end);
+        assertEquals(List.of(new Interval(begin.toEpochMilli(), end.toEpochMilli()),
+                new Interval(begin.toEpochMilli(), end.toEpochMilli())), adapter.requests);
+        assertSameSamples(first, second);
+        assertEquals(adapter.samplesWithin(begin.toEpochMilli(), end.toEpochMilli()), second.size());
+    }
+
+    private TimeSeriesProcessor fetch(Instant begin, Instant end) throws DataAdapterException {
+        return adapter.fetchData("path", begin, end, seriesInfo, false).get(seriesInfo.get(0));
+    }
+
+    private void assertSamples(long begin, long end, TimeSeriesProcessor actual) {
+        assertEquals(adapter.samplesWithin(begin, end), actual.size());
+        long t = FakeSourceAdapter.firstSampleAt(begin);
+        for (int i = 0; i < actual.size(); i++, t += STEP) {
+            assertEquals(t, actual.getTimeStamp(i));
+            assertEquals(t / STEP, actual.getValue(i));
+        }
+    }
+
+    private static void assertSameSamples(TimeSeriesProcessor expected, TimeSeriesProcessor actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getTimeStamp(i), actual.getTimeStamp(i));
+            assertEquals(expected.getValue(i), actual.getValue(i));
+        }
+    }
+
+    private static final class Interval {
+        private final long begin;
+        private final long end;
+
+        private Interval(long begin, long end) {
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Interval)) {
+                return false;
+            }
+            return begin == ((Interval) o).begin && end == ((Interval) o).end;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(begin, end);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + Instant.ofEpochMilli(begin) + ", " + Instant.ofEpochMilli(end) + "]";
+        }
+    }
+
+    /**
+     * A source producing one sample per minute, up to the current time, that records the intervals requested from it.
+     */
+    private static final class FakeSourceAdapter extends SimpleCachingDataAdapter {
+        private final List<Interval> requests = new ArrayList<>();
+
+        @Override
+        protected Map<TimeSeriesInfo, TimeSeriesProcessor> fetchFromSource(String path, Instant begin, Instant end, List<TimeSeriesInfo> seriesInfo) {
+            requests.add(new Interval(begin.toEpochMilli(), end.toEpochMilli()));
+            long last = Math.min(end.toEpochMilli(), System.currentTimeMillis());
+            Map<TimeSeriesInfo, TimeSeriesProcessor> data = new HashMap<>();
+            for (TimeSeriesInfo info : seriesInfo) {
+                TimeSeriesProcessor processor = new DoubleTimeSeriesProcessor();
+                for (long t = firstSampleAt(begin.toEpochMilli()); t <= last; t += STEP) {
+                    processor.addSample(t, t / STEP);
+                }
+                data.put(info, processor);
+            }
+            return data;
+        }
+
+        private int samplesWithin(long begin, long end) {
+            long last = Math.min(end, System.currentTimeMillis());
+            int count = 0;
+            for (long t = firstSampleAt(begin); t <= last; t += STEP) {
+                count++;
+            }
+            return count;
+        }
+
+        private static long firstSampleAt(long begin) {
+            return (begin + STEP - 1) / STEP * STEP;
+        }
+
+        @Override
+        public Duration getSettleDelay() {
+            return SETTLE_DELAY;
+        }
+
+        @Override
+        public byte[] onCacheMiss(String path, Instant begin, Instant end) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Decoder getDecoder() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TreeItem<TimeSeriesBinding> getBindingTree() {
+            return new TreeItem<>();
+        }
+
+        @Override
+        public String getEncoding() {
+            return "UTF-8";
+        }
+
+        @Override
+        public ZoneId getTimeZoneId() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public String getSourceName() {
+            return "Fake source";
+        }
+
+        @Override
+        public Map<String, String> getParams() {
+            return Map.of();
+        }
+
+        @Override
+        public void loadParams(Map<String, String> params) {
+        }
+
+        @Override
+        public void onStart() {
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.core.data.adapters;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link TimeSegmentCache}.
+ *
+ * @author Frederic Thevenet
+ */
+class TimeSegmentCacheTest {
+    private static final String KEY = "series";
+
+    @ParameterizedTest
+    @ValueSource(strings = {"false", "true"})
+    void storingAnOverlappingIntervalReplacesItsSamples(boolean compressed) {
+        TimeSegmentCache cache = new TimeSegmentCache(compressed);
+        put(cache, KEY, 0, 999, t -> 1);
+        put(cache, KEY, 400, 599, t -> 2);
+
+        Samples samples = get(cache, KEY, 0, 999);
+        assertEquals(1000, samples.length);
+        for (int i = 0; i < samples.length; i++) {
+            assertEquals(i, samples.timeStamps[i]);
+            assertEquals(i >= 400 && i <= 599 ? 2 : 1, samples.values[i], "at " + i);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"false", "true"})
+    void adjacentIntervalsAreMerged(boolean compressed) {
+        TimeSegmentCache cache = new TimeSegmentCache(compressed);
+        put(cache, KEY, 100, 199, t -> t);
+        put(cache, KEY, 0, 99, t -> t);
+        put(cache, KEY, 200, 299, t -> t);
+
+        assertEquals(1, cache.getSegmentCount(KEY));
+        assertTrue(cache.missingIntervals(List.of(KEY), 0, 299).isEmpty());
+        Samples samples = get(cache, KEY, 50, 249);
+        assertEquals(200, samples.length);
+        for (int i = 0; i < samples.length; i++) {
+            assertEquals(50 + i, samples.timeStamps[i]);
+            assertEquals(50 + i, samples.values[i]);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"false", "true"})
+    void missingIntervalsAreMergedAcrossSeries(boolean compressed) {
+        TimeSegmentCache cache = new TimeSegmentCache(compressed);
+        put(cache, "a", 0, 99, t -> t);
+        put(cache, "a", 300, 399, t -> t);
+        put(cache, "b", 50, 149, t -> t);
+        put(cache, "c", 0, 49, t -> t);
+
+        // a misses [100, 299] and [400, 499], b misses [0, 49] and [150, 499], c misses [50, 499]
+        assertIntervals(List.of(new long[]{0, 49}, new long[]{100, 499}), cache.missingIntervals(List.of("a", "b"), 0, 499));
+        // Adjacent gaps are merged as well
+        assertIntervals(List.of(new long[]{0, 499}), cache.missingIntervals(List.of("b", "c"), 0, 499));
+        assertIntervals(List.of(new long[]{100, 299}), cache.missingIntervals(List.of("a"), 0, 399));
+        assertIntervals(List.of(new long[]{0, 499}), cache.missingIntervals(List.of("a", "unknown"), 0, 499));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"false", "true"})
+    void largeSegmentsAreNotRewrittenWhenPanning(boolean compressed) {
+        TimeSegmentCache cache = new TimeSegmentCache(compressed);
+        int large = 2 * TimeSegmentCache.MAX_COALESCED_SAMPLES;
+        put(cache, KEY, 0, large - 1, t -> t);
+        long sizeBefore = cache.getSizeInBytes();
+
+        // Each pan only exposes a small slice, which overlaps the previous one by its first time stamp
+        long end = large - 1;
+        for (int i = 0; i < 10; i++) {
+            put(cache, KEY, end, end + 100, t -> t);
+            end += 100;
+        }
+
+        // The large segment is left as is and the slices are coalesced together
+        assertEquals(2, cache.getSegmentCount(KEY));
+        assertTrue(cache.getSizeInBytes() - sizeBefore < sizeBefore / 2);
+        Samples samples = get(cache, KEY, 0, end);
+        assertEquals(end + 1, samples.length);
+        for (int i = 0; i < samples.length; i++) {
+            assertEquals(i, samples.timeStamps[i]);
+            assertEquals(i, samples.values[i]);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"false", "true"})
+    void coalescedSegmentsAreBoundedInSize(boolean compressed) {
+        TimeSegmentCache cache = new TimeSegmentCache(compressed);
+        int slice = TimeSegmentCache.MAX_COALESCED_SAMPLES / 4;
+        int slices = 16;
+        for (int i = 0; i < slices; i++) {
+            put(cache, KEY, (long) i * slice, (long) (i + 1) * slice - 1, t -> t);
+        }
+
+        assertEquals(slices / 4, cache.getSegmentCount(KEY));
+        assertEquals((long) slices * slice, get(cache, KEY, 0, (long) slices * slice).length);
+        assertTrue(cache.missingIntervals(List.of(KEY), 0, (long) slices * slice - 1).isEmpty());
+    }
+
+    private static void assertIntervals(List<long[]> expected, List<long[]> actual) {
+        assertEquals(expected.size(), actual.size(), "Unexpected number of intervals");
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static void put(TimeSegmentCache cache, String key, long begin, long end, LongToDoubleFunction values) {
+        int length = (int) (end - begin + 1);
+        long[] timeStamps = new long[length];
+        double[] data = new double[length];
+        for (int i = 0; i < length; i++) {
+            timeStamps[i] = begin + i;
+            data[i] = values.applyAsDouble(begin + i);
+        }
+        cache.put(key, begin, end, timeStamps, data, length);
+    }
+
+    private static Samples get(TimeSegmentCache cache, String key, long begin, long end) {
+        Samples samples = new Samples();
+        cache.get(key, begin, end, (timeStamps, values, length) -> {
+            samples.timeStamps = Arrays.copyOf(timeStamps, length);
+            samples.values = Arrays.copyOf(values, length);
+            samples.length = length;
+        });
+        return samples;
+    }
+
+    private static final class Samples {
+        private long[] timeStamps;
+        private double[] values;
+        private int length;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.core.data.async;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link PrioritizedExecutor}.
+ *
+ * @author Frederic Thevenet
+ */
+class PrioritizedExecutorTest {
+    private PrioritizedExecutor executor;
+    private CountDownLatch release;
+
+    @BeforeEach
+    void setUp() {
+        executor = new PrioritizedExecutor(1, Executors.defaultThreadFactory());
+        release = new CountDownLatch(1);
+        // Hold the only thread, so that subsequently submitted tasks are queued
+        executor.submit(() -> {
+            release.await();
+            return null;
+        }, TaskPriorities.VISIBLE, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void queuedTaskPastItsDeadlineNeverRuns() throws Exception {
+        AtomicBoolean ran = new AtomicBoolean(false);
+        FutureTask<Void> action = new FutureTask<>(() -> ran.set(true), null);
+        Future<?> future = executor.submit(action, TaskPriorities.NORMAL, null, Instant.now().plusMillis(50));
+
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThrows(CancellationException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertTrue(action.isCancelled(), "The wrapped task should be cancelled");
+        // Make sure the thread has moved past the expired task
+        executor.submit(() -> null, TaskPriorities.NORMAL, null).get(10, TimeUnit.SECONDS);
+        assertFalse(ran.get());
+    }
+
+    @Test
+    void queuedTaskWithinItsDeadlineRuns() throws Exception {
+        AtomicBoolean ran = new AtomicBoolean(false);
+        Future<?> future = executor.submit(() -> ran.set(true), TaskPriorities.NORMAL, null, Instant.now().plusSeconds(60));
+
+        release.countDown();
+
+        future.get(10, TimeUnit.SECONDS);
+        assertTrue(ran.get());
+    }
+}
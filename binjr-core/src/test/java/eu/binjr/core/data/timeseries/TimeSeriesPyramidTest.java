@@ -0,0 +1,156 @@
+/*
+ *    Copyright 2019 Frederic Thevenet
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package eu.binjr.core.data.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.function.LongToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link TimeSeriesPyramid}.
+ *
+ * @author Frederic Thevenet
+ */
+class TimeSeriesPyramidTest {
+    private static final int SAMPLES = 100_000;
+
+    @Test
+    void envelopeKeepsPeaksInTheOrderTheyOccurred() {
+        TimeSeriesPyramid pyramid = new TimeSeriesPyramid();
+        ingest(pyramid, 0, SAMPLES - 1, t -> t == 4242 ? 1000 : t == 54321 ? -1000 : 0);
+
+        TimeSeriesSnapshot selection = select(pyramid, 0, SAMPLES - 1, 100, true);
+
+        assertTrue(selection.size() < SAMPLES / 100);
+        long[] timeStamps = Arrays.copyOf(selection.getTimeStamps(), selection.size());
+        double[] values = Arrays.copyOf(selection.getValues(), selection.size());
+        for (int i = 1; i < timeStamps.length; i++) {
+            assertTrue(timeStamps[i - 1] < timeStamps[i], "Samples should be ordered by time");
+        }
+        assertEquals(1000, values[indexOf(timeStamps, 4242)]);
+        assertEquals(-1000, values[indexOf(timeStamps, 54321)]);
+    }
+
+    @Test
+    void averageOfEachBucketIsKept() {
+        TimeSeriesPyramid pyramid = new TimeSeriesPyramid();
+        ingest(pyramid, 0, SAMPLES - 1, t -> t % 2);
+
+        TimeSeriesSnapshot selection = select(pyramid, 0, SAMPLES - 1, 100, false);
+
+        for (int i = 0; i < selection.size(); i++) {
+            assertEquals(0.5, selection.getValues()[i], 1e-9);
+        }
+    }
+
+    @Test
+    void adjoiningIntervalsExtendCoverage() {
+        LongToDoubleFunction values = t -> Math.sin(t / 1000.0) * t;
+        TimeSeriesPyramid whole = new TimeSeriesPyramid();
+        ingest(whole, 0, SAMPLES - 1, values);
+        TimeSeriesPyramid incremental = new TimeSeriesPyramid();
+        ingest(incremental, SAMPLES / 2, SAMPLES - 1, values);
+        ingest(incremental, 0, SAMPLES / 2, values);
+
+        assertTrue(incremental.covers(Instant.ofEpochMilli(0), Instant.ofEpochMilli(SAMPLES - 1)));
+        for (boolean envelope : new boolean[]{true, false}) {
+            TimeSeriesSnapshot expected = select(whole, 0, SAMPLES - 1, 300, envelope);
+            TimeSeriesSnapshot actual = select(incremental, 0, SAMPLES - 1, 300, envelope);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getTimeStamps()[i], actual.getTimeStamps()[i]);
+                assertEquals(expected.getValues()[i], actual.getValues()[i], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void samplesWithinCoverageAreIgnored() {
+        TimeSeriesPyramid pyramid = new TimeSeriesPyramid();
+        ingest(pyramid, 0, 1000, t -> 1);
+        ingest(pyramid, 500, 2000, t -> 5);
+
+        TimeSeriesSnapshot before = select(pyramid, 0, 959, 10, true);
+        assertTrue(Arrays.stream(Arrays.copyOf(before.getValues(), before.size())).allMatch(v -> v == 1));
+        TimeSeriesSnapshot after = select(pyramid, 1024, 2000, 10, true);
+        assertTrue(Arrays.stream(Arrays.copyOf(after.getValues(), after.size())).allMatch(v -> v == 5));
+    }
+
+    @Test
+    void disjointIntervalReplacesContent() {
+        TimeSeriesPyramid pyramid = new TimeSeriesPyramid();
+        ingest(pyramid, 0, 1000, t -> 1);
+        ingest(pyramid, 1_000_000, 1_001_000, t -> 2);
+
+        assertFalse(pyramid.covers(Instant.ofEpochMilli(0), Instant.ofEpochMilli(1000)));
+        assertTrue(pyramid.covers(Instant.ofEpochMilli(1_000_000), Instant.ofEpochMilli(1_001_000)));
+        assertTrue(pyramid.trySelect(Instant.ofEpochMilli(0), Instant.ofEpochMilli(1000), 10, true).isEmpty());
+        TimeSeriesSnapshot selection = select(pyramid, 1_000_000, 1_001_000, 10, true);
+        assertTrue(Arrays.stream(Arrays.copyOf(selection.getValues(), selection.size())).allMatch(v -> v == 2));
+    }
+
+    @Test
+    void finestLevelsAreDiscardedAsCoverageGrows() {
+        TimeSeriesPyramid pyramid = new TimeSeriesPyramid();
+        ingest(pyramid, 0, 1000, t -> t);
+        // One bucket per millisecond is available while the span is short
+        assertTrue(pyramid.trySelect(Instant.ofEpochMilli(0), Instant.ofEpochMilli(1000), 1000, true).isPresent());
+
+        ingest(pyramid, 1000, 100 * TimeSeriesPyramid.MAX_BUCKETS_PER_LEVEL, t -> t);
+
+        assertTrue(pyramid.covers(Instant.ofEpochMilli(0), Instant.ofEpochMilli(100 * TimeSeriesPyramid.MAX_BUCKETS_PER_LEVEL)));
+        // Levels finer than the span allows within the bucket budget are gone...
+        assertTrue(pyramid.trySelect(Instant.ofEpochMilli(0), Instant.ofEpochMilli(1000), 1000, true).isEmpty());
+        // ...but coarser ones still hold the data ingested before
+        TimeSeriesSnapshot selection = select(pyramid, 0, 1000, 2, true);
+        assertEquals(0, selection.getValues()[0]);
+        assertEquals(0, selection.getTimeStamps()[0]);
+    }
+
+    @Test
+    void intervalBeyondCoverageIsNotServed() {
+        TimeSeriesPyramid pyramid = new TimeSeriesPyramid();
+        ingest(pyramid, 0, SAMPLES - 1, t -> 1);
+
+        assertTrue(pyramid.trySelect(Instant.ofEpochMilli(0), Instant.ofEpochMilli(SAMPLES), 10, true).isEmpty());
+    }
+
+    private static void ingest(TimeSeriesPyramid pyramid, long from, long to, LongToDoubleFunction values) {
+        int size = (int) (to - from + 1);
+        long[] timeStamps = new long[size];
+        double[] data = new double[size];
+        for (int i = 0; i < size; i++) {
+            timeStamps[i] = from + i;
+            data[i] = values.applyAsDouble(from + i);
+        }
+        pyramid.ingest(Instant.ofEpochMilli(from), Instant.ofEpochMilli(to), new TimeSeriesSnapshot(timeStamps, data, size, ZoneId.of("UTC")));
+    }
+
+    private static TimeSeriesSnapshot select(TimeSeriesPyramid pyramid, long from, long to, int columns, boolean envelope) {
+        return pyramid.trySelect(Instant.ofEpochMilli(from), Instant.ofEpochMilli(to), columns, envelope).orElseThrow();
+    }
+
+    private static int indexOf(long[] timeStamps, long timeStamp) {
+        int index = Arrays.binarySearch(timeStamps, timeStamp);
+        assertTrue(index >= 0, "No sample at " + timeStamp);
+        return index;
+    }
+}